@@ -0,0 +1,50 @@
+/**
+ * A single benchmarked operation, run by a {@code BenchmarkRunner} once for every board size.
+ * The state the operation works on is built in {@link #setUp(int)}, outside of the timed
+ * region, and the operation itself is {@link #run()}.
+ * 
+ * @author yuyingf
+ *
+ */
+public abstract class Benchmark {
+    
+    private final String name;
+    
+    /**
+     * Constructs a {@code Benchmark} with the given name.
+     * 
+     * @param name the name the results are reported under
+     */
+    protected Benchmark(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * @return the name the results are reported under
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Builds the state of the benchmark for a board of the given size. Not timed.
+     * 
+     * @param size the width and height of the board
+     */
+    public abstract void setUp(int size);
+    
+    /**
+     * Runs the benchmarked operation once.
+     * 
+     * @return the result of the operation, which is consumed so that it cannot be optimized
+     * away; may be null
+     */
+    public abstract Object run();
+    
+    /**
+     * Releases the state of the benchmark. Not timed.
+     */
+    public void tearDown() {
+    }
+
+}
@@ -0,0 +1,392 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the {@code GameBenchmarks} and records the average time per operation of each
+ * benchmark for each board size.<p>
+ * The harness follows JMH: every benchmark and size is measured in freshly forked JVMs, each
+ * running warmup iterations and then timed iterations of a fixed duration, and the results are
+ * written in the JSON format of JMH, so that the usual JMH tooling can read them. JMH itself
+ * cannot be used because it requires benchmarks in a named package, and the game classes are
+ * in the default package, which a named package cannot import.<p>
+ * Options:
+ * <pre>
+ * -b name,...      benchmarks to run (default: all)
+ * -p size,...      board sizes (default: 15,64,256,1024,4096)
+ * -wi n            warmup iterations (default: 3)
+ * -i n             measurement iterations (default: 5)
+ * -r ms            duration of an iteration (default: 1000)
+ * -f n             forks; 0 runs in this JVM (default: 1)
+ * -jvmArgs "..."   arguments of the forked JVMs (default: -Xmx4g)
+ * -timeout s       time limit of a fork (default: 600)
+ * -o file          JSON results file (default: bench-results.json)
+ * -baseline file   JSON results of an earlier run to compare with
+ * -threshold pct   slowdown over the baseline reported as a regression (default: 10)
+ * </pre>
+ * The exit status is 1 if a regression against the baseline was found.
+ * 
+ * @author yuyingf
+ *
+ */
+public final class BenchmarkRunner {
+    
+    // 99.9% two-sided quantile of the normal distribution, as in JMH's score error
+    private static final double Z_999 = 3.291;
+    // shortest stretch of operations timed with a single pair of clock reads
+    private static final long MIN_BATCH_NANOS = 1000000;
+    
+    private static final Pattern BENCHMARK = Pattern.compile("\"benchmark\" : \"([^\"]*)\"");
+    private static final Pattern SIZE = Pattern.compile("\"size\" : \"(\\d+)\"");
+    private static final Pattern SCORE = Pattern.compile("\"score\" : ([-0-9.Ee+]+)");
+    
+    /**
+     * Where the results of the last operation are consumed, so that the JIT cannot
+     * remove the operation.
+     */
+    static Object sink;
+    
+    private List<String> names;
+    private int[] sizes = GameBenchmarks.DEFAULT_SIZES;
+    private int warmupIterations = 3;
+    private int iterations = 5;
+    private long iterationMillis = 1000;
+    private int forks = 1;
+    private String jvmArgs = "-Xmx4g";
+    private long timeoutSeconds = 600;
+    private String output = "bench-results.json";
+    private String baseline;
+    private double threshold = 10;
+    
+    private BenchmarkRunner() {
+    }
+    
+    /**
+     * Runs the benchmarks.
+     * 
+     * @param args the options described above
+     * @throws Exception if the results cannot be written or a fork cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("-child")) {
+            runChild(args);
+            return;
+        }
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.parse(args);
+        List<Result> results = runner.runAll();
+        runner.write(results);
+        if (runner.baseline != null && runner.compare(results)) {
+            System.exit(1);
+        }
+    }
+    
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            if (value == null) {
+                throw new IllegalArgumentException("missing value of " + args[i]);
+            }
+            switch (args[i++]) {
+                case "-b":
+                    names = Arrays.asList(value.split(","));
+                    break;
+                case "-p":
+                    sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "-wi":
+                    warmupIterations = Integer.parseInt(value);
+                    break;
+                case "-i":
+                    iterations = Integer.parseInt(value);
+                    break;
+                case "-r":
+                    iterationMillis = Long.parseLong(value);
+                    break;
+                case "-f":
+                    forks = Integer.parseInt(value);
+                    break;
+                case "-jvmArgs":
+                    jvmArgs = value;
+                    break;
+                case "-timeout":
+                    timeoutSeconds = Long.parseLong(value);
+                    break;
+                case "-o":
+                    output = value;
+                    break;
+                case "-baseline":
+                    baseline = value;
+                    break;
+                case "-threshold":
+                    threshold = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + args[i - 1]);
+            }
+        }
+        if (iterations <= 0 || warmupIterations < 0 || iterationMillis <= 0 || forks < 0) {
+            throw new IllegalArgumentException("invalid iteration settings");
+        }
+    }
+    
+    private List<Result> runAll() throws IOException, InterruptedException {
+        List<Result> results = new ArrayList<Result>();
+        for (Benchmark benchmark : GameBenchmarks.all()) {
+            if (names != null && !names.contains(benchmark.getName())) {
+                continue;
+            }
+            for (int size : sizes) {
+                Result result = new Result(benchmark.getName(), size);
+                System.out.printf("# %s, size %d%n", result.benchmark, size);
+                if (forks == 0) {
+                    result.forks.add(measure(benchmark, size, warmupIterations, iterations,
+                                    iterationMillis));
+                } else {
+                    for (int fork = 0; fork < forks && result.error == null; fork++) {
+                        fork(result);
+                    }
+                }
+                System.out.println(result.error == null ? result.summary() : result.error);
+                results.add(result);
+            }
+        }
+        return results;
+    }
+    
+    // Measures one benchmark and size in a new JVM, which reports every iteration on a line
+    private void fork(Result result) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (!jvmArgs.trim().isEmpty()) {
+            command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+        }
+        command.addAll(Arrays.asList("-Djava.awt.headless=true",
+                        "-cp", System.getProperty("java.class.path"),
+                        BenchmarkRunner.class.getName(), "-child", result.name,
+                        String.valueOf(result.size), String.valueOf(warmupIterations),
+                        String.valueOf(iterations), String.valueOf(iterationMillis)));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<Double> scores = new ArrayList<Double>();
+        Thread reader = new Thread(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                            process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    System.out.println("  " + line);
+                    if (line.startsWith("Iteration")) {
+                        synchronized (scores) {
+                            scores.add(Double.parseDouble(line.replaceAll(".*: ([^ ]+) ns/op", "$1")));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // the fork was destroyed
+            }
+        });
+        reader.start();
+        if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+            result.error = "timed out after " + timeoutSeconds + " s";
+        } else if (process.exitValue() != 0) {
+            result.error = "fork failed with exit code " + process.exitValue();
+        }
+        reader.join();
+        if (result.error == null) {
+            synchronized (scores) {
+                result.forks.add(scores.stream().mapToDouble(Double::doubleValue).toArray());
+            }
+        }
+    }
+    
+    private static void runChild(String[] args) {
+        String name = args[1];
+        for (Benchmark benchmark : GameBenchmarks.all()) {
+            if (benchmark.getName().equals(name)) {
+                measure(benchmark, Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                                Integer.parseInt(args[4]), Long.parseLong(args[5]));
+                return;
+            }
+        }
+        throw new IllegalArgumentException("unknown benchmark: " + name);
+    }
+    
+    /**
+     * Measures a benchmark for a board size in this JVM.
+     * 
+     * @return the average time per operation of each measurement iteration, in nanoseconds
+     */
+    private static double[] measure(Benchmark benchmark, int size, int warmupIterations,
+                    int iterations, long iterationMillis) {
+        benchmark.setUp(size);
+        try {
+            long[] batch = {1};
+            for (int i = 1; i <= warmupIterations; i++) {
+                System.out.printf(Locale.ROOT, "Warmup %d: %.3f ns/op%n", i,
+                                iteration(benchmark, iterationMillis, batch));
+            }
+            double[] scores = new double[iterations];
+            for (int i = 0; i < iterations; i++) {
+                scores[i] = iteration(benchmark, iterationMillis, batch);
+                System.out.printf(Locale.ROOT, "Iteration %d: %.3f ns/op%n", i + 1, scores[i]);
+            }
+            return scores;
+        } finally {
+            benchmark.tearDown();
+        }
+    }
+    
+    // Runs the operation for at least the given time, reading the clock once per batch of
+    // operations and doubling the batch until it lasts MIN_BATCH_NANOS
+    private static double iteration(Benchmark benchmark, long millis, long[] batch) {
+        long ops = 0;
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        long now = start;
+        while (now < deadline) {
+            long batchStart = now;
+            for (long i = 0; i < batch[0]; i++) {
+                sink = benchmark.run();
+            }
+            ops += batch[0];
+            now = System.nanoTime();
+            if (now - batchStart < MIN_BATCH_NANOS) {
+                batch[0] *= 2;
+            }
+        }
+        return (double) (now - start) / ops;
+    }
+    
+    private void write(List<Result> results) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(output),
+                        StandardCharsets.UTF_8))) {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                out.print("    " + results.get(i).toJson());
+                out.println(i < results.size() - 1 ? "," : "");
+            }
+            out.println("]");
+        }
+        System.out.println("Results written to " + output);
+    }
+    
+    // Prints the change of every result against the baseline; true if any regressed
+    private boolean compare(List<Result> results) throws IOException {
+        Map<String, Double> base = new HashMap<String, Double>();
+        for (String line : Files.readAllLines(Paths.get(baseline), StandardCharsets.UTF_8)) {
+            Matcher benchmark = BENCHMARK.matcher(line);
+            Matcher size = SIZE.matcher(line);
+            Matcher score = SCORE.matcher(line);
+            if (benchmark.find() && size.find() && score.find()) {
+                base.put(benchmark.group(1) + "/" + size.group(1),
+                                Double.parseDouble(score.group(1)));
+            }
+        }
+        boolean regressed = false;
+        System.out.println("Comparison with " + baseline + ":");
+        for (Result result : results) {
+            Double before = base.get(result.benchmark + "/" + result.size);
+            if (before == null || result.error != null) {
+                continue;
+            }
+            double change = (result.score() - before) / before * 100;
+            boolean regression = change > threshold;
+            regressed |= regression;
+            System.out.printf(Locale.ROOT, "%-40s %14.3f -> %14.3f ns/op %+8.1f%%%s%n",
+                            result.benchmark + " size " + result.size, before, result.score(),
+                            change, regression ? "  REGRESSION" : "");
+        }
+        return regressed;
+    }
+    
+    /**
+     * The measurements of one benchmark for one board size, over all forks.
+     */
+    private final class Result {
+        
+        private final String name;
+        private final String benchmark;
+        private final int size;
+        private final List<double[]> forks = new ArrayList<double[]>();
+        private String error;
+        
+        private Result(String name, int size) {
+            this.name = name;
+            this.benchmark = GameBenchmarks.class.getName() + "." + name;
+            this.size = size;
+        }
+        
+        private double[] all() {
+            return forks.stream().flatMapToDouble(Arrays::stream).toArray();
+        }
+        
+        private double score() {
+            return Arrays.stream(all()).average().orElse(Double.NaN);
+        }
+        
+        // half-width of the 99.9% confidence interval of the score
+        private double scoreError() {
+            double[] all = all();
+            if (all.length < 2) {
+                return Double.NaN;
+            }
+            double mean = score();
+            double squares = 0;
+            for (double score : all) {
+                squares += (score - mean) * (score - mean);
+            }
+            return Z_999 * Math.sqrt(squares / (all.length - 1) / all.length);
+        }
+        
+        private String summary() {
+            return String.format(Locale.ROOT, "Result: %.3f +- %.3f ns/op", score(),
+                            scoreError());
+        }
+        
+        private String toJson() {
+            StringBuilder json = new StringBuilder();
+            json.append("{ \"benchmark\" : \"").append(benchmark).append("\", ")
+                .append("\"mode\" : \"avgt\", \"threads\" : 1, ")
+                .append("\"forks\" : ").append(BenchmarkRunner.this.forks).append(", ")
+                .append("\"warmupIterations\" : ").append(warmupIterations).append(", ")
+                .append("\"warmupTime\" : \"").append(iterationMillis).append(" ms\", ")
+                .append("\"measurementIterations\" : ").append(iterations).append(", ")
+                .append("\"measurementTime\" : \"").append(iterationMillis).append(" ms\", ")
+                .append("\"params\" : { \"size\" : \"").append(size).append("\" }, ");
+            if (error != null) {
+                return json.append("\"error\" : \"").append(error).append("\" }").toString();
+            }
+            json.append("\"primaryMetric\" : { \"score\" : ").append(number(score()))
+                .append(", \"scoreError\" : ").append(number(scoreError()))
+                .append(", \"scoreUnit\" : \"ns/op\", \"rawData\" : [");
+            for (int i = 0; i < forks.size(); i++) {
+                json.append(i == 0 ? "[" : ", [");
+                double[] scores = forks.get(i);
+                for (int j = 0; j < scores.length; j++) {
+                    json.append(j == 0 ? "" : ", ").append(number(scores[j]));
+                }
+                json.append("]");
+            }
+            return json.append("] } }").toString();
+        }
+        
+        private String number(double value) {
+            return Double.isNaN(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.3f", value);
+        }
+        
+    }
+
+}
@@ -0,0 +1,336 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The benchmarks of the core game operations. Every board is generated from a fixed seed, so
+ * that runs of the suite measure the same boards.
+ * 
+ * @author yuyingf
+ *
+ */
+public final class GameBenchmarks {
+    
+    public static final long SEED = 42;
+    public static final int[] DEFAULT_SIZES = {15, 64, 256, 1024, 4096};
+    
+    private static final int IMAGE_SIZE = 1024;
+    
+    private GameBenchmarks() {
+    }
+    
+    /**
+     * @return the fruits of the default game
+     */
+    public static Map<String, Color> fruits() {
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Banana", Color.YELLOW);
+        fruits.put("Peach", Color.PINK);
+        return fruits;
+    }
+    
+    /**
+     * Generates the initial setup of a square orchard with the default pond percent.
+     * The center of the orchard is always a tree so that a player can start there.
+     * 
+     * @param size the width and height of the orchard
+     * @return the generated setup
+     */
+    public static OrchardObject[][] setup(int size) {
+        Random r = new Random(SEED);
+        String[] names = {"Apple", "Banana", "Peach"};
+        Color[] colors = {Color.RED, Color.YELLOW, Color.PINK};
+        OrchardObject[][] orchard = new OrchardObject[size][size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (r.nextInt(100) < FruitCollectGame.DEFAULT_POND_PERCENT) {
+                    orchard[y][x] = new Pond();
+                } else {
+                    int type = r.nextInt(names.length);
+                    orchard[y][x] = new FruitTree(names[type], colors[type]);
+                }
+            }
+        }
+        orchard[size / 2][size / 2] = new FruitTree(names[0], colors[0]);
+        return orchard;
+    }
+    
+    /**
+     * @return all benchmarks of the suite
+     */
+    public static List<Benchmark> all() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        
+        // steps back and forth on an orchard without ponds, where no fruit ever matures
+        benchmarks.add(new Benchmark("move") {
+            private FruitCollectGame game;
+            private int step;
+            
+            @Override
+            public void setUp(int size) {
+                game = new FruitCollectGame(size, size, fruits(), 0, size / 2, size / 2, SEED);
+            }
+            
+            @Override
+            public Object run() {
+                step ^= 1;
+                game.move(step == 1 ? Direction.RIGHT : Direction.LEFT);
+                return game;
+            }
+        });
+        
+        // 16 moves per operation, queued and then played as one batch
+        benchmarks.add(new Benchmark("moveBatch") {
+            private FruitCollectGame game;
+            private MoveQueue queue;
+            private Direction[] batch;
+            
+            @Override
+            public void setUp(int size) {
+                game = new FruitCollectGame(size, size, fruits(), 0, size / 2, size / 2, SEED);
+                queue = new MoveQueue();
+                batch = new Direction[16];
+            }
+            
+            @Override
+            public Object run() {
+                for (int i = 0; i < batch.length; i++) {
+                    queue.offer(i % 2 == 0 ? Direction.RIGHT : Direction.LEFT, 0);
+                }
+                int count = queue.drain(batch, null);
+                return game.movePath(0, batch, 0, count);
+            }
+        });
+        
+        benchmarks.add(new Benchmark("nextGen") {
+            private FruitCollectGame game;
+            
+            @Override
+            public void setUp(int size) {
+                game = new FruitCollectGame(size, size, fruits(),
+                                FruitCollectGame.DEFAULT_POND_PERCENT, size / 2, size / 2, SEED);
+            }
+            
+            @Override
+            public Object run() {
+                game.nextGen();
+                return game;
+            }
+        });
+        
+        // a generation of a game recorded in a replay log, which records its checksum
+        benchmarks.add(new Benchmark("nextGenRecorded") {
+            private FruitCollectGame game;
+            
+            @Override
+            public void setUp(int size) {
+                BoardSpec spec = new BoardSpec(size, size, fruits(),
+                                FruitCollectGame.DEFAULT_POND_PERCENT, size / 2, size / 2);
+                game = spec.newGame(SEED);
+                game.setReplayLog(new ReplayLog(spec, SEED));
+            }
+            
+            @Override
+            public Object run() {
+                game.nextGen();
+                return game;
+            }
+        });
+        
+        benchmarks.add(new Benchmark("newGameFromSetup") {
+            private OrchardObject[][] setup;
+            private int center;
+            
+            @Override
+            public void setUp(int size) {
+                setup = setup(size);
+                center = size / 2;
+            }
+            
+            @Override
+            public Object run() {
+                return new FruitCollectGame(setup, center, center);
+            }
+        });
+        
+        benchmarks.add(new Benchmark("newRandomGame") {
+            private Map<String, Color> fruits;
+            private int size;
+            
+            @Override
+            public void setUp(int size) {
+                fruits = fruits();
+                this.size = size;
+            }
+            
+            @Override
+            public Object run() {
+                return new FruitCollectGame(size, size, fruits,
+                                FruitCollectGame.DEFAULT_POND_PERCENT, size / 2, size / 2);
+            }
+        });
+        
+        benchmarks.add(new Benchmark("newBoard") {
+            private OrchardObject[][] setup;
+            
+            @Override
+            public void setUp(int size) {
+                setup = setup(size);
+            }
+            
+            @Override
+            public Object run() {
+                return new OrchardBoard(setup);
+            }
+        });
+        
+        benchmarks.add(new Benchmark("snapshotBoard") {
+            private OrchardBoard board;
+            
+            @Override
+            public void setUp(int size) {
+                board = new OrchardBoard(setup(size));
+            }
+            
+            @Override
+            public Object run() {
+                return board.snapshot();
+            }
+        });
+        
+        // a whole recorded game of up to 1000 steps, with a generation every 10 steps
+        benchmarks.add(new Benchmark("replay") {
+            private Replayer replayer;
+            
+            @Override
+            public void setUp(int size) {
+                BoardSpec spec = new BoardSpec(size, size, fruits(), 0, size / 2, size / 2);
+                ReplayLog log = new ReplayLog(spec, SEED);
+                FruitCollectGame game = log.newGame();
+                game.setReplayLog(log);
+                Random r = new Random(SEED);
+                for (int i = 0; i < 1000 && !game.hasEnded(); i++) {
+                    if (i % 10 == 0) {
+                        game.nextGen();
+                    }
+                    game.move(Direction.values()[r.nextInt(4)]);
+                }
+                replayer = new Replayer(log);
+            }
+            
+            @Override
+            public Object run() {
+                return replayer.replay();
+            }
+        });
+        
+        benchmarks.add(new Benchmark("boardToString") {
+            private OrchardBoard board;
+            
+            @Override
+            public void setUp(int size) {
+                board = new OrchardBoard(setup(size));
+            }
+            
+            @Override
+            public Object run() {
+                return board.toString();
+            }
+        });
+        
+        benchmarks.add(new Benchmark("goalAccomplished") {
+            private FruitCollectGame game;
+            
+            @Override
+            public void setUp(int size) {
+                game = new FruitCollectGame(setup(size), size / 2, size / 2);
+            }
+            
+            @Override
+            public Object run() {
+                return game.goalAccomplished();
+            }
+        });
+        
+        // one generation rescheduled and the wheel turned once, among 64 games per board
+        // row waiting in the wheel
+        benchmarks.add(new Benchmark("timingWheel") {
+            private TimingWheel wheel;
+            private TimingWheel.Timeout[] timeouts;
+            private Random r;
+            private int next;
+            
+            @Override
+            public void setUp(int size) {
+                wheel = new TimingWheel();
+                r = new Random(SEED);
+                timeouts = new TimingWheel.Timeout[size * 64];
+                for (int i = 0; i < timeouts.length; i++) {
+                    timeouts[i] = wheel.schedule(1 + r.nextInt(5000), () -> { });
+                }
+            }
+            
+            @Override
+            public Object run() {
+                timeouts[next].cancel();
+                timeouts[next] = wheel.schedule(1 + r.nextInt(5000), () -> { });
+                next = (next + 1) % timeouts.length;
+                return wheel.advance(timeout -> { });
+            }
+        });
+        
+        benchmarks.add(paint("paintComponent", FruitCollectGame.DEFAULT_POND_PERCENT, false));
+        benchmarks.add(paint("paintComponentPondHeavy", FruitCollectGame.MAX_POND_PERCENT, false));
+        benchmarks.add(paint("paintOverview", FruitCollectGame.DEFAULT_POND_PERCENT, true));
+        
+        return benchmarks;
+    }
+    
+    // Paints an IMAGE_SIZE x IMAGE_SIZE view of an orchard with the given pond percent, which
+    // shows all of it as long as a grid of Camera.MIN_CELL_SIZE pixels is enough, or the
+    // overview of the whole orchard
+    private static Benchmark paint(String name, int pondPercent, boolean overview) {
+        return new Benchmark(name) {
+            private OrchardPanel panel;
+            private BufferedImage image;
+            private Graphics2D g;
+            
+            @Override
+            public void setUp(int size) {
+                int grid = Math.max(Camera.MIN_CELL_SIZE, IMAGE_SIZE / size);
+                FruitCollectGame game = new FruitCollectGame(size, size, fruits(), pondPercent,
+                                size / 2, size / 2, SEED);
+                game.nextGen();
+                panel = new OrchardPanel(game, grid, grid);
+                if (overview) {
+                    // zooming out past the smallest grids shows the overview
+                    while (panel.getGridWidth() > Camera.MIN_CELL_SIZE) {
+                        panel.zoomOut();
+                    }
+                    panel.zoomOut();
+                }
+                image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB);
+                panel.setSize(image.getWidth(), image.getHeight());
+                g = image.createGraphics();
+            }
+            
+            @Override
+            public Object run() {
+                panel.paintComponent(g);
+                return image;
+            }
+            
+            @Override
+            public void tearDown() {
+                g.dispose();
+            }
+        };
+    }
+
+}
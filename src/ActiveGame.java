@@ -0,0 +1,191 @@
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.EventQueue;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.border.EmptyBorder;
+
+/**
+ * GUI class that runs the FruitCollect! game in active-render mode. The game runs on a
+ * {@code GameLoop} with its own thread, which also renders the orchard on an
+ * {@code ActiveOrchardCanvas}; the Swing event thread only queues the moves of key presses
+ * for the loop and shows the labels the loop hands back.<p>
+ * Options: {@code --fps n} frames per second (default 60), {@code --tps n} ticks per second
+ * (default 60) and {@code --gen-ms n} the length of a generation in milliseconds (default
+ * {@value FruitCollectGame#DEFAULT_SECONDS_PER_GEN} seconds).
+ * 
+ * @author yuyingf
+ *
+ */
+public class ActiveGame {
+    
+    private static final int GRID_WIDTH_DEFAULT = 30;
+    private static final int GRID_HEIGHT_DEFAULT = 30;
+    
+    private JFrame frame;
+    private JLabel lblCollected = new JLabel();
+    private JLabel lblGenNum = new JLabel();
+    private JLabel lblTimer = new JLabel();
+    private ActiveOrchardCanvas canvas;
+    
+    private FruitCollectGame game;
+    private GameLoop loop;
+    private Map<String, Color> fruits;
+    // the texts last handed to the labels, only read and written on the loop's thread
+    private String collectedText = "";
+    private String genText = "";
+    private String timerText = "";
+    // whether the end of the game was handed to the event thread, only used on the loop's
+    // thread
+    private boolean endShown;
+    
+    /**
+     * Launch the game GUI in active-render mode.
+     * 
+     * @param args the options described above
+     */
+    public static void main(String[] args) {
+        int fps = 60;
+        int tps = 60;
+        int genMillis = FruitCollectGame.DEFAULT_SECONDS_PER_GEN * 1000;
+        for (int i = 0; i + 1 < args.length; i++) {
+            if (args[i].equals("--fps")) {
+                fps = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--tps")) {
+                tps = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--gen-ms")) {
+                genMillis = Integer.parseInt(args[++i]);
+            }
+        }
+        int ticksPerGen = (int) Math.max(1, Math.round(genMillis * tps / 1000.0));
+        int targetFps = fps;
+        int ticksPerSecond = tps;
+        EventQueue.invokeLater(new Runnable() {
+            public void run() {
+                try {
+                    ActiveGame window = new ActiveGame(targetFps, ticksPerSecond, ticksPerGen);
+                    window.frame.setVisible(true);
+                    window.canvas.requestFocusInWindow();
+                    window.canvas.start();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+    
+    /**
+     * Create the game GUI.
+     * 
+     * @param targetFps the number of frames rendered per second
+     * @param ticksPerSecond the number of ticks run per second
+     * @param ticksPerGen the number of ticks in a generation
+     */
+    public ActiveGame(int targetFps, int ticksPerSecond, int ticksPerGen) {
+        fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Banana", Color.YELLOW);
+        fruits.put("Peach", Color.PINK);
+        game = new FruitCollectGame(fruits);
+        game.nextGen();
+        loop = new GameLoop(game, ticksPerSecond, ticksPerGen, FruitCollectGame.DEFAULT_MAX_GEN,
+                        targetFps);
+        
+        frame = new JFrame("FruitCollect!");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        JPanel contentPane = new JPanel();
+        contentPane.setBorder(new EmptyBorder(5, 5, 5, 5));
+        contentPane.setLayout(new BorderLayout(0, 0));
+        frame.setContentPane(contentPane);
+        
+        JPanel topPanel = new JPanel();
+        topPanel.add(lblTimer);
+        contentPane.add(topPanel, BorderLayout.NORTH);
+        
+        canvas = new ActiveOrchardCanvas(loop, GRID_WIDTH_DEFAULT, GRID_HEIGHT_DEFAULT);
+        canvas.setBackground(contentPane.getBackground());
+        canvas.setFocusable(true);
+        // keyboard control with arrow keys; + and - zoom in and out; F3 shows the timings
+        canvas.addKeyListener(new KeyAdapter() {
+            public void keyPressed(KeyEvent e) {
+                int key = e.getKeyCode();
+                long pressed = PerfStats.pressedAt(e.getWhen(), System.nanoTime());
+                if (key == KeyEvent.VK_LEFT) {
+                    loop.getMoves().offer(Direction.LEFT, pressed);
+                } else if (key == KeyEvent.VK_RIGHT) {
+                    loop.getMoves().offer(Direction.RIGHT, pressed);
+                } else if (key == KeyEvent.VK_DOWN) {
+                    loop.getMoves().offer(Direction.DOWN, pressed);
+                } else if (key == KeyEvent.VK_UP) {
+                    loop.getMoves().offer(Direction.UP, pressed);
+                } else if (key == KeyEvent.VK_F3) {
+                    canvas.toggleOverlay();
+                } else if (key == KeyEvent.VK_EQUALS || key == KeyEvent.VK_ADD) {
+                    canvas.zoomIn();
+                } else if (key == KeyEvent.VK_MINUS || key == KeyEvent.VK_SUBTRACT) {
+                    canvas.zoomOut();
+                }
+            }
+        });
+        contentPane.add(canvas, BorderLayout.CENTER);
+        
+        JPanel bottomPanel = new JPanel();
+        bottomPanel.add(lblCollected);
+        bottomPanel.add(lblGenNum);
+        contentPane.add(bottomPanel, BorderLayout.SOUTH);
+        
+        loop.setListener(this::ticked);
+        ticked(loop);
+        frame.pack();
+    }
+    
+    // Runs on the loop's thread after every tick; hands changed texts to the event thread
+    private void ticked(GameLoop loop) {
+        StringBuilder status = new StringBuilder();
+        for (String fruit : fruits.keySet()) {
+            status.append(fruit).append(": ").append(game.numCollected(fruit)).append("/")
+                            .append(FruitCollectGame.MIN_GOAL_PER_TYPE).append("  ");
+        }
+        String collected = status.toString();
+        String gen = "Generation: " + game.getGen() + "/" + FruitCollectGame.DEFAULT_MAX_GEN;
+        String timer = String.format("%.1f seconds remaining until next generation",
+                        loop.getSecondsToNextGen());
+        boolean ended = game.hasEnded();
+        boolean won = ended && game.goalAccomplished();
+        if (ended) {
+            loop.stop();
+            if (endShown) {
+                // the "Game Over" dialog is posted once
+                return;
+            }
+            endShown = true;
+        }
+        if (ended || !collected.equals(collectedText) || !gen.equals(genText)
+                        || !timer.equals(timerText)) {
+            collectedText = collected;
+            genText = gen;
+            timerText = timer;
+            EventQueue.invokeLater(() -> {
+                lblCollected.setText(collected);
+                lblGenNum.setText(gen);
+                lblTimer.setText(timer);
+                if (ended) {
+                    int optionStatus = JOptionPane.showConfirmDialog(frame,
+                                    won ? "YOU WON :D" : "YOU LOST :(", "Game Over",
+                                    JOptionPane.PLAIN_MESSAGE);
+                    if (optionStatus == JOptionPane.OK_OPTION) {
+                        System.exit(0);
+                    }
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+
+/**
+ * A {@code Canvas} that renders the orchard of a {@code GameLoop} actively: the loop's
+ * thread draws every frame into the back buffer of a {@code BufferStrategy} and flips it to
+ * the screen, instead of asking Swing to repaint and waiting for the event thread.
+ * The canvas ignores repaint requests from the system.
+ * 
+ * @author yuyingf
+ *
+ */
+public class ActiveOrchardCanvas extends Canvas {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final GameLoop loop;
+    private final OrchardRenderer renderer;
+    private Thread thread;
+    
+    /**
+     * Constructs an {@code ActiveOrchardCanvas} that renders the frames of a loop.
+     * 
+     * @param loop the loop to render
+     * @param gridWidth the width of a grid
+     * @param gridHeight the height of a grid
+     */
+    public ActiveOrchardCanvas(GameLoop loop, int gridWidth, int gridHeight) {
+        this.loop = loop;
+        FruitCollectGame game = loop.getGame();
+        this.renderer = new OrchardRenderer(game, gridWidth, gridHeight);
+        Camera camera = renderer.getCamera();
+        setPreferredSize(new Dimension(
+                        Math.min(game.getWidth(), OrchardPanel.MAX_PREFERRED_GRIDS)
+                                        * camera.getCellWidth(),
+                        Math.min(game.getHeight(), OrchardPanel.MAX_PREFERRED_GRIDS)
+                                        * camera.getCellHeight()));
+        setIgnoreRepaint(true);
+        loop.setRenderer(this::render);
+        loop.setPerfStats(renderer.getPerfStats());
+    }
+    
+    /**
+     * Creates the buffers and starts the loop on its own thread. The canvas must be
+     * displayable, that is in a frame that has been packed or shown.
+     */
+    public void start() {
+        createBufferStrategy(2);
+        thread = new Thread(loop, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Stops the loop and waits for its thread to finish.
+     * 
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void stop() throws InterruptedException {
+        loop.stop();
+        if (thread != null) {
+            thread.join();
+        }
+    }
+    
+    /**
+     * @return the timings of the frames and ticks of the loop; only read or record them
+     * on the loop's thread, for example in a task posted to it
+     */
+    public PerfStats getPerfStats() {
+        return renderer.getPerfStats();
+    }
+    
+    /**
+     * Shows the overlay with the timings if it is hidden and hides it otherwise, from the
+     * next frame on.
+     */
+    public void toggleOverlay() {
+        loop.post(() -> renderer.setOverlayVisible(!renderer.isOverlayVisible()));
+    }
+    
+    /**
+     * Makes the grids larger from the next frame on.
+     */
+    public void zoomIn() {
+        loop.post(renderer::zoomIn);
+    }
+    
+    /**
+     * Makes the grids smaller from the next frame on, or shows the overview once they are
+     * as small as they get.
+     */
+    public void zoomOut() {
+        loop.post(renderer::zoomOut);
+    }
+    
+    // Draws a frame on the loop's thread; buffers lost to the system are drawn again
+    private void render(double alpha) {
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null) {
+            return;
+        }
+        Color background = getBackground() != null ? getBackground() : Color.WHITE;
+        do {
+            do {
+                Graphics g = strategy.getDrawGraphics();
+                try {
+                    renderer.paint(g, getWidth(), getHeight(), background,
+                                    getGraphicsConfiguration(), loop.getPlayerX(alpha),
+                                    loop.getPlayerY(alpha));
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+}
@@ -0,0 +1,110 @@
+import java.awt.Color;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The settings a random {@code FruitCollectGame} is built from: the orchard dimensions,
+ * the fruits grown, the percent of ponds and the player's starting position. Together with
+ * a seed, a {@code BoardSpec} fully determines the orchard of a game.
+ * 
+ * @author yuyingf
+ *
+ */
+public class BoardSpec {
+    
+    private final int width;
+    private final int height;
+    private final Map<String, Color> fruits;
+    private final int pondPercent;
+    private final int playerX;
+    private final int playerY;
+    
+    /**
+     * Constructs a {@code BoardSpec}. The arguments are checked when a game is built.
+     * 
+     * @param width the width of the orchard
+     * @param height the height of the orchard
+     * @param fruits a map of possible type of fruits with their colors
+     * @param pondPercent expected percent of ponds in the orchard (between 0 and 70, inclusive)
+     * @param playerX x-coordinate of the player's starting position
+     * @param playerY y-coordinate of the player's starting position
+     */
+    public BoardSpec(int width, int height, Map<String, Color> fruits, int pondPercent,
+                    int playerX, int playerY) {
+        this.width = width;
+        this.height = height;
+        this.fruits = fruits == null ? null
+                        : Collections.unmodifiableMap(new HashMap<String, Color>(fruits));
+        this.pondPercent = pondPercent;
+        this.playerX = playerX;
+        this.playerY = playerY;
+    }
+    
+    /**
+     * Constructs a {@code BoardSpec} with the default dimensions, pond percent and
+     * starting position of {@code FruitCollectGame}.
+     * 
+     * @param fruits a map of possible type of fruits with their colors
+     */
+    public BoardSpec(Map<String, Color> fruits) {
+        this(FruitCollectGame.DEFAULT_ORCHARD_WIDTH, FruitCollectGame.DEFAULT_ORCHARD_HEIGHT,
+                        fruits, FruitCollectGame.DEFAULT_POND_PERCENT,
+                        FruitCollectGame.DEFAULT_INITIAL_PLAYER_X,
+                        FruitCollectGame.DEFAULT_INITIAL_PLAYER_Y);
+    }
+    
+    /**
+     * Builds a new game from this spec.
+     * 
+     * @param seed the seed the orchard is generated from
+     * @return a new game at generation 0
+     * @throws IllegalArgumentException if the spec is invalid
+     */
+    public FruitCollectGame newGame(long seed) {
+        return new FruitCollectGame(width, height, fruits, pondPercent, playerX, playerY, seed);
+    }
+    
+    /**
+     * @return the width of the orchard
+     */
+    public int getWidth() {
+        return width;
+    }
+    
+    /**
+     * @return the height of the orchard
+     */
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * @return an unmodifiable map of possible type of fruits with their colors
+     */
+    public Map<String, Color> getFruits() {
+        return fruits;
+    }
+    
+    /**
+     * @return expected percent of ponds in the orchard
+     */
+    public int getPondPercent() {
+        return pondPercent;
+    }
+    
+    /**
+     * @return x-coordinate of the player's starting position
+     */
+    public int getPlayerX() {
+        return playerX;
+    }
+    
+    /**
+     * @return y-coordinate of the player's starting position
+     */
+    public int getPlayerY() {
+        return playerY;
+    }
+
+}
@@ -0,0 +1,206 @@
+import java.awt.Rectangle;
+
+/**
+ * The part of an orchard board that is shown on screen. A camera has a cell size, which is
+ * its zoom, and a viewport in pixels, and it scrolls to keep the player in the middle half of
+ * the viewport. A board smaller than the viewport is centered instead.<p>
+ * Positions on the board are converted to screen pixels with {@link #screenX(int)} and
+ * {@link #screenY(int)}, and {@link #visibleCells(Rectangle)} tells which cells a clip
+ * rectangle covers, so a renderer only visits cells it can actually see.
+ * 
+ * @author yuyingf
+ *
+ */
+public class Camera {
+    
+    public static final int MIN_CELL_SIZE = 2;
+    public static final int MAX_CELL_SIZE = 128;
+    
+    private final int boardWidth;
+    private final int boardHeight;
+    private int cellWidth;
+    private int cellHeight;
+    private int viewWidth;
+    private int viewHeight;
+    // board pixel shown at the top left corner of the viewport; negative to center the board
+    private long originX;
+    private long originY;
+    
+    /**
+     * Constructs a {@code Camera} looking at the top left corner of a board.
+     * 
+     * @param boardWidth the width of the board in cells
+     * @param boardHeight the height of the board in cells
+     * @param cellWidth the width of a cell in pixels
+     * @param cellHeight the height of a cell in pixels
+     * @throws IllegalArgumentException if any dimension is not positive
+     */
+    public Camera(int boardWidth, int boardHeight, int cellWidth, int cellHeight) {
+        if (boardWidth <= 0 || boardHeight <= 0) {
+            throw new IllegalArgumentException("invalid board dimensions");
+        }
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        setCellSize(cellWidth, cellHeight);
+    }
+    
+    /**
+     * @return the width of a cell in pixels
+     */
+    public int getCellWidth() {
+        return cellWidth;
+    }
+    
+    /**
+     * @return the height of a cell in pixels
+     */
+    public int getCellHeight() {
+        return cellHeight;
+    }
+    
+    /**
+     * Sets the zoom of the camera, clamped to between {@value #MIN_CELL_SIZE} and
+     * {@value #MAX_CELL_SIZE} pixels. Call {@link #follow(int, int)} afterwards to
+     * scroll back to the player.
+     * 
+     * @param cellWidth the new width of a cell in pixels
+     * @param cellHeight the new height of a cell in pixels
+     * @throws IllegalArgumentException if either size is not positive
+     */
+    public void setCellSize(int cellWidth, int cellHeight) {
+        if (cellWidth <= 0 || cellHeight <= 0) {
+            throw new IllegalArgumentException("invalid cell size");
+        }
+        this.cellWidth = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, cellWidth));
+        this.cellHeight = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, cellHeight));
+    }
+    
+    /**
+     * Makes the cells a quarter larger, and at least a pixel larger.
+     */
+    public void zoomIn() {
+        setCellSize(Math.max(cellWidth + 1, cellWidth * 5 / 4),
+                        Math.max(cellHeight + 1, cellHeight * 5 / 4));
+    }
+    
+    /**
+     * Makes the cells a fifth smaller, and at least a pixel smaller.
+     */
+    public void zoomOut() {
+        setCellSize(Math.max(1, Math.min(cellWidth - 1, cellWidth * 4 / 5)),
+                        Math.max(1, Math.min(cellHeight - 1, cellHeight * 4 / 5)));
+    }
+    
+    /**
+     * @return the board x-coordinate in pixels shown at the left edge of the viewport
+     */
+    public long getOriginX() {
+        return originX;
+    }
+    
+    /**
+     * @return the board y-coordinate in pixels shown at the top edge of the viewport
+     */
+    public long getOriginY() {
+        return originY;
+    }
+    
+    /**
+     * @return the width of the viewport in pixels
+     */
+    public int getViewWidth() {
+        return viewWidth;
+    }
+    
+    /**
+     * @return the height of the viewport in pixels
+     */
+    public int getViewHeight() {
+        return viewHeight;
+    }
+    
+    /**
+     * Sets the size of the area the board is shown in.
+     * 
+     * @param viewWidth the width of the viewport in pixels
+     * @param viewHeight the height of the viewport in pixels
+     */
+    public void setViewport(int viewWidth, int viewHeight) {
+        this.viewWidth = Math.max(0, viewWidth);
+        this.viewHeight = Math.max(0, viewHeight);
+    }
+    
+    /**
+     * Scrolls so that the given cell is in the middle half of the viewport, recentering on
+     * it if it is not, without scrolling past the edges of the board.
+     * 
+     * @param x the x-coordinate of the cell to follow
+     * @param y the y-coordinate of the cell to follow
+     * @return {@code true} if the camera scrolled and {@code false} otherwise
+     */
+    public boolean follow(int x, int y) {
+        long newX = follow(originX, (long) x * cellWidth, cellWidth, viewWidth,
+                        (long) boardWidth * cellWidth);
+        long newY = follow(originY, (long) y * cellHeight, cellHeight, viewHeight,
+                        (long) boardHeight * cellHeight);
+        boolean scrolled = newX != originX || newY != originY;
+        originX = newX;
+        originY = newY;
+        return scrolled;
+    }
+    
+    // Scrolls along one axis; all values are in board pixels
+    private static long follow(long origin, long cell, int cellSize, int view, long board) {
+        if (board <= view) {
+            return -(view - board) / 2;
+        }
+        if (cell < origin + view / 4 || cell + cellSize > origin + view - view / 4) {
+            origin = cell + cellSize / 2 - view / 2;
+        }
+        return Math.max(0, Math.min(board - view, origin));
+    }
+    
+    /**
+     * @param x the x-coordinate of a cell
+     * @return the x-coordinate in screen pixels of the left edge of the cell
+     */
+    public int screenX(int x) {
+        return (int) ((long) x * cellWidth - originX);
+    }
+    
+    /**
+     * @param y the y-coordinate of a cell
+     * @return the y-coordinate in screen pixels of the top edge of the cell
+     */
+    public int screenY(int y) {
+        return (int) ((long) y * cellHeight - originY);
+    }
+    
+    /**
+     * Returns the cells of the board that are at least partly inside both the viewport
+     * and a clip rectangle.
+     * 
+     * @param clip the clip rectangle in screen pixels; null for the whole viewport
+     * @return the range of cells covered, which is empty if no cell is
+     */
+    public Rectangle visibleCells(Rectangle clip) {
+        Rectangle area = new Rectangle(0, 0, viewWidth, viewHeight);
+        if (clip != null) {
+            area = area.intersection(clip);
+        }
+        if (area.isEmpty()) {
+            return new Rectangle();
+        }
+        long fromX = Math.max(0, Math.floorDiv(originX + area.x, cellWidth));
+        long fromY = Math.max(0, Math.floorDiv(originY + area.y, cellHeight));
+        long toX = Math.min(boardWidth, Math.floorDiv(originX + area.x + area.width - 1,
+                        cellWidth) + 1);
+        long toY = Math.min(boardHeight, Math.floorDiv(originY + area.y + area.height - 1,
+                        cellHeight) + 1);
+        if (fromX >= toX || fromY >= toY) {
+            return new Rectangle();
+        }
+        return new Rectangle((int) fromX, (int) fromY, (int) (toX - fromX), (int) (toY - fromY));
+    }
+
+}
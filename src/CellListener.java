@@ -0,0 +1,34 @@
+/**
+ * Listens to the cells of a {@code FruitCollectGame} changing state: trees maturing, fruit
+ * turning bad, and fruit being picked; and, if it wants to, to the players moving from cell
+ * to cell. Listeners are called on the thread that changes the game, right after each change.
+ * 
+ * @author yuyingf
+ *
+ */
+public interface CellListener {
+    
+    /**
+     * Called after a cell changed state.
+     * 
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @param oldCell the state of the cell before the change, as a {@code PackedCell}
+     * @param newCell the state of the cell after the change, as a {@code PackedCell}
+     */
+    public void cellChanged(int x, int y, int oldCell, int newCell);
+    
+    /**
+     * Called after a player moved from one cell to another, or joined the game, in which
+     * case both cells are the one it joined at. The cells themselves do not change state.
+     * Does nothing unless overridden.
+     * 
+     * @param fromX the x-coordinate of the cell the player left
+     * @param fromY the y-coordinate of the cell the player left
+     * @param toX the x-coordinate of the cell the player entered
+     * @param toY the y-coordinate of the cell the player entered
+     */
+    public default void playerMoved(int fromX, int fromY, int toX, int toY) {
+    }
+
+}
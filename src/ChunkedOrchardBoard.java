@@ -0,0 +1,347 @@
+import java.awt.Color;
+import java.awt.Point;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A procedurally generated {@code PackedOrchardBoard} that can be far larger than the heap.
+ * The board is split into square chunks of {@value #CHUNK_SIZE} x {@value #CHUNK_SIZE} cells.
+ * A chunk is generated the first time it is touched, from the board's seed and the chunk's
+ * coordinates only, so the same seed always grows the same orchard.<p>
+ * Only the chunks that fit in the memory budget are kept, in least-recently-used order.
+ * An evicted chunk that has been changed since it was generated (a tree picked, matured
+ * or spoiled) is written to a spill file and read back from there when it is touched again;
+ * an unchanged chunk is simply dropped and regenerated later.<p>
+ * Even reading a cell may reorder the chunks or evict one, so every access to the board is
+ * serialized on the board. It is safe to share between threads, such as the players of a
+ * game and its renderer, but they take turns on it rather than running in parallel.<p>
+ * A snapshot is another chunked board grown from the same seed, holding copies of the chunks
+ * changed so far only; every other chunk is generated again when it is touched. A snapshot
+ * spills to a temporary file of its own, which {@link #close()} deletes.
+ *
+ * @author yuyingf
+ *
+ */
+public class ChunkedOrchardBoard extends PackedOrchardBoard implements AutoCloseable {
+
+    public static final int CHUNK_SIZE = 64;
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+    private static final int CHUNK_BYTES = CHUNK_CELLS * 2;
+
+    private final OrchardGenerator generator;
+    private final int[] treeCells;
+    private final long memoryBudget;
+    private final LinkedHashMap<Long, Chunk> chunks;
+    // the number of good fruits in each chunk holding any
+    private final Map<Long, Integer> goodFruitCounts;
+    private final Map<Long, Long> spillOffsets;
+    private final boolean deleteSpillOnClose;
+    // created on the first spill when null
+    private Path spillPath;
+    private FileChannel spill;
+    private long lastKey;
+    private Chunk lastChunk;
+
+    /**
+     * Constructs a {@code ChunkedOrchardBoard} of the given dimensions. Fruit trees will only
+     * be of types specified in the map, and are assigned randomly with equal chance.
+     *
+     * @param width the width of the orchard, up to {@code Integer.MAX_VALUE}
+     * @param height the height of the orchard, up to {@code Integer.MAX_VALUE}
+     * @param seed the seed the orchard is generated from
+     * @param fruits a map of possible type of fruits with their colors
+     * @param pondPercent expected percent of ponds in the orchard
+     * (between 0 and {@code FruitCollectGame.MAX_POND_PERCENT}, inclusive)
+     * @param memoryBudget the maximum number of bytes of chunks to keep in memory
+     * @param spillPath the file changed chunks are written to when evicted
+     * @throws IllegalArgumentException if any of the arguments is invalid
+     */
+    public ChunkedOrchardBoard(int width, int height, long seed, Map<String, Color> fruits,
+                    int pondPercent, long memoryBudget, Path spillPath) {
+        this(width, height, new OrchardGenerator(seed, fruits, pondPercent), memoryBudget,
+                        checkSpillPath(spillPath), false);
+    }
+
+    /**
+     * Constructs a {@code ChunkedOrchardBoard} covering the largest possible area, with the
+     * default memory budget and a temporary spill file, created on the first spill and
+     * deleted on {@link #close()}.
+     *
+     * @param seed the seed the orchard is generated from
+     * @param fruits a map of possible type of fruits with their colors
+     * @param pondPercent expected percent of ponds in the orchard
+     * (between 0 and {@code FruitCollectGame.MAX_POND_PERCENT}, inclusive)
+     * @throws IllegalArgumentException if any of the arguments is invalid
+     */
+    public ChunkedOrchardBoard(long seed, Map<String, Color> fruits, int pondPercent) {
+        this(Integer.MAX_VALUE, Integer.MAX_VALUE, new OrchardGenerator(seed, fruits, pondPercent),
+                        DEFAULT_MEMORY_BUDGET, null, true);
+    }
+
+    private ChunkedOrchardBoard(int width, int height, OrchardGenerator generator,
+                    long memoryBudget, Path spillPath, boolean deleteSpillOnClose) {
+        super(width, height);
+        this.generator = generator;
+        if (memoryBudget < CHUNK_BYTES) {
+            throw new IllegalArgumentException("memory budget too small: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        this.spillPath = spillPath;
+        this.deleteSpillOnClose = deleteSpillOnClose;
+        treeCells = generator.registerTypes(this);
+
+        final long maxChunks = memoryBudget / CHUNK_BYTES;
+        chunks = new LinkedHashMap<Long, Chunk>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                if (size() > maxChunks) {
+                    if (eldest.getValue().dirty) {
+                        spill(eldest.getKey(), eldest.getValue());
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+        goodFruitCounts = new HashMap<Long, Integer>();
+        spillOffsets = new HashMap<Long, Long>();
+    }
+
+    private static Path checkSpillPath(Path spillPath) {
+        if (spillPath == null) {
+            throw new IllegalArgumentException("spill path is null");
+        }
+        return spillPath;
+    }
+
+    /**
+     * @return the seed the orchard is generated from
+     */
+    public long getSeed() {
+        return generator.getSeed();
+    }
+
+    /**
+     * @return the number of chunks currently held in memory
+     */
+    public synchronized int residentChunks() {
+        return chunks.size();
+    }
+
+    /**
+     * @return the number of changed chunks that have been written to the spill file
+     */
+    public synchronized int spilledChunks() {
+        return spillOffsets.size();
+    }
+
+    @Override
+    protected synchronized int readCell(int x, int y) {
+        return chunk(x, y).cells[((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK)] & 0xFFFF;
+    }
+
+    @Override
+    protected synchronized void writeCell(int x, int y, int cell) {
+        Chunk chunk = chunk(x, y);
+        int i = ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+        boolean wasGood = PackedCell.isGoodFruit(chunk.cells[i] & 0xFFFF);
+        chunk.cells[i] = (short) cell;
+        chunk.dirty = true;
+        if (PackedCell.isGoodFruit(cell) != wasGood) {
+            // a chunk whose last good fruit is gone leaves the count
+            goodFruitCounts.merge(key(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT), wasGood ? -1 : 1,
+                            (count, change) -> count + change == 0 ? null : count + change);
+        }
+    }
+
+    @Override
+    protected synchronized boolean compareAndSetCell(int x, int y, int expect, int cell) {
+        if (readCell(x, y) != expect) {
+            return false;
+        }
+        writeCell(x, y, cell);
+        return true;
+    }
+
+    /**
+     * Takes a snapshot of the board by copying the chunks changed since they were generated,
+     * in memory or in the spill file, into a new board grown from the same seed. Takes time
+     * in proportion to the number of changed chunks, however large the board is.
+     *
+     * @return a copy of the board as it is now, with the memory budget of this board; close
+     * it when done with it
+     * @throws UncheckedIOException if a changed chunk cannot be read from the spill file
+     */
+    @Override
+    public synchronized ChunkedOrchardBoard snapshot() {
+        ChunkedOrchardBoard copy = new ChunkedOrchardBoard(getWidth(), getHeight(), generator,
+                        memoryBudget, null, true);
+        copy.copyTypesFrom(this);
+        copy.goodFruitCounts.putAll(goodFruitCounts);
+        for (Map.Entry<Long, Chunk> entry : chunks.entrySet()) {
+            if (entry.getValue().dirty) {
+                copy.chunks.put(entry.getKey(), entry.getValue().copy());
+            }
+        }
+        for (long key : spillOffsets.keySet()) {
+            // a resident chunk is newer than its spilled copy
+            if (!chunks.containsKey(key)) {
+                copy.chunks.put(key, load(key));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return the positions of all mature trees bearing good fruit, found by visiting only
+     * the chunks holding any
+     */
+    @Override
+    public synchronized List<Point> goodFruitPositions() {
+        List<Point> positions = new ArrayList<Point>();
+        for (long key : goodFruitCounts.keySet()) {
+            Chunk chunk = chunk(key);
+            int originX = (int) (key >> 32) << CHUNK_SHIFT;
+            int originY = (int) key << CHUNK_SHIFT;
+            for (int i = 0; i < CHUNK_CELLS; i++) {
+                if (PackedCell.isGoodFruit(chunk.cells[i] & 0xFFFF)) {
+                    positions.add(new Point(originX + (i & CHUNK_MASK),
+                                    originY + (i >> CHUNK_SHIFT)));
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Closes the spill file, deleting it if it was created by this board.
+     *
+     * @throws UncheckedIOException if the spill file cannot be closed or deleted
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (spill != null) {
+                spill.close();
+                spill = null;
+            }
+            if (deleteSpillOnClose && spillPath != null) {
+                Files.deleteIfExists(spillPath);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long key(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    private Chunk chunk(int x, int y) {
+        return chunk(key(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT));
+    }
+
+    private Chunk chunk(long key) {
+        if (lastChunk != null && lastKey == key) {
+            return lastChunk;
+        }
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = spillOffsets.containsKey(key) ? load(key) : generate(key);
+            chunks.put(key, chunk);
+        }
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    // Grows a chunk from the board seed and the chunk coordinates only
+    private Chunk generate(long key) {
+        SplittableRandom r = new SplittableRandom(getSeed() ^ (key * 0x9E3779B97F4A7C15L));
+        Chunk chunk = new Chunk();
+        for (int i = 0; i < CHUNK_CELLS; i++) {
+            chunk.cells[i] = (short) generator.randomCell(r, treeCells);
+        }
+        return chunk;
+    }
+
+    private void spill(long key, Chunk chunk) {
+        try {
+            if (spillPath == null) {
+                spillPath = Files.createTempFile("orchard", ".spill");
+            }
+            if (spill == null) {
+                spill = FileChannel.open(spillPath, StandardOpenOption.CREATE,
+                                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            Long offset = spillOffsets.get(key);
+            if (offset == null) {
+                offset = (long) spillOffsets.size() * CHUNK_BYTES;
+                spillOffsets.put(key, offset);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.nativeOrder());
+            buffer.asShortBuffer().put(chunk.cells);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += spill.write(buffer, position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Chunk load(long key) {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.nativeOrder());
+        try {
+            long position = spillOffsets.get(key);
+            while (buffer.hasRemaining()) {
+                int read = spill.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("truncated spill file");
+                }
+                position += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.flip();
+        Chunk chunk = new Chunk();
+        buffer.asShortBuffer().get(chunk.cells);
+        // a reloaded chunk still differs from what the seed generates
+        chunk.dirty = true;
+        return chunk;
+    }
+
+    /**
+     * The cells of one chunk, stored row by row.
+     */
+    private static class Chunk {
+        private final short[] cells = new short[CHUNK_CELLS];
+        private boolean dirty;
+
+        // A changed copy of the chunk, for a snapshot
+        private Chunk copy() {
+            Chunk copy = new Chunk();
+            System.arraycopy(cells, 0, copy.cells, 0, CHUNK_CELLS);
+            copy.dirty = true;
+            return copy;
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+/**
+ * A goal of a {@code FruitCollectGame} that is tracked incrementally, so that checking
+ * whether it is accomplished takes constant time however many fruit types are collected.<p>
+ * A goal keeps state about one game, so an instance must not be shared between games.
+ * 
+ * @author yuyingf
+ *
+ */
+public interface CollectionGoal {
+    
+    /**
+     * Starts tracking a game from its current collection counters.
+     * 
+     * @param collected the quantities of the fruits collected, indexed by fruit type id;
+     * -1 for fruit types that are not collected in the game
+     */
+    public void start(int[] collected);
+    
+    /**
+     * Records that one more fruit of a type has been collected.
+     * 
+     * @param typeId the id of the type of the fruit collected
+     * @param count the quantity of this type of fruit collected so far, including this one
+     */
+    public void collected(int typeId, int count);
+    
+    /**
+     * @return {@code true} if the goal is accomplished and {@code false} otherwise
+     */
+    public boolean isAccomplished();
+
+}
@@ -0,0 +1,81 @@
+/**
+ * A goal made of other goals, accomplished once a given number of them are accomplished.
+ * The goal keeps a running count of its accomplished parts.
+ * 
+ * @author yuyingf
+ *
+ */
+public class CompositeGoal implements CollectionGoal {
+    
+    private final CollectionGoal[] parts;
+    private final int required;
+    private int accomplished;
+    
+    /**
+     * Constructs a {@code CompositeGoal}.
+     * 
+     * @param required the number of parts to accomplish
+     * @param parts the goals this goal is made of
+     * @throws IllegalArgumentException if there are no parts, a part is null, or the number
+     * required is not between 1 and the number of parts
+     */
+    public CompositeGoal(int required, CollectionGoal... parts) {
+        if (parts == null || parts.length == 0) {
+            throw new IllegalArgumentException("no goals");
+        }
+        for (CollectionGoal part : parts) {
+            if (part == null) {
+                throw new IllegalArgumentException("goal is null");
+            }
+        }
+        if (required < 1 || required > parts.length) {
+            throw new IllegalArgumentException("invalid number of goals required: " + required);
+        }
+        this.parts = parts.clone();
+        this.required = required;
+    }
+    
+    /**
+     * @param parts the goals to accomplish
+     * @return a goal accomplished once all of the given goals are
+     */
+    public static CompositeGoal allOf(CollectionGoal... parts) {
+        return new CompositeGoal(parts == null ? 0 : parts.length, parts);
+    }
+    
+    /**
+     * @param parts the goals to accomplish
+     * @return a goal accomplished once any of the given goals is
+     */
+    public static CompositeGoal anyOf(CollectionGoal... parts) {
+        return new CompositeGoal(1, parts);
+    }
+    
+    @Override
+    public void start(int[] collected) {
+        accomplished = 0;
+        for (CollectionGoal part : parts) {
+            part.start(collected);
+            if (part.isAccomplished()) {
+                accomplished++;
+            }
+        }
+    }
+    
+    @Override
+    public void collected(int typeId, int count) {
+        for (CollectionGoal part : parts) {
+            boolean before = part.isAccomplished();
+            part.collected(typeId, count);
+            if (before != part.isAccomplished()) {
+                accomplished += before ? -1 : 1;
+            }
+        }
+    }
+    
+    @Override
+    public boolean isAccomplished() {
+        return accomplished >= required;
+    }
+
+}
@@ -0,0 +1,277 @@
+import java.awt.Point;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@code PackedOrchardBoard} whose snapshots are taken in constant time. The cells are kept
+ * in square chunks of {@value #CHUNK_SIZE} x {@value #CHUNK_SIZE}, and a snapshot shares every
+ * chunk with the board it was taken from.<p>
+ * The first write to the board after a snapshot copies the chunk directory, an array of one
+ * reference per chunk, and the first write to each chunk copies that chunk only. Chunks that
+ * are already shared are never written to again, so a snapshot can be read from another thread
+ * while the game keeps changing the board, without locks.<p>
+ * The directory is published through a volatile field, and chunks and cells are written with
+ * release and read with acquire semantics, so a read sees a new chunk only once it is filled
+ * in and sees every cell written soon after the write.<p>
+ * A cell is changed under the lock of its chunk, one of {@value #LOCK_STRIPES} locks each
+ * shared by chunks far apart, so writes to different chunks, such as moves and generations in
+ * different parts of the orchard, go on in parallel. A snapshot, and the copy of the directory
+ * after it, hold every lock for a moment, so no write is half done when a chunk becomes shared.
+ *
+ * @author yuyingf
+ *
+ */
+public class CopyOnWriteOrchardBoard extends PackedOrchardBoard {
+
+    public static final int CHUNK_SIZE = 64;
+    public static final int LOCK_STRIPES = 64;
+
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final AtomicLong EPOCHS = new AtomicLong();
+    private static final VarHandle CHUNKS = MethodHandles.arrayElementVarHandle(short[][].class);
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(short[].class);
+
+    private final int chunksPerRow;
+    private final ReentrantLock[] locks = newLocks();
+    private volatile short[][] chunks;
+    // an element is changed under the lock of its chunk, the array replaced under every lock
+    private long[] chunkEpochs;
+    private volatile boolean directoryShared;
+    // changed under every lock
+    private long epoch;
+
+    /**
+     * Constructs an empty {@code CopyOnWriteOrchardBoard} of the given dimensions.
+     * Use {@link #placePond(int, int)} and {@link #placeTree(int, int, String, java.awt.Color)}
+     * to fill it.
+     *
+     * @param width the width of the orchard
+     * @param height the height of the orchard
+     * @throws IllegalArgumentException if either dimension is not positive or the orchard
+     * has too many chunks
+     */
+    public CopyOnWriteOrchardBoard(int width, int height) {
+        super(width, height);
+        chunksPerRow = (width - 1) / CHUNK_SIZE + 1;
+        long numChunks = (long) chunksPerRow * ((height - 1) / CHUNK_SIZE + 1);
+        if (numChunks > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("orchard too large: " + width + "x" + height);
+        }
+        chunks = new short[(int) numChunks][];
+        chunkEpochs = new long[(int) numChunks];
+        epoch = EPOCHS.incrementAndGet();
+    }
+
+    /**
+     * Constructs a {@code CopyOnWriteOrchardBoard} given an initial setup.
+     *
+     * @param orchard 2-D array representing the initial setup of the orchard
+     * @throws IllegalArgumentException if the orchard is null or empty
+     */
+    public CopyOnWriteOrchardBoard(OrchardObject[][] orchard) {
+        this(width(orchard), orchard.length);
+        copyFrom(orchard);
+    }
+
+    // A snapshot sharing every chunk of the given board
+    private CopyOnWriteOrchardBoard(CopyOnWriteOrchardBoard board) {
+        super(board.getWidth(), board.getHeight());
+        copyTypesFrom(board);
+        chunksPerRow = board.chunksPerRow;
+        chunks = board.chunks;
+        chunkEpochs = board.chunkEpochs;
+        directoryShared = true;
+        epoch = EPOCHS.incrementAndGet();
+    }
+
+    private static ReentrantLock[] newLocks() {
+        ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    // Validates the setup before the directory is allocated
+    private static int width(OrchardObject[][] orchard) {
+        if (orchard == null) {
+            throw new IllegalArgumentException("orchard is null");
+        }
+        if (orchard.length == 0 || orchard[0].length == 0) {
+            throw new IllegalArgumentException("empty orchard");
+        }
+        return orchard[0].length;
+    }
+
+    /**
+     * Takes a snapshot of the board in constant time. Nothing is copied until either board
+     * is written to.
+     *
+     * @return a copy of the board as it is now
+     */
+    @Override
+    public CopyOnWriteOrchardBoard snapshot() {
+        lockAll();
+        try {
+            CopyOnWriteOrchardBoard copy = new CopyOnWriteOrchardBoard(this);
+            // no chunk belongs to this board alone any more
+            directoryShared = true;
+            epoch = EPOCHS.incrementAndGet();
+            return copy;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    protected int readCell(int x, int y) {
+        short[] chunk = (short[]) CHUNKS.getAcquire(chunks, chunkIndex(x, y));
+        return chunk == null ? PackedCell.EMPTY
+                        : (short) CELLS.getAcquire(chunk, cellIndex(x, y)) & 0xFFFF;
+    }
+
+    @Override
+    protected void writeCell(int x, int y, int cell) {
+        update(x, y, -1, cell);
+    }
+
+    @Override
+    protected boolean compareAndSetCell(int x, int y, int expect, int cell) {
+        return update(x, y, expect, cell);
+    }
+
+    /**
+     * Stores a row of packed cells, taking the lock of each chunk the row crosses once.
+     */
+    @Override
+    protected void writeRow(int y, int[] row) {
+        for (int x = 0; x < row.length; x = (x | CHUNK_MASK) + 1) {
+            int index = chunkIndex(x, y);
+            int end = Math.min(row.length, (x | CHUNK_MASK) + 1);
+            short[] chunk = lockChunk(index);
+            try {
+                for (int i = x; i < end; i++) {
+                    CELLS.setRelease(chunk, cellIndex(i, y), (short) row[i]);
+                }
+            } finally {
+                locks[index & (LOCK_STRIPES - 1)].unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the positions of all mature trees bearing good fruit, in row-major order,
+     * read a chunk row at a time and skipping chunks never written to
+     */
+    @Override
+    public List<Point> goodFruitPositions() {
+        List<Point> positions = new ArrayList<Point>();
+        short[][] directory = chunks;
+        int width = getWidth();
+        for (int y = 0; y < getHeight(); y++) {
+            int first = (y >> CHUNK_SHIFT) * chunksPerRow;
+            for (int column = 0; column < chunksPerRow; column++) {
+                short[] chunk = (short[]) CHUNKS.getAcquire(directory, first + column);
+                if (chunk == null) {
+                    continue;
+                }
+                int originX = column << CHUNK_SHIFT;
+                int end = Math.min(CHUNK_SIZE, width - originX);
+                for (int i = 0; i < end; i++) {
+                    int cell = (short) CELLS.getAcquire(chunk, cellIndex(i, y)) & 0xFFFF;
+                    if (PackedCell.isGoodFruit(cell)) {
+                        positions.add(new Point(originX + i, y));
+                    }
+                }
+            }
+        }
+        return positions;
+    }
+
+    // Changes a cell under the lock of its chunk; an expected state of -1 matches any state
+    private boolean update(int x, int y, int expect, int cell) {
+        int index = chunkIndex(x, y);
+        short[] chunk = lockChunk(index);
+        try {
+            int i = cellIndex(x, y);
+            if (expect >= 0 && (chunk[i] & 0xFFFF) != expect) {
+                return false;
+            }
+            CELLS.setRelease(chunk, i, (short) cell);
+            return true;
+        } finally {
+            locks[index & (LOCK_STRIPES - 1)].unlock();
+        }
+    }
+
+    // Takes the lock of a chunk and returns the chunk, copying the directory and the chunk
+    // first if a snapshot shares them; the caller unlocks the chunk when done
+    private short[] lockChunk(int index) {
+        ReentrantLock lock = locks[index & (LOCK_STRIPES - 1)];
+        while (true) {
+            if (directoryShared) {
+                copyDirectory();
+            }
+            lock.lock();
+            boolean locked = false;
+            try {
+                // unless a snapshot was taken since the directory was copied
+                if (!directoryShared) {
+                    short[][] directory = chunks;
+                    short[] chunk = directory[index];
+                    if (chunkEpochs[index] != epoch) {
+                        chunk = chunk == null ? new short[CHUNK_SIZE * CHUNK_SIZE]
+                                        : chunk.clone();
+                        CHUNKS.setRelease(directory, index, chunk);
+                        chunkEpochs[index] = epoch;
+                    }
+                    locked = true;
+                    return chunk;
+                }
+            } finally {
+                if (!locked) {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private void copyDirectory() {
+        lockAll();
+        try {
+            if (directoryShared) {
+                chunkEpochs = chunkEpochs.clone();
+                chunks = chunks.clone();
+                directoryShared = false;
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    private int chunkIndex(int x, int y) {
+        return (y >> CHUNK_SHIFT) * chunksPerRow + (x >> CHUNK_SHIFT);
+    }
+
+    private static int cellIndex(int x, int y) {
+        return ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+    }
+
+}
@@ -0,0 +1,37 @@
+/**
+ * The four directions the player can move in on a game board, where (0,0) is the
+ * top left corner.
+ * 
+ * @author yuyingf
+ *
+ */
+public enum Direction {
+    
+    UP(0, -1),
+    DOWN(0, 1),
+    LEFT(-1, 0),
+    RIGHT(1, 0);
+    
+    private final int dx;
+    private final int dy;
+    
+    private Direction(int dx, int dy) {
+        this.dx = dx;
+        this.dy = dy;
+    }
+    
+    /**
+     * @return the change in the x-coordinate when moving in this direction
+     */
+    public int getDx() {
+        return dx;
+    }
+    
+    /**
+     * @return the change in the y-coordinate when moving in this direction
+     */
+    public int getDy() {
+        return dy;
+    }
+
+}
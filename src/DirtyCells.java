@@ -0,0 +1,46 @@
+import java.awt.Point;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the cells of a {@code FruitCollectGame} that changed, so that a renderer can
+ * repaint only those. Added to a game with
+ * {@link FruitCollectGame#addCellListener(CellListener)}, it marks every cell that changes
+ * state, and the cells a player leaves and enters. Cells may be marked from any thread.
+ * 
+ * @author yuyingf
+ *
+ */
+public class DirtyCells implements CellListener {
+    
+    private final Set<Point> cells = ConcurrentHashMap.newKeySet();
+    
+    @Override
+    public void cellChanged(int x, int y, int oldCell, int newCell) {
+        cells.add(new Point(x, y));
+    }
+    
+    @Override
+    public void playerMoved(int fromX, int fromY, int toX, int toY) {
+        cells.add(new Point(fromX, fromY));
+        cells.add(new Point(toX, toY));
+    }
+    
+    /**
+     * Returns the cells marked since the last call and forgets them.
+     * 
+     * @return the positions of the cells changed since the last call
+     */
+    public Set<Point> take() {
+        Set<Point> taken = new LinkedHashSet<Point>();
+        for (Point cell : cells) {
+            // a cell marked again while it is taken stays marked for the next call
+            if (cells.remove(cell)) {
+                taken.add(cell);
+            }
+        }
+        return taken;
+    }
+
+}
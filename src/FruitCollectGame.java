@@ -1,25 +1,70 @@
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Point;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
- * The backend implementation of a FruiCollect! game.
+ * The backend implementation of a FruiCollect! game.<p>
+ * A game can be played from several threads at once, by several players on one board. Player 0
+ * is the one the game is constructed with and the one the collection goal counts for; more
+ * players are added with {@link #addPlayer(int, int)}, and each has its own counters.<p>
+ * The game takes no lock on the board. Every change to a tree is a single compare-and-set on
+ * its state ({@link FruitTree#claimFruit()}, {@link FruitTree#spoilFruit()},
+ * {@link FruitTree#ripen()}), so when two players step onto the same mature tree at the same
+ * moment exactly one of them collects the fruit, and fruit that turns bad in a generation
+ * cannot also be collected. Moves of one player are serialized on that player, the collection
+ * counters are atomic, and generations are serialized with each other. Reads, such as
+ * {@link #getCell(int, int)} from a renderer, see every change soon after it is made.<p>
+ * Boards that cannot be changed cell by cell without a lock take one of their own: a
+ * {@code ChunkedOrchardBoard} serializes every access on itself, so a game on it is safe
+ * to play from several threads, but they take turns on the board.<p>
+ * The trees that mature in a generation are drawn from a random stream of the game. A game
+ * built from a seed draws them from a stream derived from that seed, so the seed and the
+ * moves of player 0 between generations determine the whole game; a game given a
+ * {@link #setReplayLog(ReplayLog) ReplayLog} records both, and a {@code Replayer} plays it
+ * again.
  * 
  * @author yuyingf
  *
  */
 public class FruitCollectGame {
 
+    // what objects other than fruit trees collect into when the player meets them
+    private static final int[] NO_COUNTS = new int[0];
+    // keeps the generations' random stream apart from the orchard generator's of one seed
+    private static final long GEN_STREAM = 0x6A09E667F3BCC909L;
+
     private Player player;
     private OrchardBoard orchard;
-    private Map<String, Integer> collected;
-    private int gen;
-    private boolean ended;
+    private AtomicIntegerArray collected;
+    private Set<Point> goodFruit;
+    private List<CellListener> listeners = new CopyOnWriteArrayList<CellListener>();
+    private final List<Seat> seats = new CopyOnWriteArrayList<Seat>();
+    private final Object goalLock = new Object();
+    private final Object genLock = new Object();
+    private volatile CollectionGoal goal;
+    private volatile int gen;
+    private volatile boolean ended;
+    // drawn from only while genLock is held
+    private SplittableRandom random = new SplittableRandom();
+    private volatile ReplayLog replayLog;
+    // the sum of the hashes of the cells, kept up to date as they change once it is taken
+    private final AtomicLong cellHashes = new AtomicLong();
+    private volatile boolean hashingCells;
+    // the ids of the fruit collected in this game, in the order of their names
+    private int[] idsByName;
     
     public static final int DEFAULT_ORCHARD_WIDTH = 15;
     public static final int DEFAULT_ORCHARD_HEIGHT = 15;
@@ -34,7 +79,8 @@ public class FruitCollectGame {
     
     /**
      * Constructs a {@code FruitCollectGame} given a specific initial orchard setup and
-     * an initial position of the player.
+     * an initial position of the player. The orchard is copied into a
+     * {@code CopyOnWriteOrchardBoard}, so that it can be snapshot in constant time.
      * 
      * @param orchard a 2-D array of {@code OrchardObject} representing the initial setup of
      * the orchard
@@ -44,28 +90,94 @@ public class FruitCollectGame {
      * is not in the orchard, or if the player is initialized in a pond.
      */
     public FruitCollectGame(OrchardObject[][] orchard, int playerX, int playerY) {
-        this.orchard = new OrchardBoard(orchard);
-        if (playerY < 0 || playerY >= orchard.length
-                        || playerX < 0 || playerX >= orchard[0].length) {
+        this(new CopyOnWriteOrchardBoard(orchard), playerX, playerY);
+    }
+    
+    /**
+     * Constructs a {@code FruitCollectGame} played on an existing orchard board and
+     * an initial position of the player. The board is used as is, not copied, so that
+     * large boards such as an {@code OffHeapOrchardBoard} can be built once and handed over.
+     * 
+     * @param orchard the orchard board to play on
+     * @param playerX x-coordinate of the player's starting position
+     * @param playerY y-coordinate of the player's starting position
+     * @throws IllegalArgumentException if the orchard is null, if the player position
+     * is not in the orchard, or if the player is initialized in a pond.
+     */
+    public FruitCollectGame(OrchardBoard orchard, int playerX, int playerY) {
+        this(orchard, playerX, playerY, false);
+    }
+    
+    // Sets up a game at generation 0; a restored game may have its player in a pond
+    private FruitCollectGame(OrchardBoard orchard, int playerX, int playerY, boolean restoring) {
+        if (orchard == null) {
+            throw new IllegalArgumentException("orchard is null");
+        }
+        this.orchard = orchard;
+        if (!orchard.onBoard(playerX, playerY)) {
             throw new IllegalArgumentException("invalid player position");
         }
         player = new Player(playerX, playerY);
-        if (orchard[playerY][playerX] instanceof Pond) {
+        if (!restoring && orchard.getObject(playerX, playerY) instanceof Pond) {
             throw new IllegalArgumentException("player initialized in a pond");
         }
-        collected = new HashMap<String, Integer>();
-        for (int row = 0; row < orchard.length; row++) {
-            for (int col = 0; col < orchard[0].length; col++) {
-                OrchardObject obj = orchard[row][col];
-                if (obj instanceof FruitTree && !collected.containsKey(obj.toString())) {
-                    collected.put(obj.toString(), 0);
-                }
-            }
+        Set<FruitType> treeTypes = orchard.getTreeTypes();
+        // counters are indexed by fruit type id, up to the largest id of the orchard's types;
+        // -1 marks types not collected in this game
+        int ids = 0;
+        for (FruitType type : treeTypes) {
+            ids = Math.max(ids, type.getId() + 1);
+        }
+        collected = new AtomicIntegerArray(ids);
+        for (int id = 0; id < collected.length(); id++) {
+            collected.set(id, -1);
+        }
+        TreeMap<String, Integer> names = new TreeMap<String, Integer>();
+        for (FruitType type : treeTypes) {
+            collected.set(type.getId(), 0);
+            names.put(type.getName(), type.getId());
         }
+        idsByName = new int[names.size()];
+        int next = 0;
+        for (int id : names.values()) {
+            idsByName[next++] = id;
+        }
+        seats.add(new Seat(player, collected));
+        goodFruit = ConcurrentHashMap.newKeySet();
+        goodFruit.addAll(orchard.goodFruitPositions());
+        setGoal(new PerTypeGoal(MIN_GOAL_PER_TYPE));
         gen = 0;
         ended = false;
     }
     
+    /**
+     * Restores a saved game. Used by {@code GameSerializer}; the collection goal is reset
+     * to the default goal and started from the restored counts.
+     * 
+     * @param orchard the orchard board of the saved game
+     * @param playerX x-coordinate of the player
+     * @param playerY y-coordinate of the player
+     * @param gen the generation number
+     * @param ended whether the game has ended
+     * @param counts the number of each type of fruit collected
+     * @return the restored game
+     * @throws IllegalArgumentException if the orchard is null or the player position
+     * is not in the orchard
+     */
+    static FruitCollectGame restore(OrchardBoard orchard, int playerX, int playerY, int gen,
+                    boolean ended, Map<String, Integer> counts) {
+        FruitCollectGame game = new FruitCollectGame(orchard, playerX, playerY, true);
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            if (game.isCollecting(count.getKey())) {
+                game.collected.set(FruitType.idOf(count.getKey()), count.getValue());
+            }
+        }
+        game.setGoal(new PerTypeGoal(MIN_GOAL_PER_TYPE));
+        game.gen = gen;
+        game.ended = ended;
+        return game;
+    }
+    
     /**
      * Randomly constructs a game with the orchard dimensions specified.
      * Fruit trees will only be of types specified in the map, and
@@ -83,47 +195,44 @@ public class FruitCollectGame {
      */
     public FruitCollectGame(int width, int height, Map<String, Color> fruits, int pondPercent,
                     int playerX, int playerY) {
+        this(width, height, fruits, pondPercent, playerX, playerY, new Random().nextLong());
+    }
+    
+    /**
+     * Randomly constructs a game with the orchard dimensions specified, generating the
+     * orchard from a seed with an {@code OrchardGenerator}. The same seed always gives the
+     * same orchard. Otherwise the game is set up as by
+     * {@link #FruitCollectGame(int, int, Map, int, int, int)}.
+     * 
+     * @param width the width of the orchard
+     * @param height the height of the orchard
+     * @param fruits a map of possible type of fruits with their colors
+     * @param pondPercent expected percent of ponds in the orchard (between 0 and 70, inclusive)
+     * @param playerX x-coordinate of the player's starting position
+     * @param playerY y-coordinate of the player's starting position
+     * @param seed the seed the orchard and the generations are drawn from
+     */
+    public FruitCollectGame(int width, int height, Map<String, Color> fruits, int pondPercent,
+                    int playerX, int playerY, long seed) {
+        this(generateOrchard(width, height, fruits, pondPercent, playerX, playerY, seed),
+                        playerX, playerY);
+        setSeed(seed);
+    }
+    
+    // Validates the arguments of the random constructors and generates their orchard
+    private static OrchardBoard generateOrchard(int width, int height, Map<String, Color> fruits,
+                    int pondPercent, int playerX, int playerY, long seed) {
         if (width <= 0 || height <= 0) {
             throw new IllegalArgumentException("invalid dimentions");
         }
-        if (fruits == null || fruits.isEmpty()) {
-            throw new IllegalArgumentException("empty list of fruits");
-        }
-        if (pondPercent < 0 || pondPercent > MAX_POND_PERCENT) {
-            throw new IllegalArgumentException("invalid pondPercent: " + pondPercent
-                            + " (must be 0-" + MAX_POND_PERCENT + ")");
-        }
+        OrchardGenerator generator = new OrchardGenerator(seed, fruits, pondPercent);
         if (playerX < 0 || playerX >= width || playerY < 0 || playerY >= height) {
             throw new IllegalArgumentException("invalid player position");
         }
-        
-        player = new Player(playerX, playerY);
-        gen = 0;
-        ended = false;
-        
-        ArrayList<String> fruitTypes = new ArrayList<String>();
-        collected = new HashMap<String, Integer>();
-        for (String fruit : fruits.keySet()) {
-            fruitTypes.add(fruit);
-            collected.put(fruit, 0);
-        }
-        
-        int numTypes = fruitTypes.size();
-        OrchardObject[][] randomSetup = new OrchardObject[height][width];
-        Random r = new Random();
-        for (int row = 0; row < height; row++) {
-            for (int col = 0; col < width; col++) {
-                if (r.nextDouble() * 100 < pondPercent) {
-                    randomSetup[row][col] = new Pond();
-                } else {
-                    String fruit = fruitTypes.get(r.nextInt(numTypes));
-                    randomSetup[row][col] = new FruitTree(fruit, fruits.get(fruit));
-                }
-            }
-        }
-        randomSetup[playerY][playerX] = new FruitTree(fruitTypes.get(0),
-                        fruits.get((fruitTypes).get(0)));
-        orchard = new OrchardBoard(randomSetup);
+        PackedOrchardBoard board = generator.generate(width, height);
+        String fruit = generator.getFruitTypes().get(0);
+        board.placeTree(playerX, playerY, fruit, fruits.get(fruit));
+        return board;
     }
     
     /**
@@ -176,6 +285,82 @@ public class FruitCollectGame {
         return orchard.hasObject(x, y);
     }
     
+    /**
+     * @param x the x-coordinate of the location specified
+     * @param y the y-coordinate of the location specified
+     * @return the state of the location specified encoded as a {@code PackedCell};
+     * {@code PackedCell.EMPTY} if the location is empty or not on board
+     */
+    public int getCell(int x, int y) {
+        return orchard.getCell(x, y);
+    }
+    
+    /**
+     * @param typeId a fruit type id of the orchard, as stored in the cells returned by
+     * {@link #getCell(int, int)}
+     * @return the fruit type with this id in the orchard
+     * @throws IllegalArgumentException if no fruit type has this id in the orchard
+     */
+    public FruitType getFruitType(int typeId) {
+        return orchard.getFruitType(typeId);
+    }
+
+    /**
+     * @return the number of fruit types in the orchard, which is one more than the largest
+     * fruit type id of its cells
+     */
+    public int getTypeCount() {
+        return orchard.getTypeCount();
+    }
+    
+    /**
+     * Takes a snapshot of the orchard for readers such as savers, which can then work on a
+     * stable board while the game keeps changing. The snapshot is taken in constant time when
+     * the game is played on a {@code CopyOnWriteOrchardBoard}, as games set up from an
+     * initial setup, generated games of up to {@code OrchardGenerator.PARALLEL_CELLS} cells
+     * and restored games are, and in time proportional to the chunks changed so far on a
+     * {@code ChunkedOrchardBoard}, whose snapshot should be closed when done with. Other
+     * boards, such as the {@code OffHeapOrchardBoard} of a larger generated game, are copied
+     * cell by cell.
+     * 
+     * @return a snapshot of the orchard as it is now
+     */
+    public OrchardBoard snapshotOrchard() {
+        return orchard.snapshot();
+    }
+    
+    /**
+     * Runs a reader of the game while no player moves and no generation runs, so that all it
+     * reads, such as a snapshot of the orchard and the position of player 0, is from one
+     * moment. The locks of the seats are taken, then those of the replay log, if any, and of
+     * the generations, in the order moves and generations take them; a game without
+     * a {@code CopyOnWriteOrchardBoard} stays still for as long as its orchard takes to copy.
+     * 
+     * @param reader the reader to run
+     * @return what the reader returns
+     */
+    <T> T readStill(Supplier<T> reader) {
+        synchronized (seats) {
+            return readStill(0, reader);
+        }
+    }
+    
+    // Takes the locks of the seats from the given one on, then those of the log and the
+    // generations, and runs the reader
+    private <T> T readStill(int seat, Supplier<T> reader) {
+        if (seat < seats.size()) {
+            synchronized (seats.get(seat)) {
+                return readStill(seat + 1, reader);
+            }
+        }
+        ReplayLog log = replayLog;
+        synchronized (log != null ? log : genLock) {
+            synchronized (genLock) {
+                return reader.get();
+            }
+        }
+    }
+    
     /**
      * @return {@code true} if the game has ended and {@code false} otherwise
      */
@@ -184,10 +369,103 @@ public class FruitCollectGame {
     }
     
     /**
-     * Ends the game.
+     * Ends the game. The end is recorded if the game has a replay log and had not ended.
      */
     public void endGame() {
-        ended = true;
+        ReplayLog log = replayLog;
+        if (log == null) {
+            ended = true;
+            return;
+        }
+        synchronized (log) {
+            if (!ended) {
+                ended = true;
+                log.recordEnd(checksum());
+            }
+        }
+    }
+    
+    /**
+     * Seeds the random stream the trees that mature in each generation are drawn from.
+     * A game built from a seed is seeded with it already.
+     * 
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        synchronized (genLock) {
+            random = new SplittableRandom(seed ^ GEN_STREAM);
+        }
+    }
+    
+    /**
+     * Records the game in a log from now on: every step of player 0 taken while the game is
+     * in progress, every generation and the end of the game, in the order they take effect.
+     * They are recorded under the lock of the log, so a recorded game's steps of player 0
+     * and its generations do not run at the same time. Moves to a cell with
+     * {@link #move(int, int)} and the steps of other players are not recorded.<p>
+     * Takes the first {@link #checksum()} of the game, which visits every cell, so that the
+     * checksums recorded later take constant time; call it before the game is played.
+     * 
+     * @param log the log to record in; null to stop recording
+     */
+    public void setReplayLog(ReplayLog log) {
+        if (log != null) {
+            checksum();
+        }
+        replayLog = log;
+    }
+    
+    /**
+     * Computes a checksum of the state of the game: every cell of the orchard, the position
+     * of player 0, the generation, whether the game has ended and the number of each fruit
+     * collected. Fruit types are hashed by name, so games in different processes can be
+     * compared.<p>
+     * The cells are summed up by adding a hash of each. The first checksum of a game visits
+     * every cell, and must not be taken while other threads change the game; from then on
+     * the sum is updated as each cell changes, so later checksums take time in proportion to
+     * the number of fruit types only.
+     * 
+     * @return the checksum
+     */
+    public long checksum() {
+        if (!hashingCells) {
+            synchronized (cellHashes) {
+                if (!hashingCells) {
+                    long sum = 0;
+                    for (int y = 0; y < getHeight(); y++) {
+                        for (int x = 0; x < getWidth(); x++) {
+                            sum += cellHash(x, y, orchard.getCell(x, y));
+                        }
+                    }
+                    cellHashes.set(sum);
+                    hashingCells = true;
+                }
+            }
+        }
+        long hash = 0xCBF29CE484222325L;
+        hash = (hash ^ cellHashes.get()) * 0x100000001B3L;
+        hash = (hash ^ getPlayerX()) * 0x100000001B3L;
+        hash = (hash ^ getPlayerY()) * 0x100000001B3L;
+        hash = (hash ^ gen) * 0x100000001B3L;
+        hash = (hash ^ (ended ? 1 : 0)) * 0x100000001B3L;
+        for (int id : idsByName) {
+            hash = (hash ^ FruitType.byId(id).getName().hashCode()) * 0x100000001B3L;
+            hash = (hash ^ collected.get(id)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+    
+    // The hash of a cell of the orchard in a state, with its fruit type hashed by name
+    private long cellHash(int x, int y, int cell) {
+        long state = cell;
+        if (PackedCell.isTree(cell)) {
+            long name = orchard.getFruitType(PackedCell.typeId(cell)).getName().hashCode();
+            state = (cell & ((1 << PackedCell.TYPE_SHIFT) - 1)) ^ name << PackedCell.TYPE_SHIFT;
+        }
+        long h = (((long) x << 32) | (y & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L + state;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
     }
     
     /**
@@ -195,8 +473,10 @@ public class FruitCollectGame {
      */
     public Set<String> getFruitSet() {
         Set<String> fruits = new HashSet<String>();
-        for (String fruit : collected.keySet()) {
-            fruits.add(fruit);
+        for (int id = 0; id < collected.length(); id++) {
+            if (collected.get(id) >= 0) {
+                fruits.add(FruitType.byId(id).getName());
+            }
         }
         return fruits;
     }
@@ -206,7 +486,8 @@ public class FruitCollectGame {
      * @return {@code true} if the fruit is being collected and {@code false} otherwise
      */
     public boolean isCollecting(String fruit) {
-        return collected.containsKey(fruit);
+        int id = FruitType.idOf(fruit);
+        return id >= 0 && id < collected.length() && collected.get(id) >= 0;
     }
     
     /**
@@ -216,22 +497,47 @@ public class FruitCollectGame {
      */
     public int numCollected(String fruit) {
         if (isCollecting(fruit)) {
-            return collected.get(fruit);
+            return collected.get(FruitType.idOf(fruit));
         } else {
             return -1;
         }
     }
     
+    /**
+     * Replaces the collection goal of the game. By default, the goal is to collect
+     * {@value #MIN_GOAL_PER_TYPE} of each type of fruit.
+     * 
+     * @param goal the new collection goal, which must not be used by any other game
+     * @throws IllegalArgumentException if the goal is null
+     */
+    public void setGoal(CollectionGoal goal) {
+        if (goal == null) {
+            throw new IllegalArgumentException("goal is null");
+        }
+        synchronized (goalLock) {
+            int[] counts = new int[collected.length()];
+            for (int id = 0; id < counts.length; id++) {
+                counts[id] = collected.get(id);
+            }
+            goal.start(counts);
+            this.goal = goal;
+        }
+    }
+    
+    /**
+     * @return the collection goal of the game
+     */
+    public CollectionGoal getGoal() {
+        return goal;
+    }
+    
     /**
      * @return {@code true} if the collection goal is accomplished and {@code false} otherwise
      */
     public boolean goalAccomplished() {
-        for (String fruit : collected.keySet()) {
-            if (collected.get(fruit) < MIN_GOAL_PER_TYPE) {
-                return false;
-            }
+        synchronized (goalLock) {
+            return goal.isAccomplished();
         }
-        return true;
     }
     
     /**
@@ -257,6 +563,52 @@ public class FruitCollectGame {
         }
     }
     
+    /**
+     * Adds a listener to be told of every cell that changes state from now on, with the
+     * state of the cell before and after each change, and of every move of a player.
+     * A {@code DirtyCells} added as a listener collects the cells a renderer has to repaint;
+     * a game nobody listens to keeps no record of its changes. Listeners are called
+     * by the thread that made the change, right after it, so they may be called from several
+     * threads at once, and changes of one cell made by different threads may arrive in
+     * either order.
+     * 
+     * @param listener the listener to add
+     * @throws IllegalArgumentException if the listener is null
+     */
+    public void addCellListener(CellListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener is null");
+        }
+        listeners.add(listener);
+    }
+    
+    /**
+     * @param listener the listener to stop telling of changes
+     */
+    public void removeCellListener(CellListener listener) {
+        listeners.remove(listener);
+    }
+    
+    // Tells the listeners of a tree whose state changed by one compare-and-set
+    private void fireCellChanged(int x, int y, int oldCell, int newCell) {
+        if (hashingCells) {
+            cellHashes.addAndGet(cellHash(x, y, newCell) - cellHash(x, y, oldCell));
+        }
+        for (CellListener listener : listeners) {
+            listener.cellChanged(x, y, oldCell, newCell);
+        }
+    }
+    
+    // Tells the listeners of a player that moved, if there are any
+    private void firePlayerMoved(int fromX, int fromY, int toX, int toY) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        for (CellListener listener : listeners) {
+            listener.playerMoved(fromX, fromY, toX, toY);
+        }
+    }
+    
     /**
      * @return the current x-coordinate of the player
      */
@@ -271,6 +623,92 @@ public class FruitCollectGame {
         return player.getY();
     }
     
+    /**
+     * Adds a player to the game at (x,y). The new player collects fruit into counters of
+     * its own, starting at 0, and does not count towards the collection goal. Meeting bad
+     * fruit or a pond puts the player out of the game instead of ending it.
+     * 
+     * @param x x-coordinate of the player's starting position
+     * @param y y-coordinate of the player's starting position
+     * @return the number of the new player, used to move it and read its counters
+     * @throws IllegalArgumentException if the position is not in the orchard or is a pond
+     */
+    public int addPlayer(int x, int y) {
+        if (!onBoard(x, y)) {
+            throw new IllegalArgumentException("invalid player position");
+        }
+        if (orchard.getObject(x, y) instanceof Pond) {
+            throw new IllegalArgumentException("player initialized in a pond");
+        }
+        AtomicIntegerArray counts = new AtomicIntegerArray(collected.length());
+        for (int id = 0; id < counts.length(); id++) {
+            counts.set(id, collected.get(id) < 0 ? -1 : 0);
+        }
+        firePlayerMoved(x, y, x, y);
+        synchronized (seats) {
+            seats.add(new Seat(new Player(x, y), counts));
+            return seats.size() - 1;
+        }
+    }
+    
+    /**
+     * @return the number of players in the game, including player 0
+     */
+    public int getPlayerCount() {
+        return seats.size();
+    }
+    
+    // The seat of a player, checking its number
+    private Seat seat(int player) {
+        if (player < 0 || player >= seats.size()) {
+            throw new IllegalArgumentException("invalid player: " + player);
+        }
+        return seats.get(player);
+    }
+    
+    /**
+     * @param player the number of a player
+     * @return the current x-coordinate of the player
+     * @throws IllegalArgumentException if there is no such player
+     */
+    public int getPlayerX(int player) {
+        return seat(player).player.getX();
+    }
+    
+    /**
+     * @param player the number of a player
+     * @return the current y-coordinate of the player
+     * @throws IllegalArgumentException if there is no such player
+     */
+    public int getPlayerY(int player) {
+        return seat(player).player.getY();
+    }
+    
+    /**
+     * @param player the number of a player
+     * @return {@code true} if the player met bad fruit or a pond and {@code false} otherwise
+     * @throws IllegalArgumentException if there is no such player
+     */
+    public boolean isOut(int player) {
+        return seat(player).out;
+    }
+    
+    /**
+     * @param player the number of a player
+     * @param fruit the fruit of interest
+     * @return the number of this type of fruit the player collected; -1 if the fruit is not
+     * being collected in this game
+     * @throws IllegalArgumentException if there is no such player
+     */
+    public int numCollected(int player, String fruit) {
+        Seat seat = seat(player);
+        if (isCollecting(fruit)) {
+            return seat.collected.get(FruitType.idOf(fruit));
+        } else {
+            return -1;
+        }
+    }
+    
     /**
      * Moves the player to (x,y) and updates the game state according to the object encountered.
      * Does nothing if the position specified is not on the board.
@@ -280,12 +718,184 @@ public class FruitCollectGame {
      */
     public void move(int x, int y) {
         if (onBoard(x, y)) {
-            player.move(x, y);
-            ended = orchard.getObject(x, y).meetPlayer(collected);
-            if (goalAccomplished()) {
+            Seat seat = seats.get(0);
+            synchronized (seat) {
+                moveLocked(seat, x, y);
+            }
+        }
+    }
+    
+    /**
+     * Moves the player one step in the direction specified.
+     * Does nothing if the step would leave the board.
+     * 
+     * @param direction the direction to move the player in
+     */
+    public void move(Direction direction) {
+        move(0, direction);
+    }
+    
+    /**
+     * Moves a player one step in the direction specified. Does nothing if the step would
+     * leave the board or the player is out, unless it is player 0, who can keep moving
+     * as in {@link #move(Direction)}.
+     * 
+     * @param player the number of the player to move
+     * @param direction the direction to move the player in
+     * @throws IllegalArgumentException if there is no such player
+     */
+    public void move(int player, Direction direction) {
+        Seat seat = seat(player);
+        ReplayLog log = player == 0 ? replayLog : null;
+        synchronized (seat) {
+            if (seat.out && player != 0) {
+                return;
+            }
+            synchronized (log != null ? log : seat) {
+                step(seat, direction, log);
+            }
+        }
+    }
+    
+    /**
+     * Moves the player along a path of steps, as {@link #move(Direction)} does for each.
+     * 
+     * @param path the directions of the steps
+     * @return the number of steps taken
+     * @throws IllegalArgumentException if the path is null
+     */
+    public int movePath(Direction... path) {
+        if (path == null) {
+            throw new IllegalArgumentException("path is null");
+        }
+        return movePath(0, path, 0, path.length);
+    }
+    
+    /**
+     * Moves a player along part of a path of steps, as {@link #move(int, Direction)} does
+     * for each, but stops at the first step that ends the game for player 0 or puts another
+     * player out; that step is taken. The lock of the player is taken once for the whole
+     * path, so the steps are never interleaved with those of another thread moving the same
+     * player.
+     * 
+     * @param player the number of the player to move
+     * @param path the directions of the steps
+     * @param from the index of the first step to take
+     * @param to the index after the last step to take
+     * @return the number of steps taken, counting those that would have left the board;
+     * 0 if player 0's game has already ended or another player is already out
+     * @throws IllegalArgumentException if there is no such player, the path is null or
+     * the indices are out of its bounds
+     */
+    public int movePath(int player, Direction[] path, int from, int to) {
+        if (path == null) {
+            throw new IllegalArgumentException("path is null");
+        }
+        if (from < 0 || to > path.length || from > to) {
+            throw new IllegalArgumentException("invalid range: " + from + " to " + to);
+        }
+        Seat seat = seat(player);
+        ReplayLog log = player == 0 ? replayLog : null;
+        synchronized (seat) {
+            synchronized (log != null ? log : seat) {
+                if (player == 0 ? hasEnded() : seat.out) {
+                    return 0;
+                }
+                for (int i = from; i < to; i++) {
+                    step(seat, path[i], log);
+                    if (player == 0 ? hasEnded() : seat.out) {
+                        return i - from + 1;
+                    }
+                }
+                return to - from;
+            }
+        }
+    }
+    
+    // Takes one step of a player unless it would leave the board, recording it in the log,
+    // if any, while the game is in progress. The caller holds the locks of the seat and log
+    private void step(Seat seat, Direction direction, ReplayLog log) {
+        if (log != null && !ended) {
+            log.recordMove(direction);
+        }
+        int x = seat.player.getX() + direction.getDx();
+        int y = seat.player.getY() + direction.getDy();
+        if (onBoard(x, y)) {
+            moveLocked(seat, x, y);
+        }
+    }
+    
+    // Moves a player to a cell on the board; the caller holds the lock of the player's seat
+    private void moveLocked(Seat seat, int x, int y) {
+        firePlayerMoved(seat.player.getX(), seat.player.getY(), x, y);
+        seat.player.move(x, y);
+        boolean met;
+        OrchardObject obj = orchard.getObject(x, y);
+        if (obj instanceof FruitTree) {
+            FruitTree tree = (FruitTree) obj;
+            // as FruitTree.meetPlayerById, counting into the seat's atomic counters
+            met = false;
+            if (tree.claimFruit()) {
+                goodFruit.remove(new Point(x, y));
+                int cell = PackedCell.tree(orchard.getTypeId(tree.getFruitType()));
+                fireCellChanged(x, y, PackedCell.mature(cell), cell);
+                collect(seat, tree.getFruitType().getId());
+            } else {
+                met = tree.isBadFruit();
+            }
+        } else {
+            met = obj.meetPlayerById(NO_COUNTS);
+        }
+        boolean first = seat == seats.get(0);
+        if (met) {
+            seat.out = true;
+            if (first) {
                 endGame();
             }
         }
+        if (first && goalAccomplished()) {
+            endGame();
+        }
+    }
+    
+    // Counts a fruit collected if its type is collected in this game, and updates the goal
+    // if the seat is player 0's
+    private void collect(Seat seat, int id) {
+        if (id >= seat.collected.length()) {
+            return;
+        }
+        int count;
+        do {
+            count = seat.collected.get(id);
+            if (count < 0) {
+                return;
+            }
+        } while (!seat.collected.compareAndSet(id, count, count + 1));
+        if (seat.collected == collected) {
+            synchronized (goalLock) {
+                goal.collected(id, count + 1);
+            }
+        }
+    }
+    
+    /**
+     * @return how the game stands: in progress, won, or how it was lost
+     */
+    public GameOutcome getOutcome() {
+        if (!ended) {
+            return GameOutcome.IN_PROGRESS;
+        }
+        if (goalAccomplished()) {
+            return GameOutcome.WON;
+        }
+        int cell = getCell(getPlayerX(), getPlayerY());
+        if (PackedCell.isPond(cell)) {
+            return GameOutcome.DROWNED;
+        }
+        if (PackedCell.isBadFruit(cell)) {
+            return GameOutcome.POISONED;
+        }
+        return GameOutcome.STOPPED;
     }
     
     /**
@@ -297,31 +907,76 @@ public class FruitCollectGame {
 
     /**
      * Turns any good fruit in the last gen bad; then randomly makes up to 3 trees mature.
-     * Will not turn the tree where the player is at mature.
+     * Will not turn the tree where the player is at mature.<br>
+     * Only the trees that matured in the last gen and have not been collected are visited,
+     * so the cost of a generation does not depend on the size of the orchard. Each tree is
+     * changed by one compare-and-set, so moves go on during a generation, and a fruit
+     * collected while it turns bad is either collected or spoiled, never both.
      */
     public void nextGen() {
-        int width = getWidth();
-        int height = getHeight();
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                OrchardObject obj = orchard.getObject(x, y);
-                if (obj instanceof FruitTree) {
-                    ((FruitTree) obj).turnBad();
+        ReplayLog log = replayLog;
+        if (log == null) {
+            advanceGen();
+            return;
+        }
+        synchronized (log) {
+            advanceGen();
+            log.recordGen(checksum());
+        }
+    }
+    
+    // The generation itself, serialized with other generations
+    private void advanceGen() {
+        synchronized (genLock) {
+            int width = getWidth();
+            int height = getHeight();
+            for (Point p : new ArrayList<Point>(goodFruit)) {
+                goodFruit.remove(p);
+                FruitTree tree = (FruitTree) orchard.getObject(p.x, p.y);
+                // fails if the fruit has been collected since the list was taken
+                if (tree.spoilFruit()) {
+                    int cell = PackedCell.mature(
+                                    PackedCell.tree(orchard.getTypeId(tree.getFruitType())));
+                    fireCellChanged(p.x, p.y, cell, PackedCell.turnBad(cell));
                 }
             }
-        }
-        Random r = new Random();
-        for (int i = 0; i < MAX_MATURE_PER_GEN; i++) {
-            int randomX = r.nextInt(width);
-            int randomY = r.nextInt(height);
-            if (randomX != getPlayerX() && randomY != getPlayerY()) {
-                OrchardObject obj = orchard.getObject(randomX, randomY);
-                if (obj instanceof FruitTree) {
-                    ((FruitTree) obj).mature();
+            for (int i = 0; i < MAX_MATURE_PER_GEN; i++) {
+                int randomX = random.nextInt(width);
+                int randomY = random.nextInt(height);
+                if (randomX != getPlayerX() && randomY != getPlayerY()) {
+                    OrchardObject obj = orchard.getObject(randomX, randomY);
+                    if (obj instanceof FruitTree && !((FruitTree) obj).isMature()) {
+                        Point p = new Point(randomX, randomY);
+                        // listed first, so a move that collects the fruit at once unlists it
+                        boolean listed = goodFruit.add(p);
+                        if (((FruitTree) obj).ripen()) {
+                            int cell = PackedCell.tree(orchard.getTypeId(
+                                            ((FruitTree) obj).getFruitType()));
+                            fireCellChanged(randomX, randomY, cell, PackedCell.mature(cell));
+                        } else if (listed) {
+                            goodFruit.remove(p);
+                        }
+                    }
                 }
             }
+            gen++;
         }
-        gen++;
+    }
+    
+    /**
+     * A player in the game together with its collection counters.
+     */
+    private static class Seat {
+        
+        private final Player player;
+        private final AtomicIntegerArray collected;
+        private volatile boolean out;
+        
+        private Seat(Player player, AtomicIntegerArray collected) {
+            this.player = player;
+            this.collected = collected;
+        }
+        
     }
     
 }
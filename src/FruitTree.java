@@ -1,19 +1,27 @@
 import java.awt.Color;
 import java.awt.Graphics;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
- * A fruit tree object
+ * A fruit tree object.<p>
+ * The state of a tree moves between three values: immature, mature with good fruit and
+ * mature with bad fruit. Every change is a single compare-and-set on that state, so when
+ * several players meet the same mature tree at once exactly one of them collects the fruit
+ * ({@link #claimFruit()}), and the fruit cannot turn bad and be collected at the same time.
  * 
  * @author yuyingf
  *
  */
 public class FruitTree implements OrchardObject {
     
-    private final String type;
-    private final Color color;
-    private boolean mature;
-    private boolean badFruit;
+    protected static final int MATURE = 1;
+    protected static final int BAD = 2;
+    private static final AtomicIntegerFieldUpdater<FruitTree> STATE =
+                    AtomicIntegerFieldUpdater.newUpdater(FruitTree.class, "state");
+    
+    private final FruitType fruitType;
+    private volatile int state;
 
     /**
      * Constructs a {@code FruitTree} given a fruit type and a color.
@@ -23,25 +31,38 @@ public class FruitTree implements OrchardObject {
      * @param color the color of the fruit the tree produces
      */
     public FruitTree(String type, Color color) {
-        this.type = type;
-        this.color = color;
-        this.mature = false;
-        this.badFruit = false;
+        this(FruitType.of(type, color));
+    }
+    
+    /**
+     * Constructs a {@code FruitTree} given a shared fruit type descriptor.
+     * A tree is not mature and doesn't bear bad fruit upon initiation.
+     * 
+     * @param fruitType the type of fruit the tree produces
+     */
+    public FruitTree(FruitType fruitType) {
+        this.fruitType = fruitType;
+        this.state = 0;
     }
     
     // A helper constructor for the clone method
-    private FruitTree(String type, Color color, boolean mature, boolean badFruit) {
-        this.type = type;
-        this.color = color;
-        this.mature = mature;
-        this.badFruit = badFruit;
+    private FruitTree(FruitType fruitType, boolean mature, boolean badFruit) {
+        this.fruitType = fruitType;
+        this.state = (mature ? MATURE : 0) | (badFruit ? BAD : 0);
     }
 
     /**
      * @return the type of fruit the tree produces
      */
     public String getType() {
-        return type;
+        return fruitType.getName();
+    }
+    
+    /**
+     * @return the shared descriptor of the type of fruit the tree produces
+     */
+    public FruitType getFruitType() {
+        return fruitType;
     }
 
     /**
@@ -49,37 +70,81 @@ public class FruitTree implements OrchardObject {
      * drawn on an orchard board
      */
     public Color getColor() {
-        return color;
+        return fruitType.getColor();
+    }
+    
+    /**
+     * @return the state of the tree, read at once: 0 if the tree is immature, {@code MATURE}
+     * if it has good fruit and {@code MATURE | BAD} if it has bad fruit
+     */
+    protected int readState() {
+        return state;
     }
     
     /**
      * @return {@code true} if the tree is mature and {@code false} otherwise
      */
     public boolean isMature() {
-        return mature;
+        return (state & MATURE) != 0;
     }
     
     /**
      * @return {@code true} if the tree is mature and bears bad fruit; {@code false} otherwise
      */
     public boolean isBadFruit() {
-        return mature && badFruit;
+        return state == (MATURE | BAD);
     }
     
     /**
      * Makes the tree mature.
      */
     public void mature() {
-        mature = true;
+        ripen();
     }
     
     /**
      * Makes the fruit on the tree turn bad. Does nothing if the tree is not mature.
      */
     public void turnBad() {
-        if (mature) {
-            badFruit = true;
-        }
+        spoilFruit();
+    }
+    
+    /**
+     * Makes the tree mature in one atomic step.
+     * 
+     * @return {@code true} if the tree was immature and is now mature; {@code false} if it
+     * was already mature
+     */
+    public boolean ripen() {
+        int s;
+        do {
+            s = state;
+            if ((s & MATURE) != 0) {
+                return false;
+            }
+        } while (!STATE.compareAndSet(this, s, s | MATURE));
+        return true;
+    }
+    
+    /**
+     * Turns good fruit on the tree bad in one atomic step.
+     * 
+     * @return {@code true} if the tree bore good fruit and now bears bad fruit; {@code false}
+     * if it was immature or its fruit was already bad
+     */
+    public boolean spoilFruit() {
+        return STATE.compareAndSet(this, MATURE, MATURE | BAD);
+    }
+    
+    /**
+     * Takes the good fruit off the tree in one atomic step, leaving it immature. Of any
+     * number of players claiming the same fruit at once, exactly one succeeds.
+     * 
+     * @return {@code true} if the tree bore good fruit and the caller took it; {@code false}
+     * if it was immature, its fruit was bad, or another caller took the fruit first
+     */
+    public boolean claimFruit() {
+        return STATE.compareAndSet(this, MATURE, 0);
     }
     
     /**
@@ -95,27 +160,13 @@ public class FruitTree implements OrchardObject {
             return false;
         }
         FruitTree other = (FruitTree) obj;
-        if (badFruit != other.isBadFruit()) {
-            return false;
-        }
-        if (color == null) {
-            if (other.getColor() != null) {
-                return false;
-            }
-        } else if (!color.equals(other.getColor())) {
-            return false;
-        }
-        if (mature != other.isMature()) {
+        if (isBadFruit() != other.isBadFruit()) {
             return false;
         }
-        if (type == null) {
-            if (other.getType() != null) {
-                return false;
-            }
-        } else if (!type.equals(other.getType())) {
+        if (isMature() != other.isMature()) {
             return false;
         }
-        return true;
+        return fruitType.equals(other.getFruitType());
     }
     
     /**
@@ -126,10 +177,9 @@ public class FruitTree implements OrchardObject {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + (badFruit ? 1231 : 1237);
-        result = prime * result + ((color == null) ? 0 : color.hashCode());
-        result = prime * result + (mature ? 1231 : 1237);
-        result = prime * result + ((type == null) ? 0 : type.hashCode());
+        result = prime * result + (isBadFruit() ? 1231 : 1237);
+        result = prime * result + (isMature() ? 1231 : 1237);
+        result = prime * result + fruitType.hashCode();
         return result;
     }
 
@@ -138,12 +188,12 @@ public class FruitTree implements OrchardObject {
      */
     @Override
     public String toString() {
-        return type;
+        return fruitType.getName();
     }
 
     /**
-     * If the tree is mature and has good fruit, updates the map of collected fruits,
-     * sets mature to false and returns false.<br>
+     * If the tree is mature and has good fruit, claims it with {@link #claimFruit()},
+     * updates the map of collected fruits and returns false.<br>
      * If the tree is mature and has bad fruit, does nothing to the map and returns true.<br>
      * If the tree is not mature, does nothing and returns false.
      * 
@@ -152,23 +202,53 @@ public class FruitTree implements OrchardObject {
      */
     @Override
     public boolean meetPlayer(Map<String, Integer> collected) {
-        if (isBadFruit()) {
-            return true;
-        }
-        if (isMature()) {
-            if (collected == null) {
+        if (collected == null) {
+            // one read of the state, so a concurrent ripen cannot slip in after the check
+            int s = readState();
+            if (s == MATURE) {
                 throw new IllegalArgumentException("map of collected fruits is null");
             }
+            return s == (MATURE | BAD);
+        }
+        if (claimFruit()) {
+            String type = getType();
             if (collected.containsKey(type)) {
                 collected.put(type, collected.get(type) + 1);
             } else {
                 collected.put(type, 1);
             }
-            mature = false;
+            return false;
         }
-        return false;
+        return isBadFruit();
     }
-
+    
+    /**
+     * Same as {@link #meetPlayer(Map)}, but counts the fruit collected in an array
+     * indexed by fruit type id. A fruit whose type has no counter in the array, or a negative
+     * counter, is picked but not counted.
+     * 
+     * @throws IllegalArgumentException if the tree is mature and has good fruit (i.e.) ready
+     * to be collected, but the array of collected fruits is null.
+     */
+    @Override
+    public boolean meetPlayerById(int[] collected) {
+        if (collected == null) {
+            int s = readState();
+            if (s == MATURE) {
+                throw new IllegalArgumentException("array of collected fruits is null");
+            }
+            return s == (MATURE | BAD);
+        }
+        if (claimFruit()) {
+            int id = fruitType.getId();
+            if (id < collected.length && collected[id] >= 0) {
+                collected[id]++;
+            }
+            return false;
+        }
+        return isBadFruit();
+    }
+    
     /**
      * Draws the tree with the given dimension at the location (px,py).<p>
      * An immature tree is an empty circle of its color.<br>
@@ -194,7 +274,7 @@ public class FruitTree implements OrchardObject {
      */
     @Override
     public OrchardObject clone() {
-        return new FruitTree(getType(), getColor(), isMature(), isBadFruit());
+        return new FruitTree(fruitType, isMature(), isBadFruit());
     }
 
 }
@@ -0,0 +1,160 @@
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A shared descriptor of a type of fruit. Descriptors are interned: there is exactly one
+ * {@code FruitType} per name and color, so trees of the same type share one descriptor
+ * instead of carrying their own name and color.<p>
+ * Every fruit name is given a dense {@code int} id, starting from 0, the first time it is
+ * seen. Descriptors with the same name but different colors share the id. Ids index arrays
+ * such as the collection counters of a {@code FruitCollectGame}, since fruit is collected by
+ * name, and {@link #byId(int)} returns the descriptor of the color first registered for the
+ * name. The cells of a board refer to descriptors by the type ids of that board instead
+ * ({@link OrchardBoard#getTypeId(FruitType)}).
+ *
+ * @author yuyingf
+ *
+ */
+public final class FruitType {
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<String, Integer>();
+    private static final Map<FruitType, FruitType> INTERNED =
+                    new ConcurrentHashMap<FruitType, FruitType>();
+    private static volatile FruitType[] byId = new FruitType[0];
+
+    private final int id;
+    private final String name;
+    private final Color color;
+
+    private FruitType(int id, String name, Color color) {
+        this.id = id;
+        this.name = name;
+        this.color = color;
+    }
+
+    /**
+     * Returns the descriptor of the given fruit, registering it if it is new.
+     *
+     * @param name the name of the fruit
+     * @param color the color of the fruit
+     * @return the unique {@code FruitType} with this name and color
+     * @throws IllegalArgumentException if the name is null
+     */
+    public static FruitType of(String name, Color color) {
+        if (name == null) {
+            throw new IllegalArgumentException("fruit name is null");
+        }
+        FruitType type = INTERNED.get(new FruitType(-1, name, color));
+        if (type == null) {
+            type = register(name, color);
+        }
+        return type;
+    }
+
+    private static synchronized FruitType register(String name, Color color) {
+        FruitType key = new FruitType(-1, name, color);
+        FruitType type = INTERNED.get(key);
+        if (type != null) {
+            return type;
+        }
+        Integer id = IDS.get(name);
+        if (id == null) {
+            id = byId.length;
+            type = new FruitType(id, name, color);
+            FruitType[] grown = Arrays.copyOf(byId, id + 1);
+            grown[id] = type;
+            byId = grown;
+            IDS.put(name, id);
+        } else {
+            type = new FruitType(id, name, color);
+        }
+        INTERNED.put(type, type);
+        return type;
+    }
+
+    /**
+     * @param id the id of a fruit
+     * @return the descriptor first registered for the fruit with this id
+     * @throws IllegalArgumentException if no fruit has this id
+     */
+    public static FruitType byId(int id) {
+        FruitType[] types = byId;
+        if (id < 0 || id >= types.length) {
+            throw new IllegalArgumentException("unknown fruit type id: " + id);
+        }
+        return types[id];
+    }
+
+    /**
+     * @param name the name of a fruit
+     * @return the id of the fruit; -1 if no fruit with this name has been registered
+     */
+    public static int idOf(String name) {
+        Integer id = name == null ? null : IDS.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the number of fruit names registered so far, which is one more than the
+     * largest id handed out
+     */
+    public static int count() {
+        return byId.length;
+    }
+
+    /**
+     * @return the id of the fruit, shared by every color of its name
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the name of the fruit
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the color of the fruit
+     */
+    public Color getColor() {
+        return color;
+    }
+
+    /**
+     * Compares fruit types by name and color.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FruitType)) {
+            return false;
+        }
+        FruitType other = (FruitType) obj;
+        return name.equals(other.name) && Objects.equals(color, other.color);
+    }
+
+    /**
+     * A hashcode computed from the name and color of the fruit.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + Objects.hashCode(color);
+    }
+
+    /**
+     * Returns the name of the fruit.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
@@ -1,12 +1,18 @@
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.EventQueue;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
-import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
 import javax.swing.JButton;
 import java.awt.event.ActionListener;
@@ -18,15 +24,25 @@ import javax.swing.JOptionPane;
 
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 
 /**
- * Main GUI class that displays and runs the FruitCollect! game.
+ * Main GUI class that displays and runs the FruitCollect! game. Generations are driven by
+ * a {@code GenerationScheduler} shared by every game window in the process. Key presses
+ * queue their moves in a {@code MoveQueue}, which is emptied by one event after the key
+ * events already waiting, so a burst of auto-repeated presses is played as one batch and
+ * the labels and the orchard are updated once for it. With {@code --record path}, the game
+ * is recorded in a {@code ReplayLog}, saved to the path when the game ends or the window is
+ * closed, which {@code Replayer} plays again.
  * 
  * @author yuyingf
  *
  */
 public class Game {
 
+    private static final GenerationScheduler SCHEDULER = new GenerationScheduler();
+    
     private JFrame frame;
     private JPanel contentPane;
     private JPanel gamePanel;
@@ -36,18 +52,35 @@ public class Game {
     
     private FruitCollectGame game;
     private Map<String, Color> fruits;
-    private int secondsToNextGen;
+    private GenerationScheduler.Task generations;
+    private GenerationScheduler.Task countdown;
+    private final MoveQueue moves = new MoveQueue();
+    private final Direction[] batch = new Direction[MoveQueue.DEFAULT_CAPACITY];
+    private final long[] pressed = new long[MoveQueue.DEFAULT_CAPACITY];
+    // whether an event to play the queued moves is on its way; only used on the event thread
+    private boolean playPending;
+    private ReplayLog replayLog;
+    private Path replayPath;
     private static final int GRID_WIDTH_DEFAULT = 30;
     private static final int GRID_HEIGHT_DEFAULT = 30;
 
     /**
-     * Launch the game GUI.
+     * Launch the game GUI. With the {@code --active} option, the game is run in
+     * active-render mode by {@code ActiveGame} instead; with {@code --record path}, the game
+     * is recorded to the path.
      */
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--active")) {
+            ActiveGame.main(args);
+            return;
+        }
+        int record = Arrays.asList(args).indexOf("--record");
+        Path replayPath = record >= 0 && record + 1 < args.length ? Paths.get(args[record + 1])
+                        : null;
         EventQueue.invokeLater(new Runnable() {
             public void run() {
                 try {
-                    Game window = new Game();
+                    Game window = new Game(replayPath);
                     window.frame.setVisible(true);
                     window.gamePanel.requestFocusInWindow();
                 } catch (Exception e) {
@@ -61,12 +94,28 @@ public class Game {
      * Create the game GUI.
      */
     public Game() {
-        // creates the game
+        this(null);
+    }
+    
+    /**
+     * Create the game GUI, recording the game.
+     * 
+     * @param replayPath where to save the replay log of the game; null to not record it
+     */
+    public Game(Path replayPath) {
+        // creates the game from a seed of its own, so that a recording can rebuild it
         fruits = new HashMap<String, Color>();
         fruits.put("Apple", Color.RED);
         fruits.put("Banana", Color.YELLOW);
         fruits.put("Peach", Color.PINK);
-        game = new FruitCollectGame(fruits);
+        BoardSpec spec = new BoardSpec(fruits);
+        long seed = new Random().nextLong();
+        game = spec.newGame(seed);
+        this.replayPath = replayPath;
+        if (replayPath != null) {
+            replayLog = new ReplayLog(spec, seed);
+            game.setReplayLog(replayLog);
+        }
         game.nextGen();
         
         // initializes the frame
@@ -75,6 +124,12 @@ public class Game {
                         FruitCollectGame.DEFAULT_ORCHARD_HEIGHT * GRID_HEIGHT_DEFAULT + 130);
         frame.setFocusable(true);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                saveReplay();
+            }
+        });
         contentPane = new JPanel();
         contentPane.setBorder(new EmptyBorder(5, 5, 5, 5));
         frame.setContentPane(contentPane);
@@ -83,47 +138,14 @@ public class Game {
         JPanel topPanel = new JPanel();
         contentPane.add(topPanel, BorderLayout.NORTH);
         
-        secondsToNextGen = FruitCollectGame.DEFAULT_SECONDS_PER_GEN;
-        lblTimer.setText(secondsToNextGen + " seconds remaining until next generation");
-        
-        // a timer that updates the timer label every second
-        Timer timer = new Timer(1000, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent arg0) {
-                if (!game.hasEnded()) {
-                    if (secondsToNextGen > 0) {
-                        secondsToNextGen--;
-                    } else {
-                        secondsToNextGen = FruitCollectGame.DEFAULT_SECONDS_PER_GEN;
-                    }
-                    if (secondsToNextGen == 0) {
-                        game.nextGen();
-                        lblTimer.setForeground(Color.RED);
-                        lblTimer.setText("NEXT GENERATION");
-                        lblGenNum.setText("Generation: " + game.getGen() + "/"
-                                + FruitCollectGame.DEFAULT_MAX_GEN);
-                    } else {
-                        lblTimer.setForeground(Color.BLACK);
-                        lblTimer.setText(secondsToNextGen
-                                        + " seconds remaining until next generation");
-                    }
-                    frame.repaint();
-                    if (game.getGen() > FruitCollectGame.DEFAULT_MAX_GEN) {
-                        game.endGame();
-                        int optionStatus = JOptionPane.showConfirmDialog(frame, "YOU LOST :(",
-                                        "Game Over", JOptionPane.PLAIN_MESSAGE);
-                        if (optionStatus == JOptionPane.OK_OPTION) {
-                            System.exit(0);
-                        }
-                    }
-                }
-            }
-        });
+        lblTimer.setText(FruitCollectGame.DEFAULT_SECONDS_PER_GEN
+                        + " seconds remaining until next generation");
         
         JButton btnInstructions = new JButton("Instructions");
         btnInstructions.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent arg0) {
-                timer.stop();
+                generations.pause();
+                countdown.pause();
                 int optionStatus = JOptionPane.showConfirmDialog(frame, 
                                 "WELCOME, farmer, to the Magical Orchard! You are sent here "
                                 + "to collect \nas many Magical Fruits as possible. You can see "
@@ -157,7 +179,8 @@ public class Game {
                                 "Instructions", JOptionPane.PLAIN_MESSAGE);
                 if (optionStatus == JOptionPane.OK_OPTION) {
                     gamePanel.requestFocusInWindow();
-                    timer.start();
+                    generations.resume();
+                    countdown.resume();
                 }
             }
         });
@@ -166,49 +189,35 @@ public class Game {
         topPanel.add(lblTimer);
         
         gamePanel = new OrchardPanel(game, GRID_WIDTH_DEFAULT, GRID_HEIGHT_DEFAULT);
-        // resizes the orchard grids when the window is resized
+        // the camera shows more or less of the orchard when the window is resized
         gamePanel.addComponentListener(new ComponentAdapter() {
             @Override
             public void componentResized(ComponentEvent arg0) {
-                ((OrchardPanel) gamePanel).setGridWidth(gamePanel.getWidth() / game.getWidth());
-                ((OrchardPanel) gamePanel).setGridHeight(gamePanel.getHeight() / game.getHeight());
                 frame.repaint();
             }
         });
-        // keyboard control with arrow keys
+        // keyboard control with arrow keys; + and - zoom in and out; F3 shows the timings
         gamePanel.setFocusable(true);
         gamePanel.addKeyListener(new KeyAdapter() {
             public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_F3) {
+                    ((OrchardPanel) gamePanel).toggleOverlay();
+                } else if (e.getKeyCode() == KeyEvent.VK_EQUALS
+                                || e.getKeyCode() == KeyEvent.VK_ADD) {
+                    ((OrchardPanel) gamePanel).zoomIn();
+                } else if (e.getKeyCode() == KeyEvent.VK_MINUS
+                                || e.getKeyCode() == KeyEvent.VK_SUBTRACT) {
+                    ((OrchardPanel) gamePanel).zoomOut();
+                }
                 if (!game.hasEnded()) {
                     if (e.getKeyCode() == KeyEvent.VK_LEFT) {
-                        game.move(game.getPlayerX() - 1, game.getPlayerY());
+                        queueMove(e, Direction.LEFT);
                     } else if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
-                        game.move(game.getPlayerX() + 1, game.getPlayerY());
+                        queueMove(e, Direction.RIGHT);
                     } else if (e.getKeyCode() == KeyEvent.VK_DOWN) {
-                        game.move(game.getPlayerX(), game.getPlayerY() + 1);
+                        queueMove(e, Direction.DOWN);
                     } else if (e.getKeyCode() == KeyEvent.VK_UP) {
-                        game.move(game.getPlayerX(), game.getPlayerY() - 1);
-                    }
-                    String collectionStatus = "";
-                    for (String fruit : fruits.keySet()) {
-                        collectionStatus += fruit + ": " + game.numCollected(fruit) + "/"
-                                        + FruitCollectGame.MIN_GOAL_PER_TYPE + "  ";
-                    }
-                    lblCollected.setText(collectionStatus);
-                    frame.repaint();
-                    if (game.hasEnded()) {
-                        timer.stop();
-                        int optionStatus;
-                        if (game.goalAccomplished()) {
-                            optionStatus = JOptionPane.showConfirmDialog(frame, "YOU WON :D",
-                                            "Game Over", JOptionPane.PLAIN_MESSAGE);
-                        } else {
-                            optionStatus = JOptionPane.showConfirmDialog(frame, "YOU LOST :(",
-                                            "Game Over", JOptionPane.PLAIN_MESSAGE);
-                        }
-                        if (optionStatus == JOptionPane.OK_OPTION) {
-                            System.exit(0);
-                        }
+                        queueMove(e, Direction.UP);
                     }
                 }
             }
@@ -229,7 +238,113 @@ public class Game {
         lblGenNum.setText("Generation: " + game.getGen() + "/" + FruitCollectGame.DEFAULT_MAX_GEN);
         bottomPanel.add(lblGenNum);
         
-        timer.start();
+        // a new generation every few seconds, and the timer label updated every second
+        generations = SCHEDULER.schedule(game, FruitCollectGame.DEFAULT_SECONDS_PER_GEN * 1000L,
+                        FruitCollectGame.DEFAULT_MAX_GEN,
+                        g -> EventQueue.invokeLater(this::showGen));
+        countdown = SCHEDULER.scheduleAtFixedRate(() -> EventQueue.invokeLater(this::countDown),
+                        1000);
+    }
+    
+    // Shows a new generation, run by a worker of the scheduler, and the end of the game once
+    // it runs out of generations
+    private void showGen() {
+        getPerfStats().getTickTimes().record(generations.getLastRunNanos());
+        lblTimer.setForeground(Color.RED);
+        lblTimer.setText("NEXT GENERATION");
+        lblGenNum.setText("Generation: " + game.getGen() + "/" + FruitCollectGame.DEFAULT_MAX_GEN);
+        ((OrchardPanel) gamePanel).repaintDirtyCells();
+        if (game.getGen() > FruitCollectGame.DEFAULT_MAX_GEN) {
+            countdown.cancel();
+            saveReplay();
+            int optionStatus = JOptionPane.showConfirmDialog(frame, "YOU LOST :(",
+                            "Game Over", JOptionPane.PLAIN_MESSAGE);
+            if (optionStatus == JOptionPane.OK_OPTION) {
+                System.exit(0);
+            }
+        }
+    }
+    
+    // Updates the timer label with the whole seconds left until the next generation; the
+    // label keeps saying NEXT GENERATION for the first second of a generation
+    private void countDown() {
+        if (game.hasEnded()) {
+            return;
+        }
+        long seconds = Math.round(generations.getMillisToNextRun() / 1000.0);
+        if (seconds > 0 && seconds < FruitCollectGame.DEFAULT_SECONDS_PER_GEN) {
+            lblTimer.setForeground(Color.BLACK);
+            lblTimer.setText(seconds + " seconds remaining until next generation");
+        }
+    }
+    
+    // Queues the move of a key press, and an event to play it unless one is on its way. A
+    // press is dropped if the queue is full of moves not yet played
+    private void queueMove(KeyEvent e, Direction direction) {
+        moves.offer(direction, PerfStats.pressedAt(e.getWhen(), System.nanoTime()));
+        if (!playPending) {
+            playPending = true;
+            EventQueue.invokeLater(this::playMoves);
+        }
+    }
+    
+    // Plays the queued moves as one batch, timing it, then updates the labels and the
+    // orchard; the latency of each key press is recorded once the panel paints the player's
+    // new position. The moves left after the game ends are dropped
+    private void playMoves() {
+        playPending = false;
+        int count = moves.drain(batch, pressed);
+        if (count == 0 || game.hasEnded()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int played = game.movePath(0, batch, 0, count);
+        long moveNanos = (System.nanoTime() - start) / Math.max(1, played);
+        PerfStats stats = getPerfStats();
+        for (int i = 0; i < played; i++) {
+            stats.getMoveTimes().record(moveNanos);
+            stats.inputHandled(pressed[i], start, moveNanos);
+        }
+        String collectionStatus = "";
+        for (String fruit : fruits.keySet()) {
+            collectionStatus += fruit + ": " + game.numCollected(fruit) + "/"
+                            + FruitCollectGame.MIN_GOAL_PER_TYPE + "  ";
+        }
+        lblCollected.setText(collectionStatus);
+        ((OrchardPanel) gamePanel).repaintDirtyCells();
+        if (game.hasEnded()) {
+            generations.cancel();
+            countdown.cancel();
+            saveReplay();
+            int optionStatus;
+            if (game.goalAccomplished()) {
+                optionStatus = JOptionPane.showConfirmDialog(frame, "YOU WON :D",
+                                "Game Over", JOptionPane.PLAIN_MESSAGE);
+            } else {
+                optionStatus = JOptionPane.showConfirmDialog(frame, "YOU LOST :(",
+                                "Game Over", JOptionPane.PLAIN_MESSAGE);
+            }
+            if (optionStatus == JOptionPane.OK_OPTION) {
+                System.exit(0);
+            }
+        }
+    }
+    
+    // Saves the replay log, if the game is recorded, over any saved before
+    private void saveReplay() {
+        if (replayLog == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(replayPath, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            replayLog.write(channel);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    private PerfStats getPerfStats() {
+        return ((OrchardPanel) gamePanel).getPerfStats();
     }
 
 }
@@ -0,0 +1,163 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A blocking client of a {@code GameServer}. Each request waits for its reply, and the state
+ * of the player in the last reply is kept for the getters.<p>
+ * A client is not thread-safe; use one client per session and per thread.
+ *
+ * @author yuyingf
+ *
+ */
+public class GameClient implements AutoCloseable {
+
+    private final SocketChannel channel;
+    private final ByteBuffer out = ByteBuffer.allocate(GameProtocol.MAX_FRAME);
+    private final ByteBuffer in = ByteBuffer.allocate(GameProtocol.MAX_FRAME);
+    private GameOutcome outcome;
+    private int playerX;
+    private int playerY;
+    private int gen;
+    private int collected;
+
+    /**
+     * Connects to a server.
+     *
+     * @param address the address of the server: an {@code InetSocketAddress} or a
+     * {@code UnixDomainSocketAddress}
+     * @throws IOException if the server cannot be reached
+     */
+    public GameClient(SocketAddress address) throws IOException {
+        channel = address instanceof UnixDomainSocketAddress
+                        ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+        try {
+            channel.connect(address);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts a new game, replacing the one played so far.
+     *
+     * @param seed the seed the orchard of the game is generated from
+     * @throws IOException if the server cannot be reached or answers with an error
+     */
+    public void newGame(long seed) throws IOException {
+        GameProtocol.putNewGame(out, seed);
+        call();
+    }
+
+    /**
+     * Moves the player one step in the direction specified.
+     *
+     * @param direction the direction to move the player in
+     * @throws IOException if the server cannot be reached or answers with an error
+     */
+    public void move(Direction direction) throws IOException {
+        GameProtocol.putMove(out, direction);
+        call();
+    }
+
+    /**
+     * Advances the game one generation.
+     *
+     * @throws IOException if the server cannot be reached or answers with an error
+     */
+    public void nextGen() throws IOException {
+        out.put(GameProtocol.NEXT_GEN);
+        call();
+    }
+
+    // Sends the request in the out buffer and reads its reply
+    private void call() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+        in.clear();
+        in.limit(1);
+        fill();
+        int length = GameProtocol.frameLength(in.get(0));
+        if (length < 0) {
+            throw new IOException("unknown reply: " + in.get(0));
+        }
+        in.limit(length);
+        fill();
+        in.flip();
+        if (in.get() == GameProtocol.ERROR) {
+            throw new IOException("server error " + in.get());
+        }
+        outcome = GameProtocol.outcome(in.get());
+        playerX = in.getInt();
+        playerY = in.getInt();
+        gen = in.getInt();
+        collected = in.getInt();
+    }
+
+    // Reads until the in buffer is full up to its limit
+    private void fill() throws IOException {
+        while (in.hasRemaining()) {
+            if (channel.read(in) < 0) {
+                throw new EOFException("server closed the connection");
+            }
+        }
+    }
+
+    /**
+     * @return how the game stood after the last request
+     */
+    public GameOutcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return the x-coordinate of the player after the last request
+     */
+    public int getPlayerX() {
+        return playerX;
+    }
+
+    /**
+     * @return the y-coordinate of the player after the last request
+     */
+    public int getPlayerY() {
+        return playerY;
+    }
+
+    /**
+     * @return the generation number after the last request
+     */
+    public int getGen() {
+        return gen;
+    }
+
+    /**
+     * @return the total number of fruit collected after the last request
+     */
+    public int getCollected() {
+        return collected;
+    }
+
+    /**
+     * Ends the session and disconnects.
+     */
+    @Override
+    public void close() {
+        try (SocketChannel c = channel) {
+            out.clear();
+            out.put(GameProtocol.QUIT).flip();
+            c.write(out);
+        } catch (IOException e) {
+            // the server has closed the connection already
+        }
+    }
+
+}
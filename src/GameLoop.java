@@ -0,0 +1,273 @@
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Runs a {@code FruitCollectGame} on a fixed-timestep tick, decoupled from how often frames
+ * are rendered. The loop owns the game: it is only changed on the loop's thread, and other
+ * threads {@link #post(Runnable)} their changes to be run at the start of the next tick.
+ * Moves, such as those of key presses on the Swing event thread, are offered to the loop's
+ * {@link #getMoves() MoveQueue} instead, and every tick plays all the moves queued since the
+ * last in one batch.<p>
+ * Every frame, the time elapsed since the last one is added to an accumulator, and a tick is
+ * run for every full tick period in it. A frame that falls far behind runs a bounded number
+ * of ticks and drops the rest of the time, rather than spiralling into ever longer frames.
+ * The frame is then rendered with the fraction of a tick left in the accumulator, which
+ * the renderer uses to draw the player between its positions of the last two ticks. Frames
+ * are paced to the target rate by parking until the next frame is due.<p>
+ * A new generation comes every {@code ticksPerGen} ticks, so generations can be much shorter
+ * than a second without involving the event thread.
+ * 
+ * @author yuyingf
+ *
+ */
+public class GameLoop implements Runnable {
+    
+    /**
+     * Renders a frame of the game.
+     */
+    public interface FrameRenderer {
+        
+        /**
+         * Renders a frame.
+         * 
+         * @param alpha how far the frame is between the last tick and the next, from 0
+         * inclusive to 1 exclusive
+         */
+        void render(double alpha);
+    }
+    
+    public static final int MIN_CATCH_UP_TICKS = 5;
+    
+    private final FruitCollectGame game;
+    private final long tickNanos;
+    private final int ticksPerGen;
+    private final int maxGen;
+    private final long frameNanos;
+    private final int maxTicksPerFrame;
+    private final Queue<Runnable> tasks;
+    private final MoveQueue moves = new MoveQueue();
+    private final Direction[] batch = new Direction[MoveQueue.DEFAULT_CAPACITY];
+    private final long[] pressed = new long[MoveQueue.DEFAULT_CAPACITY];
+    private volatile boolean running;
+    private FrameRenderer renderer;
+    private Consumer<GameLoop> listener;
+    private PerfStats stats;
+    private long ticks;
+    private int previousX;
+    private int previousY;
+    
+    /**
+     * Constructs a {@code GameLoop} for a game.
+     * 
+     * @param game the game to run
+     * @param ticksPerSecond the number of ticks run per second
+     * @param ticksPerGen the number of ticks in a generation
+     * @param maxGen the number of generations after which the game ends
+     * @param targetFps the number of frames rendered per second
+     * @throws IllegalArgumentException if the game is null or any number is not positive
+     */
+    public GameLoop(FruitCollectGame game, int ticksPerSecond, int ticksPerGen, int maxGen,
+                    int targetFps) {
+        if (game == null) {
+            throw new IllegalArgumentException("game is null");
+        }
+        if (ticksPerSecond <= 0 || ticksPerGen <= 0 || maxGen <= 0 || targetFps <= 0) {
+            throw new IllegalArgumentException("invalid loop rates");
+        }
+        this.game = game;
+        this.tickNanos = TimeUnit.SECONDS.toNanos(1) / ticksPerSecond;
+        this.ticksPerGen = ticksPerGen;
+        this.maxGen = maxGen;
+        this.frameNanos = TimeUnit.SECONDS.toNanos(1) / targetFps;
+        this.maxTicksPerFrame = (int) Math.max(MIN_CATCH_UP_TICKS,
+                        2 * (frameNanos / tickNanos + 1));
+        this.tasks = new ConcurrentLinkedQueue<Runnable>();
+        previousX = game.getPlayerX();
+        previousY = game.getPlayerY();
+    }
+    
+    /**
+     * @return the game run by this loop
+     */
+    public FruitCollectGame getGame() {
+        return game;
+    }
+    
+    /**
+     * Sets what renders the frames. Must be called before the loop is started.
+     * 
+     * @param renderer the renderer of the frames; null to render nothing
+     */
+    public void setRenderer(FrameRenderer renderer) {
+        this.renderer = renderer;
+    }
+    
+    /**
+     * Sets what is told about every tick, on the loop's thread, after the tick has run.
+     * Must be called before the loop is started.
+     * 
+     * @param listener the listener; null for none
+     */
+    public void setListener(Consumer<GameLoop> listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * Sets where the time taken by every tick is recorded. Must be called before the loop
+     * is started.
+     * 
+     * @param stats the stats to record the ticks in; null to not time them
+     */
+    public void setPerfStats(PerfStats stats) {
+        this.stats = stats;
+    }
+    
+    /**
+     * Queues a task, such as a move, to run on the loop's thread at the start of the next
+     * tick. May be called from any thread.
+     * 
+     * @param task the task to run
+     */
+    public void post(Runnable task) {
+        tasks.add(task);
+    }
+    
+    /**
+     * @return the queue of the player's moves, played at the start of the next tick. The
+     * time a move is offered with is when it was asked for, such as when its key was
+     * pressed, and is recorded as the start of its input latency.
+     */
+    public MoveQueue getMoves() {
+        return moves;
+    }
+    
+    /**
+     * Runs one tick: the queued tasks and moves, then a new generation if one is due. The
+     * game ends once it goes past the last generation. Nothing but the queued tasks runs
+     * once the game has ended.
+     */
+    public void tick() {
+        long start = System.nanoTime();
+        previousX = game.getPlayerX();
+        previousY = game.getPlayerY();
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+        playMoves();
+        if (!game.hasEnded()) {
+            ticks++;
+            if (ticks % ticksPerGen == 0) {
+                game.nextGen();
+                if (game.getGen() > maxGen) {
+                    game.endGame();
+                }
+            }
+        }
+        if (stats != null) {
+            stats.getTickTimes().recordSince(start);
+        }
+        if (listener != null) {
+            listener.accept(this);
+        }
+    }
+    
+    // Plays the moves queued since the last tick as one batch. The moves left after the
+    // game ends are dropped
+    private void playMoves() {
+        int count = moves.drain(batch, pressed);
+        if (count == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        int played = game.movePath(0, batch, 0, count);
+        if (stats != null && played > 0) {
+            long moveNanos = (System.nanoTime() - start) / played;
+            for (int i = 0; i < played; i++) {
+                stats.getMoveTimes().record(moveNanos);
+                stats.inputHandled(pressed[i], start, moveNanos);
+            }
+        }
+    }
+    
+    /**
+     * Runs ticks and renders frames until {@link #stop()} is called.
+     */
+    @Override
+    public void run() {
+        running = true;
+        long previous = System.nanoTime();
+        long nextFrame = previous;
+        long accumulator = 0;
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+            int steps = 0;
+            while (running && accumulator >= tickNanos && steps < maxTicksPerFrame) {
+                tick();
+                accumulator -= tickNanos;
+                steps++;
+            }
+            if (accumulator >= tickNanos) {
+                // too far behind to catch up; the game slows down instead
+                accumulator %= tickNanos;
+            }
+            if (renderer != null) {
+                renderer.render((double) accumulator / tickNanos);
+            }
+            nextFrame += frameNanos;
+            long sleep = nextFrame - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+            } else if (-sleep > frameNanos) {
+                // a frame was missed; start pacing afresh instead of rendering a burst
+                nextFrame = System.nanoTime();
+            }
+        }
+    }
+    
+    /**
+     * Stops the loop after the current frame, running no more ticks in it.
+     */
+    public void stop() {
+        running = false;
+    }
+    
+    /**
+     * @return the number of ticks run while the game was in progress
+     */
+    public long getTicks() {
+        return ticks;
+    }
+    
+    /**
+     * @return the number of seconds left until the next generation
+     */
+    public double getSecondsToNextGen() {
+        long left = ticksPerGen - ticks % ticksPerGen;
+        return left * tickNanos / 1e9;
+    }
+    
+    /**
+     * @param alpha how far a frame is between the last tick and the next
+     * @return the x-coordinate of the player to draw in the frame, between its positions
+     * of the last two ticks
+     */
+    public double getPlayerX(double alpha) {
+        return previousX + (game.getPlayerX() - previousX) * alpha;
+    }
+    
+    /**
+     * @param alpha how far a frame is between the last tick and the next
+     * @return the y-coordinate of the player to draw in the frame, between its positions
+     * of the last two ticks
+     */
+    public double getPlayerY(double alpha) {
+        return previousY + (game.getPlayerY() - previousY) * alpha;
+    }
+
+}
@@ -0,0 +1,20 @@
+/**
+ * How a {@code FruitCollectGame} stands or ended.
+ * 
+ * @author yuyingf
+ *
+ */
+public enum GameOutcome {
+    
+    /** The game has not ended. */
+    IN_PROGRESS,
+    /** The collection goal was accomplished. */
+    WON,
+    /** The player fell into a pond. */
+    DROWNED,
+    /** The player ate bad fruit. */
+    POISONED,
+    /** The game was ended from outside, e.g. when it ran out of generations. */
+    STOPPED
+
+}
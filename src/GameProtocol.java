@@ -0,0 +1,123 @@
+import java.nio.ByteBuffer;
+
+/**
+ * The binary protocol spoken between a {@code GameServer} and its clients. Every message is
+ * a frame of an opcode byte followed by a payload of fixed length, in big-endian order:
+ * <pre>
+ * client to server
+ *   NEW_GAME  0x01  seed (long)          starts a new game built from the seed
+ *   MOVE      0x02  direction (byte)     moves the player one step
+ *   NEXT_GEN  0x03                       advances the game one generation
+ *   QUIT      0x04                       ends the session
+ * server to client
+ *   STATE     0x10  outcome (byte), x, y, gen, collected (int each)
+ *   ERROR     0x11  code (byte)
+ * </pre>
+ * Every request but {@code QUIT} is answered with exactly one reply, in order, so a client
+ * may send several requests before reading their replies.
+ *
+ * @author yuyingf
+ *
+ */
+public final class GameProtocol {
+
+    public static final byte NEW_GAME = 0x01;
+    public static final byte MOVE = 0x02;
+    public static final byte NEXT_GEN = 0x03;
+    public static final byte QUIT = 0x04;
+    public static final byte STATE = 0x10;
+    public static final byte ERROR = 0x11;
+
+    /** The request was sent before any {@code NEW_GAME}. */
+    public static final byte NO_GAME = 1;
+    /** The opcode or the direction of the request is unknown. */
+    public static final byte BAD_REQUEST = 2;
+    /** The server hosts as many sessions as it can. */
+    public static final byte BUSY = 3;
+
+    /** The length of the longest frame, in bytes. */
+    public static final int MAX_FRAME = 18;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final GameOutcome[] OUTCOMES = GameOutcome.values();
+
+    private GameProtocol() {
+    }
+
+    /**
+     * @param opcode the opcode of a frame
+     * @return the length of the frame in bytes, including the opcode; -1 if the opcode is
+     * unknown
+     */
+    public static int frameLength(byte opcode) {
+        switch (opcode) {
+        case NEW_GAME:
+            return 9;
+        case MOVE:
+            return 2;
+        case NEXT_GEN:
+        case QUIT:
+            return 1;
+        case STATE:
+            return 18;
+        case ERROR:
+            return 2;
+        default:
+            return -1;
+        }
+    }
+
+    /**
+     * @param buffer the buffer to put the request in
+     * @param seed the seed of the new game
+     */
+    public static void putNewGame(ByteBuffer buffer, long seed) {
+        buffer.put(NEW_GAME).putLong(seed);
+    }
+
+    /**
+     * @param buffer the buffer to put the request in
+     * @param direction the direction to move the player in
+     */
+    public static void putMove(ByteBuffer buffer, Direction direction) {
+        buffer.put(MOVE).put((byte) direction.ordinal());
+    }
+
+    /**
+     * @param code the direction byte of a {@code MOVE} request
+     * @return the direction encoded; null if the byte encodes none
+     */
+    public static Direction direction(byte code) {
+        return code >= 0 && code < DIRECTIONS.length ? DIRECTIONS[code] : null;
+    }
+
+    /**
+     * Puts the state of the player of a game.
+     *
+     * @param buffer the buffer to put the reply in
+     * @param game the game whose state to put
+     * @param collected the total number of fruit collected in the game
+     */
+    public static void putState(ByteBuffer buffer, FruitCollectGame game, int collected) {
+        buffer.put(STATE).put((byte) game.getOutcome().ordinal())
+                        .putInt(game.getPlayerX()).putInt(game.getPlayerY())
+                        .putInt(game.getGen()).putInt(collected);
+    }
+
+    /**
+     * @param code the outcome byte of a {@code STATE} reply
+     * @return the outcome encoded; null if the byte encodes none
+     */
+    public static GameOutcome outcome(byte code) {
+        return code >= 0 && code < OUTCOMES.length ? OUTCOMES[code] : null;
+    }
+
+    /**
+     * @param buffer the buffer to put the reply in
+     * @param code the error code
+     */
+    public static void putError(ByteBuffer buffer, byte code) {
+        buffer.put(ERROR).put(code);
+    }
+
+}
@@ -0,0 +1,467 @@
+import java.awt.Color;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Saves and restores orchard boards and games in a compact binary format. Data is written
+ * and read through a small buffer, so boards of any size are streamed without being held
+ * in memory twice.<p>
+ * The format starts with a header: the magic number {@code "FCOR"}, the format
+ * {@value #VERSION} and whether a board or a game follows. Then comes the table of fruit types,
+ * each with its name and color; a name grown in two colors has two entries. Fruit type ids
+ * belong to the board that handed them out, so cells refer to a type by its position in
+ * this table instead. A game then has its player position, generation, whether
+ * it has ended and, for each entry of the table, the number of fruit of its name collected.
+ * Last come the dimensions of the board and its cells in row-major order, as runs of
+ * identical {@link PackedCell}s: a run length and the cell it repeats.<p>
+ * A restored board is a {@code CopyOnWriteOrchardBoard}, so a restored game can be saved again
+ * while it is played without copying its orchard, and a restored game has the default
+ * collection goal.
+ * 
+ * @author yuyingf
+ *
+ */
+public final class GameSerializer {
+    
+    public static final int MAGIC = 0x46434F52;
+    public static final int VERSION = 1;
+    
+    private static final int BOARD = 0;
+    private static final int GAME = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int TYPE_MASK = -1 << PackedCell.TYPE_SHIFT;
+    
+    private GameSerializer() {
+    }
+    
+    /**
+     * Writes an orchard board to a channel.
+     * 
+     * @param board the board to write
+     * @param channel the channel to write to
+     * @throws IOException if the channel cannot be written to
+     * @throws IllegalArgumentException if the board or channel is null
+     */
+    public static void writeBoard(OrchardBoard board, WritableByteChannel channel)
+                    throws IOException {
+        if (board == null || channel == null) {
+            throw new IllegalArgumentException("board or channel is null");
+        }
+        Output out = new Output(channel);
+        int[] localIds = writeHeader(out, BOARD, board, typeTable(board.getTreeTypes()));
+        writeCells(out, board, localIds);
+        out.flush();
+    }
+    
+    /**
+     * Writes a game, including its orchard, to a channel. The collection goal is not saved.
+     * The orchard is snapshot and the rest of the state read while no player moves and no
+     * generation runs, so a game played on other threads is saved as it was at one moment;
+     * the game is held still for as long as the snapshot takes, which is constant time when
+     * the game is played on a {@code CopyOnWriteOrchardBoard} (see
+     * {@link FruitCollectGame#snapshotOrchard()}), and the snapshot is then written while the
+     * game goes on.
+     * 
+     * @param game the game to write
+     * @param channel the channel to write to
+     * @throws IOException if the channel cannot be written to
+     * @throws IllegalArgumentException if the game or channel is null
+     */
+    public static void writeGame(FruitCollectGame game, WritableByteChannel channel)
+                    throws IOException {
+        if (game == null || channel == null) {
+            throw new IllegalArgumentException("game or channel is null");
+        }
+        GameState state = game.readStill(() -> new GameState(game));
+        OrchardBoard board = state.board;
+        try {
+            Output out = new Output(channel);
+            int[] localIds = writeHeader(out, GAME, board, state.types);
+            out.putInt(state.playerX);
+            out.putInt(state.playerY);
+            out.putInt(state.gen);
+            out.putByte(state.ended ? 1 : 0);
+            for (int count : state.counts) {
+                out.putInt(count);
+            }
+            writeCells(out, board, localIds);
+            out.flush();
+        } finally {
+            if (board instanceof ChunkedOrchardBoard) {
+                ((ChunkedOrchardBoard) board).close();
+            }
+        }
+    }
+    
+    /**
+     * Reads an orchard board written by {@link #writeBoard(OrchardBoard, WritableByteChannel)}.
+     * 
+     * @param channel the channel to read from
+     * @return the board read
+     * @throws IOException if the channel cannot be read from or does not hold a saved board
+     * @throws IllegalArgumentException if the channel is null
+     */
+    public static CopyOnWriteOrchardBoard readBoard(ReadableByteChannel channel)
+                    throws IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("channel is null");
+        }
+        Input in = new Input(channel);
+        List<FruitType> types = readHeader(in, BOARD);
+        return readCells(in, types);
+    }
+    
+    /**
+     * Reads a game written by {@link #writeGame(FruitCollectGame, WritableByteChannel)}.
+     * 
+     * @param channel the channel to read from
+     * @return the game read, with the default collection goal
+     * @throws IOException if the channel cannot be read from or does not hold a saved game
+     * @throws IllegalArgumentException if the channel is null
+     */
+    public static FruitCollectGame readGame(ReadableByteChannel channel) throws IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("channel is null");
+        }
+        Input in = new Input(channel);
+        List<FruitType> types = readHeader(in, GAME);
+        int playerX = in.getInt();
+        int playerY = in.getInt();
+        int gen = in.getInt();
+        boolean ended = in.getByte() != 0;
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (FruitType type : types) {
+            counts.put(type.getName(), in.getInt());
+        }
+        CopyOnWriteOrchardBoard board = readCells(in, types);
+        try {
+            return FruitCollectGame.restore(board, playerX, playerY, gen, ended, counts);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("corrupt saved game: " + e.getMessage(), e);
+        }
+    }
+    
+    // The fruit types in the order of the table, by name and then color, so that the same
+    // board is always saved the same way
+    private static List<FruitType> typeTable(Set<FruitType> types) {
+        List<FruitType> table = new ArrayList<FruitType>(types);
+        table.sort((a, b) -> {
+            int byName = a.getName().compareTo(b.getName());
+            if (byName != 0 || a.getColor() == b.getColor()) {
+                return byName;
+            }
+            if (a.getColor() == null || b.getColor() == null) {
+                return a.getColor() == null ? -1 : 1;
+            }
+            return Integer.compare(a.getColor().getRGB(), b.getColor().getRGB());
+        });
+        return table;
+    }
+    
+    // Writes the header and type table; returns the table position of each type id of the board
+    private static int[] writeHeader(Output out, int kind, OrchardBoard board,
+                    List<FruitType> types) throws IOException {
+        out.putInt(MAGIC);
+        out.putByte(VERSION);
+        out.putByte(kind);
+        out.putInt(types.size());
+        int[] localIds = new int[board.getTypeCount()];
+        Arrays.fill(localIds, -1);
+        int local = 0;
+        for (FruitType type : types) {
+            byte[] bytes = type.getName().getBytes(StandardCharsets.UTF_8);
+            out.putInt(bytes.length);
+            out.putBytes(bytes);
+            out.putByte(type.getColor() == null ? 0 : 1);
+            out.putInt(type.getColor() == null ? 0 : type.getColor().getRGB());
+            // fruit only collected has no type id on the board
+            int id = board.getTypeId(type);
+            if (id >= 0) {
+                localIds[id] = local;
+            }
+            local++;
+        }
+        return localIds;
+    }
+    
+    private static List<FruitType> readHeader(Input in, int kind) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("not a saved orchard");
+        }
+        int version = in.getByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported format version: " + version);
+        }
+        if (in.getByte() != kind) {
+            throw new IOException(kind == GAME ? "not a saved game" : "not a saved board");
+        }
+        int count = in.getInt();
+        if (count < 0 || count > PackedCell.MAX_TYPES) {
+            throw new IOException("corrupt fruit type table");
+        }
+        List<FruitType> types = new ArrayList<FruitType>();
+        for (int i = 0; i < count; i++) {
+            int length = in.getInt();
+            if (length < 0 || length > BUFFER_SIZE) {
+                throw new IOException("corrupt fruit type table");
+            }
+            String name = new String(in.getBytes(length), StandardCharsets.UTF_8);
+            boolean hasColor = in.getByte() != 0;
+            int rgb = in.getInt();
+            types.add(FruitType.of(name, hasColor ? new Color(rgb, true) : null));
+        }
+        return types;
+    }
+    
+    // Writes the dimensions and the runs of identical cells of the board
+    private static void writeCells(Output out, OrchardBoard board, int[] localIds)
+                    throws IOException {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        out.putInt(width);
+        out.putInt(height);
+        int run = 0;
+        int runCell = PackedCell.EMPTY;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = board.getCell(x, y);
+                if (PackedCell.isTree(cell)) {
+                    cell = (cell & ~TYPE_MASK)
+                                    | localIds[PackedCell.typeId(cell)] << PackedCell.TYPE_SHIFT;
+                }
+                if (cell != runCell || run == Integer.MAX_VALUE) {
+                    if (run > 0) {
+                        out.putVarInt(run);
+                        out.putShort(runCell);
+                    }
+                    run = 0;
+                    runCell = cell;
+                }
+                run++;
+            }
+        }
+        out.putVarInt(run);
+        out.putShort(runCell);
+    }
+    
+    private static CopyOnWriteOrchardBoard readCells(Input in, List<FruitType> types)
+                    throws IOException {
+        int width = in.getInt();
+        int height = in.getInt();
+        if (width <= 0 || height <= 0) {
+            throw new IOException("corrupt board dimensions: " + width + "x" + height);
+        }
+        CopyOnWriteOrchardBoard board = new CopyOnWriteOrchardBoard(width, height);
+        int[] boardIds = new int[types.size()];
+        for (int i = 0; i < boardIds.length; i++) {
+            boardIds[i] = board.typeId(types.get(i).getName(), types.get(i).getColor());
+        }
+        int x = 0;
+        int y = 0;
+        while (y < height) {
+            int run = in.getVarInt();
+            int cell = in.getShort() & 0xFFFF;
+            if (PackedCell.isTree(cell)) {
+                int local = PackedCell.typeId(cell);
+                if (local >= boardIds.length) {
+                    throw new IOException("unknown fruit type: " + local);
+                }
+                cell = (cell & ~TYPE_MASK) | boardIds[local] << PackedCell.TYPE_SHIFT;
+            }
+            if (run <= 0 || run > (long) (height - y) * width - x) {
+                throw new IOException("corrupt cell run: " + run);
+            }
+            for (; run > 0; run--) {
+                if (cell != PackedCell.EMPTY) {
+                    board.writeCell(x, y, cell);
+                }
+                if (++x == width) {
+                    x = 0;
+                    y++;
+                }
+            }
+        }
+        return board;
+    }
+    
+    /**
+     * The state of a game to save, read at one moment.
+     */
+    private static final class GameState {
+        
+        private final OrchardBoard board;
+        private final List<FruitType> types;
+        private final int playerX;
+        private final int playerY;
+        private final int gen;
+        private final boolean ended;
+        // the number of fruit collected for each entry of the type table
+        private final int[] counts;
+        
+        // Reads the state of a game that is held still
+        private GameState(FruitCollectGame game) {
+            board = game.snapshotOrchard();
+            Set<FruitType> treeTypes = new HashSet<FruitType>(board.getTreeTypes());
+            Set<String> names = new HashSet<String>();
+            for (FruitType type : treeTypes) {
+                names.add(type.getName());
+            }
+            // fruit still collected after its last tree has gone keeps an entry of its own
+            for (String fruit : game.getFruitSet()) {
+                if (!names.contains(fruit)) {
+                    treeTypes.add(FruitType.byId(FruitType.idOf(fruit)));
+                }
+            }
+            types = typeTable(treeTypes);
+            playerX = game.getPlayerX();
+            playerY = game.getPlayerY();
+            gen = game.getGen();
+            ended = game.hasEnded();
+            counts = new int[types.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = game.numCollected(types.get(i).getName());
+            }
+        }
+        
+    }
+    
+    /**
+     * Buffers data written to a channel.
+     */
+    private static final class Output {
+        
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        
+        private Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+        
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+        
+        private void putByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+        
+        private void putShort(int value) throws IOException {
+            ensure(2);
+            buffer.putShort((short) value);
+        }
+        
+        private void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+        
+        // 7 bits per byte, least significant first; the high bit marks that more follow
+        private void putVarInt(int value) throws IOException {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+        
+        private void putBytes(byte[] bytes) throws IOException {
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+        
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        
+    }
+    
+    /**
+     * Buffers data read from a channel.
+     */
+    private static final class Input {
+        
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        
+        private Input(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+        
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("unexpected end of saved data");
+                }
+            }
+            buffer.flip();
+        }
+        
+        private int getByte() throws IOException {
+            ensure(1);
+            return buffer.get();
+        }
+        
+        private short getShort() throws IOException {
+            ensure(2);
+            return buffer.getShort();
+        }
+        
+        private int getInt() throws IOException {
+            ensure(4);
+            return buffer.getInt();
+        }
+        
+        private int getVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = getByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("corrupt run length");
+        }
+        
+        private byte[] getBytes(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            for (int offset = 0; offset < length; ) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), length - offset);
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+            }
+            return bytes;
+        }
+        
+    }
+
+}
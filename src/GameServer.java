@@ -0,0 +1,344 @@
+import java.awt.Color;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hosts many independent {@code FruitCollectGame}s in one JVM for clients connected over a
+ * local TCP or Unix-domain socket, speaking the {@code GameProtocol}.<p>
+ * Each connection is a session with a thread of its own, which blocks on the socket while
+ * the client is idle. Sessions run on virtual threads where the JVM has them (Java 21 and
+ * later), so thousands of sessions cost little more than their games; on older JVMs they fall
+ * back to platform threads with small stacks.<p>
+ * A session reads requests into a buffer of {@value #IN_BUFFER} bytes and answers them into
+ * one of {@value #OUT_BUFFER} bytes, which is written out whenever it is full and whenever
+ * every request read so far has been answered. A client that sends requests faster than it
+ * reads the replies fills the socket and the out buffer, and the session stops reading from
+ * it until the replies drain; other sessions are not held up.
+ *
+ * @author yuyingf
+ *
+ */
+public class GameServer implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_SESSIONS = 10000;
+    public static final int IN_BUFFER = 256;
+    public static final int OUT_BUFFER = 1024;
+
+    private static final int BACKLOG = 4096;
+    // the stack of a platform session thread; a session needs only a few frames
+    private static final long STACK_SIZE = 256 << 10;
+
+    private final BoardSpec spec;
+    private final int maxSessions;
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicInteger served = new AtomicInteger();
+    private final LatencyHistogram moveTimes = new LatencyHistogram();
+    private ServerSocketChannel server;
+    private ExecutorService executor;
+    private Path socketFile;
+
+    /**
+     * Constructs a {@code GameServer} whose games are built from the given spec, each from
+     * the seed its client asks for.
+     *
+     * @param spec the settings each game is built from
+     * @param maxSessions the number of sessions hosted at once; clients connecting beyond
+     * it are answered with a {@code BUSY} error and disconnected
+     * @throws IllegalArgumentException if the spec is null or the number is not positive
+     */
+    public GameServer(BoardSpec spec, int maxSessions) {
+        if (spec == null) {
+            throw new IllegalArgumentException("spec is null");
+        }
+        if (maxSessions <= 0) {
+            throw new IllegalArgumentException("invalid maxSessions: " + maxSessions);
+        }
+        this.spec = spec;
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Starts accepting clients at the address specified.
+     *
+     * @param address an {@code InetSocketAddress} to listen on TCP, or a
+     * {@code UnixDomainSocketAddress} whose file must not exist yet
+     * @return the address the server listens on, with the port filled in if port 0 was given
+     * @throws IOException if the socket cannot be bound
+     * @throws IllegalStateException if the server has already been started
+     */
+    public synchronized SocketAddress start(SocketAddress address) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("server already started");
+        }
+        if (address instanceof UnixDomainSocketAddress) {
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            socketFile = ((UnixDomainSocketAddress) address).getPath();
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        server.bind(address, BACKLOG);
+        executor = newSessionExecutor();
+        Thread acceptor = new Thread(this::accept, "GameServer acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server.getLocalAddress();
+    }
+
+    /**
+     * Creates the executor sessions run on: one virtual thread per task where the JVM
+     * supports them, and one daemon platform thread with a small stack per task otherwise.
+     *
+     * @return a new executor that runs each task on a thread of its own
+     */
+    public static ExecutorService newSessionExecutor() {
+        try {
+            // looked up by reflection so that the game still builds and runs before Java 21
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(null, task, "session", STACK_SIZE);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // Accepts clients until the server is closed
+    private void accept() {
+        ByteBuffer busy = ByteBuffer.allocate(GameProtocol.MAX_FRAME);
+        while (true) {
+            SocketChannel client;
+            try {
+                client = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                continue;
+            }
+            if (sessions.incrementAndGet() > maxSessions) {
+                sessions.decrementAndGet();
+                busy.clear();
+                GameProtocol.putError(busy, GameProtocol.BUSY);
+                busy.flip();
+                try (SocketChannel rejected = client) {
+                    rejected.write(busy);
+                } catch (IOException e) {
+                    // the client is dropped either way
+                }
+                continue;
+            }
+            executor.execute(new Session(client));
+        }
+    }
+
+    /**
+     * @return the number of sessions hosted now
+     */
+    public int getSessionCount() {
+        return sessions.get();
+    }
+
+    /**
+     * @return the number of sessions that have ended
+     */
+    public int getSessionsServed() {
+        return served.get();
+    }
+
+    /**
+     * Returns the time the server took to handle each move of the sessions that have
+     * ended, from reading the request to putting the reply in the out buffer.
+     *
+     * @return a copy of the histogram of move times
+     */
+    public LatencyHistogram getMoveTimes() {
+        LatencyHistogram copy = new LatencyHistogram();
+        synchronized (moveTimes) {
+            copy.add(moveTimes);
+        }
+        return copy;
+    }
+
+    /**
+     * Stops accepting clients and closes the socket. Sessions already hosted run until their
+     * clients quit or disconnect.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (server == null) {
+            return;
+        }
+        server.close();
+        executor.shutdown();
+        if (socketFile != null) {
+            Files.deleteIfExists(socketFile);
+        }
+    }
+
+    /**
+     * The game of one client and the buffers its requests and replies go through.
+     */
+    private class Session implements Runnable {
+
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(IN_BUFFER);
+        private final ByteBuffer out = ByteBuffer.allocate(OUT_BUFFER);
+        // timed on the session's thread and added to the server's when the session ends
+        private final LatencyHistogram times = new LatencyHistogram();
+        private FruitCollectGame game;
+        private String[] fruits;
+
+        private Session(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            try (SocketChannel client = channel) {
+                while (client.read(in) >= 0) {
+                    in.flip();
+                    boolean quit = handleFrames();
+                    in.compact();
+                    flush();
+                    if (quit) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                // the client disconnected
+            } finally {
+                synchronized (moveTimes) {
+                    moveTimes.add(times);
+                }
+                sessions.decrementAndGet();
+                served.incrementAndGet();
+            }
+        }
+
+        // Answers every whole frame in the in buffer; returns whether the client quit
+        private boolean handleFrames() throws IOException {
+            while (in.hasRemaining()) {
+                byte opcode = in.get(in.position());
+                int length = GameProtocol.frameLength(opcode);
+                if (length < 0) {
+                    // the rest of the stream cannot be framed any more
+                    reply().putError(GameProtocol.BAD_REQUEST);
+                    return true;
+                }
+                if (in.remaining() < length) {
+                    return false;
+                }
+                in.get();
+                if (opcode == GameProtocol.QUIT) {
+                    return true;
+                }
+                handle(opcode);
+            }
+            return false;
+        }
+
+        // Answers a request whose opcode has been read
+        private void handle(byte opcode) throws IOException {
+            if (opcode == GameProtocol.NEW_GAME) {
+                game = spec.newGame(in.getLong());
+                fruits = game.getFruitSet().toArray(new String[0]);
+                reply().putState();
+                return;
+            }
+            if (opcode != GameProtocol.MOVE && opcode != GameProtocol.NEXT_GEN) {
+                // a reply sent by mistake; its payload is skipped
+                in.position(in.position() + GameProtocol.frameLength(opcode) - 1);
+                reply().putError(GameProtocol.BAD_REQUEST);
+                return;
+            }
+            byte code = opcode == GameProtocol.MOVE ? in.get() : 0;
+            if (game == null) {
+                reply().putError(GameProtocol.NO_GAME);
+            } else if (opcode == GameProtocol.NEXT_GEN) {
+                game.nextGen();
+                reply().putState();
+            } else {
+                Direction direction = GameProtocol.direction(code);
+                if (direction == null) {
+                    reply().putError(GameProtocol.BAD_REQUEST);
+                    return;
+                }
+                long start = System.nanoTime();
+                game.move(direction);
+                reply().putState();
+                times.recordSince(start);
+            }
+        }
+
+        // Makes room for one more reply in the out buffer, writing it out if it is full
+        private Session reply() throws IOException {
+            if (out.remaining() < GameProtocol.MAX_FRAME) {
+                flush();
+            }
+            return this;
+        }
+
+        private void putState() {
+            int collected = 0;
+            for (String fruit : fruits) {
+                collected += game.numCollected(fruit);
+            }
+            GameProtocol.putState(out, game, collected);
+        }
+
+        private void putError(byte code) {
+            GameProtocol.putError(out, code);
+        }
+
+        // Writes the out buffer to the client, blocking until the client has taken it all
+        private void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+
+    }
+
+    /**
+     * Runs a server for the default game.
+     *
+     * @param args the TCP port to listen on on the loopback interface (default 7070), or the
+     * path of a Unix-domain socket to create
+     * @throws IOException if the socket cannot be bound
+     * @throws InterruptedException if the main thread is interrupted while serving
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Banana", Color.YELLOW);
+        fruits.put("Peach", Color.PINK);
+        GameServer server = new GameServer(new BoardSpec(fruits), DEFAULT_MAX_SESSIONS);
+        String where = args.length > 0 ? args[0] : "7070";
+        SocketAddress address = where.matches("\\d+")
+                        ? new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                        Integer.parseInt(where))
+                        : UnixDomainSocketAddress.of(where);
+        System.out.println("listening on " + server.start(address));
+        Thread.currentThread().join();
+    }
+
+}
@@ -0,0 +1,319 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Drives the generations of many {@code FruitCollectGame}s, each at a period of its own,
+ * from one timer thread and a small pool of worker threads.<p>
+ * Every game, and any other periodic task, waits in a {@code TimingWheel} turned by the
+ * timer thread once a tick. Adding, pausing, resuming and cancelling a task costs the same
+ * whether a few or many thousands are scheduled, and so does a tick without tasks due; the
+ * tasks that are due are handed to the workers, so a slow generation never delays the
+ * wheel. A task is scheduled again only after its run has finished, so the runs of one
+ * task never overlap, and from the tick it was due, so a task does not drift behind.
+ *
+ * @author yuyingf
+ *
+ */
+public class GenerationScheduler implements AutoCloseable {
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+
+    private final TimingWheel wheel = new TimingWheel();
+    private final long tickNanos;
+    private final ExecutorService workers;
+    private final Thread timer;
+    private volatile boolean running = true;
+
+    /**
+     * Constructs a {@code GenerationScheduler} with a tick of {@value #DEFAULT_TICK_MILLIS}
+     * ms and one worker per processor.
+     */
+    public GenerationScheduler() {
+        this(DEFAULT_TICK_MILLIS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a {@code GenerationScheduler} and starts its threads, which are daemon
+     * threads.
+     *
+     * @param tickMillis the length of a tick of the wheel, which all periods are rounded to
+     * @param threads the number of worker threads running the tasks
+     * @throws IllegalArgumentException if either number is not positive
+     */
+    public GenerationScheduler(long tickMillis, int threads) {
+        if (tickMillis <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("invalid tick or number of threads");
+        }
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        AtomicInteger count = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "generation-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer = new Thread(this::turn, "generation-timer");
+        timer.setDaemon(true);
+        timer.start();
+    }
+
+    /**
+     * Schedules the generations of a game: a new generation every period, until the game
+     * ends or goes past its last generation, at which point the game is ended and no more
+     * generations are scheduled.
+     *
+     * @param game the game
+     * @param periodMillis the time between generations
+     * @param maxGen the number of generations after which the game ends
+     * @param listener told on a worker thread after every generation; may be null
+     * @return the handle to pause, resume or cancel the generations with
+     * @throws IllegalArgumentException if the game is null or either number is not positive
+     */
+    public Task schedule(FruitCollectGame game, long periodMillis, int maxGen,
+                    Consumer<FruitCollectGame> listener) {
+        if (game == null) {
+            throw new IllegalArgumentException("game is null");
+        }
+        if (maxGen <= 0) {
+            throw new IllegalArgumentException("invalid maxGen: " + maxGen);
+        }
+        return schedule(() -> {
+            game.nextGen();
+            if (game.getGen() > maxGen) {
+                game.endGame();
+            }
+            if (listener != null) {
+                listener.accept(game);
+            }
+        }, game::hasEnded, periodMillis);
+    }
+
+    /**
+     * Schedules a task to run every period, starting one period from now.
+     *
+     * @param action the task to run on a worker thread
+     * @param periodMillis the time between runs
+     * @return the handle to pause, resume or cancel the task with
+     * @throws IllegalArgumentException if the task is null or the period is not positive
+     */
+    public Task scheduleAtFixedRate(Runnable action, long periodMillis) {
+        return schedule(action, null, periodMillis);
+    }
+
+    // Schedules a task that is cancelled once it is found finished, if it can finish
+    private Task schedule(Runnable action, BooleanSupplier finished, long periodMillis) {
+        if (action == null) {
+            throw new IllegalArgumentException("task is null");
+        }
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("invalid period: " + periodMillis);
+        }
+        long periodTicks = Math.max(1, TimeUnit.MILLISECONDS.toNanos(periodMillis) / tickNanos);
+        Task task = new Task(action, finished, periodTicks);
+        synchronized (wheel) {
+            task.timeout = wheel.schedule(periodTicks, task);
+        }
+        return task;
+    }
+
+    // Turns the wheel once a tick, handing the tasks due to the workers
+    private void turn() {
+        List<TimingWheel.Timeout> due = new ArrayList<TimingWheel.Timeout>();
+        long next = System.nanoTime() + tickNanos;
+        while (running) {
+            long sleep = next - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(sleep);
+                continue;
+            }
+            synchronized (wheel) {
+                wheel.advance(due::add);
+            }
+            try {
+                for (TimingWheel.Timeout timeout : due) {
+                    workers.execute(timeout.getTask());
+                }
+            } catch (RejectedExecutionException e) {
+                // closed while the tick was handed out
+                return;
+            }
+            due.clear();
+            next += tickNanos;
+        }
+    }
+
+    /**
+     * Stops the timer and the workers. Tasks that are running finish, and no more run.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(timer);
+        workers.shutdown();
+    }
+
+    /**
+     * A task scheduled at a fixed rate, with its place in the wheel.
+     */
+    public final class Task implements Runnable {
+
+        private final Runnable action;
+        private final BooleanSupplier finished;
+        private final long periodTicks;
+        // the timeout of the next run; null while the task runs, is paused or is cancelled
+        private TimingWheel.Timeout timeout;
+        private long deadline;
+        private long remaining;
+        private boolean running;
+        private boolean paused;
+        private boolean cancelled;
+        private volatile long lastRunNanos;
+
+        private Task(Runnable action, BooleanSupplier finished, long periodTicks) {
+            this.action = action;
+            this.finished = finished;
+            this.periodTicks = periodTicks;
+        }
+
+        /**
+         * Runs the task on behalf of the scheduler, once its timeout expired, and schedules
+         * the next run. Does nothing if called at any other time.
+         */
+        @Override
+        public void run() {
+            synchronized (wheel) {
+                // a timeout that expired before a pause may still reach a worker after it
+                if (cancelled || paused || timeout == null || timeout.isPending()) {
+                    return;
+                }
+                if (finished != null && finished.getAsBoolean()) {
+                    cancelled = true;
+                    timeout = null;
+                    return;
+                }
+                deadline = timeout.getDeadline();
+                timeout = null;
+                running = true;
+            }
+            long start = System.nanoTime();
+            try {
+                action.run();
+            } finally {
+                lastRunNanos = System.nanoTime() - start;
+                synchronized (wheel) {
+                    running = false;
+                    if (finished != null && finished.getAsBoolean()) {
+                        cancelled = true;
+                    }
+                    long next = deadline + periodTicks;
+                    if (paused) {
+                        remaining = Math.max(1, next - wheel.getTick());
+                    } else if (!cancelled) {
+                        timeout = wheel.schedule(Math.max(1, next - wheel.getTick()), this);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Stops the task from running until it is resumed. A run already started finishes.
+         * The time left until the next run is kept.
+         */
+        public void pause() {
+            synchronized (wheel) {
+                if (paused || cancelled) {
+                    return;
+                }
+                paused = true;
+                if (timeout != null) {
+                    remaining = Math.max(1, timeout.getDeadline() - wheel.getTick());
+                    timeout.cancel();
+                    timeout = null;
+                }
+            }
+        }
+
+        /**
+         * Lets a paused task run again, after the time that was left when it was paused.
+         */
+        public void resume() {
+            synchronized (wheel) {
+                if (!paused || cancelled) {
+                    return;
+                }
+                paused = false;
+                if (!running) {
+                    timeout = wheel.schedule(remaining, this);
+                }
+            }
+        }
+
+        /**
+         * Stops the task for good. A run already started finishes.
+         */
+        public void cancel() {
+            synchronized (wheel) {
+                cancelled = true;
+                if (timeout != null) {
+                    timeout.cancel();
+                    timeout = null;
+                }
+            }
+        }
+
+        /**
+         * @return how long the last run of the task took in nanoseconds; 0 before it first
+         * ran
+         */
+        public long getLastRunNanos() {
+            return lastRunNanos;
+        }
+
+        /**
+         * @return {@code true} if the task is paused
+         */
+        public boolean isPaused() {
+            synchronized (wheel) {
+                return paused;
+            }
+        }
+
+        /**
+         * @return {@code true} if the task is cancelled
+         */
+        public boolean isCancelled() {
+            synchronized (wheel) {
+                return cancelled;
+            }
+        }
+
+        /**
+         * @return the time left until the next run in milliseconds, as of the last tick;
+         * 0 while the task runs or is cancelled
+         */
+        public long getMillisToNextRun() {
+            synchronized (wheel) {
+                long ticks;
+                if (cancelled) {
+                    ticks = 0;
+                } else if (paused) {
+                    ticks = remaining;
+                } else if (timeout != null) {
+                    ticks = timeout.getDeadline() - wheel.getTick();
+                } else {
+                    ticks = 0;
+                }
+                return TimeUnit.NANOSECONDS.toMillis(ticks * tickNanos);
+            }
+        }
+
+    }
+
+}
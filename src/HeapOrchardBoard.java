@@ -0,0 +1,90 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A {@code PackedOrchardBoard} that keeps its cells in a single {@code short} array on the
+ * Java heap, two bytes per cell, rows one after another. It is cheap to build, so it suits the
+ * small boards most games are played on; very large boards are better kept in an
+ * {@code OffHeapOrchardBoard}.<p>
+ * Cells are changed atomically without locks: {@link #compareAndSetCell(int, int, int, int)}
+ * compares and sets the array element holding the cell.
+ *
+ * @author yuyingf
+ *
+ */
+public class HeapOrchardBoard extends PackedOrchardBoard {
+
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(short[].class);
+
+    private final short[] cells;
+
+    /**
+     * Constructs an empty {@code HeapOrchardBoard} of the given dimensions.
+     * Use {@link #placePond(int, int)} and {@link #placeTree(int, int, String, java.awt.Color)}
+     * to fill it.
+     *
+     * @param width the width of the orchard
+     * @param height the height of the orchard
+     * @throws IllegalArgumentException if either dimension is not positive or the orchard
+     * does not fit in an array
+     */
+    public HeapOrchardBoard(int width, int height) {
+        super(width, height);
+        if ((long) width * height > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("orchard too large: " + width + "x" + height);
+        }
+        cells = new short[width * height];
+    }
+
+    /**
+     * Constructs a {@code HeapOrchardBoard} given an initial setup.
+     *
+     * @param orchard 2-D array representing the initial setup of the orchard
+     * @throws IllegalArgumentException if the orchard is null or empty
+     */
+    public HeapOrchardBoard(OrchardObject[][] orchard) {
+        this(width(orchard), orchard.length);
+        copyFrom(orchard);
+    }
+
+    // Validates the setup before the array is allocated
+    private static int width(OrchardObject[][] orchard) {
+        if (orchard == null) {
+            throw new IllegalArgumentException("orchard is null");
+        }
+        if (orchard.length == 0 || orchard[0].length == 0) {
+            throw new IllegalArgumentException("empty orchard");
+        }
+        return orchard[0].length;
+    }
+
+    /**
+     * Takes a snapshot of the board by copying its array.
+     *
+     * @return a copy of the board as it is now
+     */
+    @Override
+    public OrchardBoard snapshot() {
+        HeapOrchardBoard copy = new HeapOrchardBoard(getWidth(), getHeight());
+        System.arraycopy(cells, 0, copy.cells, 0, cells.length);
+        // after the cells, so the copy knows the type of every cell it was given
+        copy.copyTypesFrom(this);
+        return copy;
+    }
+
+    @Override
+    protected int readCell(int x, int y) {
+        return cells[y * getWidth() + x] & 0xFFFF;
+    }
+
+    @Override
+    protected void writeCell(int x, int y, int cell) {
+        cells[y * getWidth() + x] = (short) cell;
+    }
+
+    @Override
+    protected boolean compareAndSetCell(int x, int y, int expect, int cell) {
+        return CELLS.compareAndSet(cells, y * getWidth() + x, (short) expect, (short) cell);
+    }
+
+}
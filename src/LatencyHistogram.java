@@ -0,0 +1,145 @@
+import java.util.Arrays;
+
+/**
+ * A histogram of durations in nanoseconds, with buckets in the style of an HDR histogram:
+ * every power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so recording
+ * is a couple of shifts and an array increment, the histogram has a fixed size whatever the
+ * range of the durations, and a percentile is reported within about 3% of its true value.
+ * <p>
+ * A histogram is not thread-safe; record and read it on one thread, such as the Swing event
+ * thread or the thread of a {@code GameLoop}.
+ * 
+ * @author yuyingf
+ *
+ */
+public class LatencyHistogram {
+    
+    public static final int SUB_BUCKETS = 32;
+    
+    private static final int SUB_BITS = 5;
+    // durations below 2 * SUB_BUCKETS have a bucket each; every power of two above adds
+    // SUB_BUCKETS buckets, up to the highest bit of a positive long
+    private static final int BUCKETS = (62 - SUB_BITS + 2) * SUB_BUCKETS;
+    
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+    
+    /**
+     * Records a duration. Negative durations, which a clock going backwards could give,
+     * are recorded as 0.
+     * 
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucket(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+    
+    /**
+     * Records the time elapsed since a start time taken from {@code System.nanoTime()}.
+     * 
+     * @param start the start time in nanoseconds
+     * @return the duration recorded in nanoseconds
+     */
+    public long recordSince(long start) {
+        long nanos = System.nanoTime() - start;
+        record(nanos);
+        return nanos;
+    }
+    
+    /**
+     * Adds every duration recorded by another histogram to this one.
+     * 
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+    
+    /**
+     * Forgets every duration recorded.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+    
+    /**
+     * @return the number of durations recorded
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * @return the longest duration recorded in nanoseconds; 0 if none was
+     */
+    public long getMax() {
+        return max;
+    }
+    
+    /**
+     * @return the mean of the durations recorded in nanoseconds; 0 if none was
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+    
+    /**
+     * Returns the duration that the given percent of the durations recorded do not exceed,
+     * rounded up to the end of its bucket and never more than the longest duration.
+     * 
+     * @param percentile the percent of durations, between 0 and 100 inclusive
+     * @return the duration in nanoseconds; 0 if none was recorded
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("invalid percentile: " + percentile);
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestInBucket(i));
+            }
+        }
+        return max;
+    }
+    
+    // The bucket of a duration: below 2 * SUB_BUCKETS its own, and above it the SUB_BITS
+    // bits after the highest set bit, in the buckets of that power of two
+    private static int bucket(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+    
+    private static long highestInBucket(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket - shift * SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+    
+}
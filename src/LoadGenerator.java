@@ -0,0 +1,172 @@
+import java.awt.Color;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many scripted sessions against a {@code GameServer} at once and measures the time
+ * each move takes, from sending the request to reading its reply.<p>
+ * Every session connects with a {@code GameClient} of its own on a thread of its own (see
+ * {@link GameServer#newSessionExecutor()}), starts a game from its own seed and walks the
+ * player randomly, advancing a generation every {@code movesPerGen} moves and starting the
+ * next game of its seeds whenever a game ends. The walk is drawn from the session's seed, so
+ * a run sends the same requests every time.
+ *
+ * @author yuyingf
+ *
+ */
+public class LoadGenerator {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final SocketAddress address;
+    private final int movesPerGen;
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * Constructs a {@code LoadGenerator}.
+     *
+     * @param address the address of the server
+     * @param movesPerGen the number of moves between generations in every session
+     * @throws IllegalArgumentException if the address is null or the number is not positive
+     */
+    public LoadGenerator(SocketAddress address, int movesPerGen) {
+        if (address == null) {
+            throw new IllegalArgumentException("address is null");
+        }
+        if (movesPerGen <= 0) {
+            throw new IllegalArgumentException("invalid movesPerGen: " + movesPerGen);
+        }
+        this.address = address;
+        this.movesPerGen = movesPerGen;
+    }
+
+    /**
+     * Runs sessions at once and waits for all of them to finish.
+     *
+     * @param sessions the number of sessions
+     * @param moves the number of moves each session makes
+     * @return the round-trip times of the moves of every session that finished
+     * @throws IllegalArgumentException if either number is negative
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public LatencyHistogram run(int sessions, int moves) throws InterruptedException {
+        if (sessions < 0 || moves < 0) {
+            throw new IllegalArgumentException("invalid number of sessions or moves");
+        }
+        ExecutorService executor = GameServer.newSessionExecutor();
+        List<Future<LatencyHistogram>> results = new ArrayList<Future<LatencyHistogram>>();
+        for (int i = 0; i < sessions; i++) {
+            int session = i;
+            results.add(executor.submit(() -> play(session, sessions, moves)));
+        }
+        executor.shutdown();
+        LatencyHistogram times = new LatencyHistogram();
+        for (Future<LatencyHistogram> result : results) {
+            try {
+                times.add(result.get());
+            } catch (ExecutionException e) {
+                failed.incrementAndGet();
+            }
+        }
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        return times;
+    }
+
+    // Plays one session; its games use the seeds session, session + sessions, ...
+    private LatencyHistogram play(int session, int sessions, int moves) throws IOException {
+        LatencyHistogram times = new LatencyHistogram();
+        SplittableRandom random = new SplittableRandom(session);
+        long seed = session;
+        try (GameClient client = new GameClient(address)) {
+            client.newGame(seed);
+            for (int i = 0; i < moves; i++) {
+                if (client.getOutcome() != GameOutcome.IN_PROGRESS) {
+                    seed += sessions;
+                    client.newGame(seed);
+                } else if (i > 0 && i % movesPerGen == 0) {
+                    client.nextGen();
+                }
+                long start = System.nanoTime();
+                client.move(DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+                times.recordSince(start);
+            }
+        }
+        return times;
+    }
+
+    /**
+     * @return the number of sessions that could not connect or were cut off, over all runs
+     */
+    public int getFailedSessions() {
+        return failed.get();
+    }
+
+    /**
+     * Runs a load test and prints the throughput and the move latencies.
+     *
+     * @param args the number of sessions (default 1000), the number of moves per session
+     * (default 200), and the address of the server: a TCP port on the loopback interface or
+     * the path of a Unix-domain socket. Without an address, a server for the default game is
+     * started in this JVM.
+     * @throws IOException if the in-process server cannot be started
+     * @throws InterruptedException if the main thread is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        GameServer server = null;
+        SocketAddress address;
+        if (args.length > 2) {
+            address = args[2].matches("\\d+")
+                            ? new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                            Integer.parseInt(args[2]))
+                            : UnixDomainSocketAddress.of(args[2]);
+        } else {
+            Map<String, Color> fruits = new HashMap<String, Color>();
+            fruits.put("Apple", Color.RED);
+            fruits.put("Banana", Color.YELLOW);
+            fruits.put("Peach", Color.PINK);
+            server = new GameServer(new BoardSpec(fruits), Math.max(1, sessions));
+            address = server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        }
+        LoadGenerator generator = new LoadGenerator(address,
+                        FruitCollectGame.DEFAULT_SECONDS_PER_GEN * 4);
+        long start = System.nanoTime();
+        LatencyHistogram times = generator.run(sessions, moves);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d sessions (%d failed), %d moves in %.2f s (%.0f moves/s)%n",
+                        sessions, generator.getFailedSessions(), times.getCount(), seconds,
+                        times.getCount() / seconds);
+        System.out.printf("%.0f sessions per core on %d cores%n", (double) sessions / cores,
+                        cores);
+        System.out.printf("move round trip: p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                        times.getValueAtPercentile(50) / 1e3,
+                        times.getValueAtPercentile(99) / 1e3, times.getMax() / 1e3);
+        if (server != null) {
+            // the sessions end on the server shortly after their clients quit
+            for (int i = 0; i < 100 && server.getSessionsServed() < sessions; i++) {
+                Thread.sleep(10);
+            }
+            LatencyHistogram handled = server.getMoveTimes();
+            System.out.printf("server move time: p50 %.1f us, p99 %.1f us%n",
+                            handled.getValueAtPercentile(50) / 1e3,
+                            handled.getValueAtPercentile(99) / 1e3);
+            server.close();
+        }
+    }
+
+}
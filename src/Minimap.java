@@ -0,0 +1,188 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+/**
+ * An aggregated overview of the orchard of a {@code FruitCollectGame}, for boards whose cells
+ * would be smaller than a pixel. Each pixel of the minimap summarizes a square block of cells:
+ * the color of the fruit type with the most good fruit in the block if there is any, and
+ * otherwise the ground blended with the pond color by the fraction of ponds in the block,
+ * darkened by the fraction of spoiled fruit.<p>
+ * The board is scanned once when the minimap is built. After that the minimap listens to the
+ * game and only the pixel of a block whose cell changed is colored again, so painting the
+ * overview costs as much as scaling the minimap to the screen, however large the board is.
+ * 
+ * @author yuyingf
+ *
+ */
+public class Minimap implements CellListener {
+    
+    public static final int MAX_SIZE = 512;
+    public static final Color GROUND = new Color(170, 215, 150);
+    
+    private final int blockShift;
+    private final int blocksPerRow;
+    private final int blocksPerColumn;
+    private final int types;
+    // the color of each fruit type id of the game's board
+    private final Color[] typeColors;
+    private final int[] cells;
+    private final int[] ponds;
+    private final int[] bad;
+    private final int[] good;
+    private final int[] goodByType;
+    private final BufferedImage image;
+    
+    /**
+     * Builds the minimap of a game by scanning its board, and starts following the changes
+     * to it. Blocks are the smallest power of two cells wide for which the minimap is at most
+     * {@value #MAX_SIZE} pixels on either side.
+     * 
+     * @param game the game to summarize
+     */
+    public Minimap(FruitCollectGame game) {
+        int width = game.getWidth();
+        int height = game.getHeight();
+        int shift = 0;
+        while (((width - 1) >> shift) + 1 > MAX_SIZE || ((height - 1) >> shift) + 1 > MAX_SIZE) {
+            shift++;
+        }
+        blockShift = shift;
+        blocksPerRow = ((width - 1) >> shift) + 1;
+        blocksPerColumn = ((height - 1) >> shift) + 1;
+        int blocks = blocksPerRow * blocksPerColumn;
+        types = game.getTypeCount();
+        typeColors = new Color[types];
+        for (int id = 0; id < types; id++) {
+            typeColors[id] = game.getFruitType(id).getColor();
+        }
+        cells = new int[blocks];
+        ponds = new int[blocks];
+        bad = new int[blocks];
+        good = new int[blocks];
+        goodByType = new int[blocks * types];
+        image = new BufferedImage(blocksPerRow, blocksPerColumn, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int block = block(x, y);
+                cells[block]++;
+                count(block, game.getCell(x, y), 1);
+            }
+        }
+        for (int by = 0; by < blocksPerColumn; by++) {
+            for (int bx = 0; bx < blocksPerRow; bx++) {
+                image.setRGB(bx, by, color(by * blocksPerRow + bx));
+            }
+        }
+        game.addCellListener(this);
+    }
+    
+    /**
+     * Updates the counts of the block of the cell and colors its pixel again. Cells of
+     * different regions may change on different threads, so the counts are updated under
+     * the lock of the minimap.
+     */
+    @Override
+    public synchronized void cellChanged(int x, int y, int oldCell, int newCell) {
+        int block = block(x, y);
+        count(block, oldCell, -1);
+        count(block, newCell, 1);
+        image.setRGB(x >> blockShift, y >> blockShift, color(block));
+    }
+    
+    // Adds a cell in the state specified to the counts of a block, or takes it away
+    private void count(int block, int cell, int delta) {
+        if (PackedCell.isPond(cell)) {
+            ponds[block] += delta;
+        } else if (PackedCell.isBadFruit(cell)) {
+            bad[block] += delta;
+        } else if (PackedCell.isGoodFruit(cell)) {
+            good[block] += delta;
+            int id = PackedCell.typeId(cell);
+            if (id < types) {
+                goodByType[block * types + id] += delta;
+            }
+        }
+    }
+    
+    // The color of the pixel summarizing a block
+    private int color(int block) {
+        if (good[block] > 0) {
+            int best = -1;
+            for (int id = 0; id < types; id++) {
+                if (goodByType[block * types + id] > 0
+                                && (best < 0 || goodByType[block * types + id]
+                                                > goodByType[block * types + best])) {
+                    best = id;
+                }
+            }
+            Color color = best < 0 ? null : typeColors[best];
+            return (color != null ? color : Color.GRAY).getRGB();
+        }
+        double pondFraction = (double) ponds[block] / cells[block];
+        int rgb = blend(GROUND.getRGB(), Pond.COLOR.getRGB(), pondFraction);
+        if (bad[block] > 0) {
+            // a little spoiled fruit should still show on a large block
+            rgb = blend(rgb, Color.BLACK.getRGB(), 0.4 + 0.6 * bad[block] / cells[block]);
+        }
+        return rgb;
+    }
+    
+    // Mixes a fraction of one color into another
+    private static int blend(int rgb, int with, double fraction) {
+        int mixed = 0xFF000000;
+        for (int shift = 0; shift <= 16; shift += 8) {
+            double c = ((rgb >> shift) & 0xFF) * (1 - fraction) + ((with >> shift) & 0xFF) * fraction;
+            mixed |= (int) Math.round(c) << shift;
+        }
+        return mixed;
+    }
+    
+    private int block(int x, int y) {
+        return (y >> blockShift) * blocksPerRow + (x >> blockShift);
+    }
+    
+    /**
+     * Paints the minimap scaled to fit a surface, keeping its aspect ratio, and centered on
+     * it, with the player as a small green square.
+     * 
+     * @param g the {@code Graphics} context to paint with
+     * @param width the width of the surface in pixels
+     * @param height the height of the surface in pixels
+     * @param background the color of the surface around the minimap
+     * @param playerX the x-coordinate of the player in cells
+     * @param playerY the y-coordinate of the player in cells
+     */
+    public void paint(Graphics g, int width, int height, Color background, double playerX,
+                    double playerY) {
+        double scale = Math.min((double) width / blocksPerRow, (double) height / blocksPerColumn);
+        int drawnWidth = Math.max(1, (int) (blocksPerRow * scale));
+        int drawnHeight = Math.max(1, (int) (blocksPerColumn * scale));
+        int left = (width - drawnWidth) / 2;
+        int top = (height - drawnHeight) / 2;
+        g.setColor(background);
+        g.fillRect(0, 0, width, height);
+        g.drawImage(image, left, top, drawnWidth, drawnHeight, null);
+        int marker = Math.max(3, (int) scale);
+        double blockSize = 1 << blockShift;
+        g.setColor(Color.GREEN);
+        g.fillRect(left + (int) ((playerX + 0.5) / blockSize * scale) - marker / 2,
+                        top + (int) ((playerY + 0.5) / blockSize * scale) - marker / 2,
+                        marker, marker);
+    }
+    
+    /**
+     * @return the number of cells on a side of the block each pixel summarizes
+     */
+    public int getBlockSize() {
+        return 1 << blockShift;
+    }
+    
+    /**
+     * @return the minimap at one pixel per block; it changes as the game goes on
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+    
+}
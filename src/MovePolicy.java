@@ -0,0 +1,23 @@
+import java.util.SplittableRandom;
+
+/**
+ * A strategy that decides where the player moves next, used to play games without a GUI.
+ * A policy is shared by all the games of a simulation, possibly on several threads at
+ * once, so it must not keep mutable state of its own; any randomness should come from the
+ * random stream it is given.
+ * 
+ * @author yuyingf
+ *
+ */
+public interface MovePolicy {
+    
+    /**
+     * Chooses the next move of the player.
+     * 
+     * @param game the game being played
+     * @param random the random stream of the game being played
+     * @return the direction to move in, or null to stay put for this move
+     */
+    public Direction nextMove(FruitCollectGame game, SplittableRandom random);
+
+}
@@ -0,0 +1,136 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue of moves from any number of producers, such as key listeners,
+ * bots or replays, to the single thread that plays them on a {@code FruitCollectGame}.
+ * The consumer takes every move queued so far in one {@link #drain(Direction[], long[])}
+ * and plays them as a batch with {@link FruitCollectGame#movePath(int, Direction[], int, int)},
+ * so the work done after a move, such as updating labels and repainting, is done once per
+ * batch rather than once per key press.<p>
+ * The moves are kept in a ring of slots. A producer claims the next slot by a
+ * compare-and-set on the tail and then publishes the move in it; the consumer takes the moves
+ * in order, stopping at a slot that has been claimed but not yet published. A move offered
+ * while the ring is full, as in a long burst of auto-repeated key presses, is dropped.
+ *
+ * @author yuyingf
+ *
+ */
+public class MoveQueue {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final AtomicReferenceArray<Direction> directions;
+    private final long[] pressed;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private volatile long head;
+
+    /**
+     * Constructs a {@code MoveQueue} of the default capacity, {@value #DEFAULT_CAPACITY}.
+     */
+    public MoveQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a {@code MoveQueue}.
+     *
+     * @param capacity the number of moves the queue holds, a power of two
+     * @throws IllegalArgumentException if the capacity is not a positive power of two
+     */
+    public MoveQueue(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity not a power of two: " + capacity);
+        }
+        directions = new AtomicReferenceArray<Direction>(capacity);
+        pressed = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Queues a move made now.
+     *
+     * @param direction the direction to move in
+     * @return {@code true} if the move was queued and {@code false} if the queue was full
+     * @throws IllegalArgumentException if the direction is null
+     */
+    public boolean offer(Direction direction) {
+        return offer(direction, System.nanoTime());
+    }
+
+    /**
+     * Queues a move. May be called from any thread.
+     *
+     * @param direction the direction to move in
+     * @param when when the move was asked for, from {@code System.nanoTime()}, for example
+     * by {@link PerfStats#pressedAt(long, long)}
+     * @return {@code true} if the move was queued and {@code false} if the queue was full
+     * @throws IllegalArgumentException if the direction is null
+     */
+    public boolean offer(Direction direction, long when) {
+        if (direction == null) {
+            throw new IllegalArgumentException("direction is null");
+        }
+        long t;
+        do {
+            t = tail.get();
+            if (t - head > mask) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        int slot = (int) t & mask;
+        pressed[slot] = when;
+        // the volatile write publishes the time written before it
+        directions.set(slot, direction);
+        return true;
+    }
+
+    /**
+     * Takes the moves queued so far, oldest first. Must only be called by the one thread
+     * that plays the moves.
+     *
+     * @param into receives the directions of the moves
+     * @param when receives when each move was asked for; may be null
+     * @return the number of moves taken, at most the length of {@code into}
+     */
+    public int drain(Direction[] into, long[] when) {
+        long h = head;
+        int count = 0;
+        while (count < into.length) {
+            int slot = (int) h & mask;
+            Direction direction = directions.get(slot);
+            if (direction == null) {
+                // empty, or claimed by a producer that has yet to publish
+                break;
+            }
+            into[count] = direction;
+            if (when != null) {
+                when[count] = pressed[slot];
+            }
+            directions.set(slot, null);
+            count++;
+            h++;
+        }
+        head = h;
+        return count;
+    }
+
+    /**
+     * @return {@code true} if no move is waiting to be taken
+     */
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    /**
+     * @return the number of moves dropped because the queue was full
+     */
+    public int getDropped() {
+        return dropped.get();
+    }
+
+}
@@ -0,0 +1,124 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A {@code PackedOrchardBoard} that keeps its cells outside the Java heap, two bytes per cell,
+ * in direct byte buffers. A board of 10,000 x 10,000 cells takes about 200 MB and adds no
+ * objects for the garbage collector to trace.<p>
+ * Rows are laid out one after another, so sweeping the board row by row reads memory in order.
+ * Since a single buffer is limited to 2 GB, the rows are split across several buffers.<p>
+ * Cells are changed atomically without locks: {@link #compareAndSetCell(int, int, int, int)}
+ * compares and sets the aligned four-byte word holding the cell, leaving its neighbour as is.
+ *
+ * @author yuyingf
+ *
+ */
+public class OffHeapOrchardBoard extends PackedOrchardBoard {
+
+    private static final int CELL_BYTES = 2;
+    private static final int MAX_BUFFER_BYTES = 1 << 30;
+    private static final VarHandle WORDS =
+                    MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    // the shift of the second cell of a word, which sits in its high half on little-endian
+    private static final int HIGH_SHIFT =
+                    ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 16 : 0;
+
+    private final ByteBuffer[] buffers;
+    private final int rowsPerBuffer;
+
+    /**
+     * Constructs an empty {@code OffHeapOrchardBoard} of the given dimensions.
+     * Use {@link #placePond(int, int)} and {@link #placeTree(int, int, String, java.awt.Color)}
+     * to fill it.
+     *
+     * @param width the width of the orchard
+     * @param height the height of the orchard
+     * @throws IllegalArgumentException if either dimension is not positive or a single row
+     * does not fit in a buffer
+     */
+    public OffHeapOrchardBoard(int width, int height) {
+        super(width, height);
+        if (width > MAX_BUFFER_BYTES / CELL_BYTES) {
+            throw new IllegalArgumentException("orchard too wide: " + width);
+        }
+        rowsPerBuffer = MAX_BUFFER_BYTES / (width * CELL_BYTES);
+        buffers = new ByteBuffer[(height - 1) / rowsPerBuffer + 1];
+        for (int i = 0; i < buffers.length; i++) {
+            int rows = Math.min(rowsPerBuffer, height - i * rowsPerBuffer);
+            // rounded up to whole words for compareAndSetCell
+            buffers[i] = ByteBuffer.allocateDirect((rows * width * CELL_BYTES + 3) & ~3)
+                            .order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * Constructs an {@code OffHeapOrchardBoard} given an initial setup.
+     *
+     * @param orchard 2-D array representing the initial setup of the orchard
+     * @throws IllegalArgumentException if the orchard is null or empty
+     */
+    public OffHeapOrchardBoard(OrchardObject[][] orchard) {
+        this(width(orchard), orchard.length);
+        copyFrom(orchard);
+    }
+
+    // Validates the setup before the buffers are allocated
+    private static int width(OrchardObject[][] orchard) {
+        if (orchard == null) {
+            throw new IllegalArgumentException("orchard is null");
+        }
+        if (orchard.length == 0 || orchard[0].length == 0) {
+            throw new IllegalArgumentException("empty orchard");
+        }
+        return orchard[0].length;
+    }
+
+    /**
+     * Takes a snapshot of the board by copying its buffers.
+     *
+     * @return a copy of the board as it is now
+     */
+    @Override
+    public OrchardBoard snapshot() {
+        OffHeapOrchardBoard copy = new OffHeapOrchardBoard(getWidth(), getHeight());
+        for (int i = 0; i < buffers.length; i++) {
+            copy.buffers[i].put(0, buffers[i], 0, buffers[i].capacity());
+        }
+        // after the cells, so the copy knows the type of every cell it was given
+        copy.copyTypesFrom(this);
+        return copy;
+    }
+
+    @Override
+    protected int readCell(int x, int y) {
+        int offset = ((y % rowsPerBuffer) * getWidth() + x) * CELL_BYTES;
+        return buffers[y / rowsPerBuffer].getShort(offset) & 0xFFFF;
+    }
+
+    @Override
+    protected void writeCell(int x, int y, int cell) {
+        int offset = ((y % rowsPerBuffer) * getWidth() + x) * CELL_BYTES;
+        buffers[y / rowsPerBuffer].putShort(offset, (short) cell);
+    }
+
+    @Override
+    protected boolean compareAndSetCell(int x, int y, int expect, int cell) {
+        ByteBuffer buffer = buffers[y / rowsPerBuffer];
+        int offset = ((y % rowsPerBuffer) * getWidth() + x) * CELL_BYTES;
+        int word = offset & ~3;
+        int shift = (offset & 2) == 0 ? 16 - HIGH_SHIFT : HIGH_SHIFT;
+        int mask = 0xFFFF << shift;
+        int current;
+        do {
+            current = (int) WORDS.getVolatile(buffer, word);
+            if (((current & mask) >>> shift) != expect) {
+                return false;
+            }
+        } while (!WORDS.compareAndSet(buffer, word, current,
+                        (current & ~mask) | ((cell & 0xFFFF) << shift)));
+        return true;
+    }
+
+}
@@ -1,7 +1,18 @@
+import java.awt.Point;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Represents the orchard and the objects in it as a 2-D game board.
+ * Represents the orchard and the objects in it as a 2-D game board.<p>
+ * Every board keeps its own table of the fruit types placed on it. A type is given the next
+ * dense type id, starting from 0, the first time it is placed, and that id is what a
+ * {@link PackedCell} of the board stores, so a board can hold up to
+ * {@code PackedCell.MAX_TYPES} types however many the process has seen.
  * 
  * @author yuyingf
  *
@@ -11,6 +22,8 @@ public class OrchardBoard {
     private OrchardObject[][] orchard;
     private int width;
     private int height;
+    private final Map<FruitType, Integer> typeIds = new ConcurrentHashMap<FruitType, Integer>();
+    private volatile FruitType[] types = new FruitType[0];
     
     /**
      * Constructs an {@code OrchardBoard} given an initial setup.
@@ -31,6 +44,9 @@ public class OrchardBoard {
                     if (orchard[row][col] != null) {
                         clone[row][col] = orchard[row][col].clone();
                     }
+                    if (clone[row][col] instanceof FruitTree) {
+                        typeId(((FruitTree) clone[row][col]).getFruitType());
+                    }
                 }
             }
             this.orchard = clone;
@@ -39,6 +55,96 @@ public class OrchardBoard {
         }
     }
 
+    /**
+     * Constructs an {@code OrchardBoard} of the given dimensions for subclasses that
+     * keep the cells in their own storage. Such subclasses must override
+     * {@link #getObject(int, int)}.
+     *
+     * @param width the width of the orchard
+     * @param height the height of the orchard
+     * @throws IllegalArgumentException if either dimension is not positive
+     */
+    protected OrchardBoard(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("empty orchard");
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns the type id of a fruit type on this board, giving the type the next id if it
+     * is new to the board.
+     *
+     * @param type the type of fruit
+     * @return the type id of the fruit type on this board
+     * @throws IllegalArgumentException if the board already has {@code PackedCell.MAX_TYPES}
+     * fruit types
+     */
+    protected synchronized int typeId(FruitType type) {
+        Integer id = typeIds.get(type);
+        if (id != null) {
+            return id;
+        }
+        FruitType[] known = types;
+        if (known.length >= PackedCell.MAX_TYPES) {
+            throw new IllegalArgumentException("too many fruit types");
+        }
+        FruitType[] grown = Arrays.copyOf(known, known.length + 1);
+        grown[known.length] = type;
+        types = grown;
+        typeIds.put(type, known.length);
+        return known.length;
+    }
+
+    /**
+     * Gives this board the fruit types of another board, with the same type ids, for boards
+     * whose cells are copied from the other board. This board must not have any types yet
+     * other than the first types of the other board.
+     *
+     * @param other the board whose fruit types to take
+     * @throws IllegalArgumentException if this board has types the other board does not
+     * have under the same ids
+     */
+    protected void copyTypesFrom(OrchardBoard other) {
+        FruitType[] known = other.types;
+        for (int id = 0; id < known.length; id++) {
+            if (typeId(known[id]) != id) {
+                throw new IllegalArgumentException("fruit type ids differ");
+            }
+        }
+    }
+
+    /**
+     * @param type the type of fruit
+     * @return the type id of the fruit type on this board; -1 if it is not on this board
+     */
+    public int getTypeId(FruitType type) {
+        Integer id = type == null ? null : typeIds.get(type);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param typeId a type id of this board, as stored in its packed cells
+     * @return the fruit type with this type id on this board
+     * @throws IllegalArgumentException if no fruit type has this id on this board
+     */
+    public FruitType getFruitType(int typeId) {
+        FruitType[] known = types;
+        if (typeId < 0 || typeId >= known.length) {
+            throw new IllegalArgumentException("unknown fruit type id: " + typeId);
+        }
+        return known[typeId];
+    }
+
+    /**
+     * @return the number of fruit types on this board, which is one more than the largest
+     * type id handed out
+     */
+    public int getTypeCount() {
+        return types.length;
+    }
+
     /**
      * @return the width of the orchard board
      */
@@ -57,15 +163,38 @@ public class OrchardBoard {
      * @return a {@code String} representing the orchard in 2-D
      */
     public String toString() {
-        String out = "";
-        for (int row = 0; row < orchard.length; row++) {
-            if (row != orchard.length - 1) {
-                out += Arrays.toString(orchard[row]) + "\n";
-            } else {
-                out += Arrays.toString(orchard[row]);
+        // one builder for the whole board; each row is formatted as by Arrays.toString
+        StringBuilder out = new StringBuilder();
+        for (int row = 0; row < height; row++) {
+            if (row != 0) {
+                out.append('\n');
+            }
+            out.append('[');
+            for (int col = 0; col < width; col++) {
+                if (col != 0) {
+                    out.append(", ");
+                }
+                out.append(getObject(col, row));
+            }
+            out.append(']');
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Takes a snapshot of the board. Later changes to this board are not seen by the
+     * snapshot, and changes to the snapshot are not seen by this board.
+     * 
+     * @return a copy of the board as it is now
+     */
+    public OrchardBoard snapshot() {
+        OrchardObject[][] copy = new OrchardObject[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                copy[y][x] = getObject(x, y);
             }
         }
-        return out;
+        return new OrchardBoard(copy);
     }
     
     /**
@@ -92,6 +221,31 @@ public class OrchardBoard {
         }
     }
     
+    /**
+     * @param x the x-coordinate of the location specified
+     * @param y the y-coordinate of the location specified
+     * @return the state of the location specified encoded as a {@code PackedCell};
+     * {@code PackedCell.EMPTY} if the location is empty or not on board
+     */
+    public int getCell(int x, int y) {
+        OrchardObject obj = getObject(x, y);
+        if (obj instanceof Pond) {
+            return PackedCell.POND;
+        }
+        if (obj instanceof FruitTree) {
+            FruitTree tree = (FruitTree) obj;
+            int cell = PackedCell.tree(getTypeId(tree.getFruitType()));
+            if (tree.isMature()) {
+                cell = PackedCell.mature(cell);
+            }
+            if (tree.isBadFruit()) {
+                cell = PackedCell.turnBad(cell);
+            }
+            return cell;
+        }
+        return PackedCell.EMPTY;
+    }
+    
     /**
      * @param x the x-coordinate of the location specified
      * @param y the y-coordinate of the location specified
@@ -101,5 +255,55 @@ public class OrchardBoard {
     public boolean hasObject(int x, int y) {
         return onBoard(x, y) && getObject(x, y) != null;
     }
+
+    /**
+     * @return the positions of all mature trees bearing good fruit, in row-major order
+     */
+    public List<Point> goodFruitPositions() {
+        List<Point> positions = new ArrayList<Point>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                OrchardObject obj = getObject(x, y);
+                if (obj instanceof FruitTree && ((FruitTree) obj).isMature()
+                                && !((FruitTree) obj).isBadFruit()) {
+                    positions.add(new Point(x, y));
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * @return a set of the types of all fruit trees in the orchard
+     */
+    public Set<String> getFruitTypes() {
+        Set<String> types = new HashSet<String>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                OrchardObject obj = getObject(x, y);
+                if (obj instanceof FruitTree) {
+                    types.add(obj.toString());
+                }
+            }
+        }
+        return types;
+    }
+
+    /**
+     * @return a set of the descriptors of all fruit trees in the orchard, one for each
+     * name and color
+     */
+    public Set<FruitType> getTreeTypes() {
+        Set<FruitType> types = new HashSet<FruitType>();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                OrchardObject obj = getObject(x, y);
+                if (obj instanceof FruitTree) {
+                    types.add(((FruitTree) obj).getFruitType());
+                }
+            }
+        }
+        return types;
+    }
     
 }
@@ -0,0 +1,204 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generates random orchards from a seed. The same seed always generates the same orchard,
+ * no matter how many threads take part.<p>
+ * The board is split into bands of {@value #BAND_ROWS} rows. Before any work is forked, every
+ * band is given its own {@code SplittableRandom} split off a single root stream in band order;
+ * the bands are then filled in parallel on a fork/join pool.<p>
+ * Orchards of up to {@value #PARALLEL_CELLS} cells, which is most games, are filled band by
+ * band on the calling thread into a {@code CopyOnWriteOrchardBoard} instead, since allocating
+ * direct buffers and waiting on a pool costs more than filling them, and the games played on
+ * them can then be snapshot in constant time. The bands draw from the same streams either way,
+ * so both give the same orchard.
+ *
+ * @author yuyingf
+ *
+ */
+public class OrchardGenerator {
+
+    public static final int BAND_ROWS = 64;
+    public static final int PARALLEL_CELLS = 1 << 18;
+
+    private final long seed;
+    private final List<String> fruitTypes;
+    private final List<Color> fruitColors;
+    private final int pondPercent;
+
+    /**
+     * Constructs an {@code OrchardGenerator}. Fruit trees will only be of types specified
+     * in the map, and are assigned randomly with equal chance.
+     *
+     * @param seed the seed orchards are generated from
+     * @param fruits a map of possible type of fruits with their colors
+     * @param pondPercent expected percent of ponds in the orchard
+     * (between 0 and {@code FruitCollectGame.MAX_POND_PERCENT}, inclusive)
+     * @throws IllegalArgumentException if the map is null or empty or the pond percent
+     * is out of range
+     */
+    public OrchardGenerator(long seed, Map<String, Color> fruits, int pondPercent) {
+        if (fruits == null || fruits.isEmpty()) {
+            throw new IllegalArgumentException("empty list of fruits");
+        }
+        if (pondPercent < 0 || pondPercent > FruitCollectGame.MAX_POND_PERCENT) {
+            throw new IllegalArgumentException("invalid pondPercent: " + pondPercent
+                            + " (must be 0-" + FruitCollectGame.MAX_POND_PERCENT + ")");
+        }
+        this.seed = seed;
+        this.pondPercent = pondPercent;
+        // sorts the types so that the orchard does not depend on the iteration order of the map
+        Map<String, Color> sorted = new TreeMap<String, Color>(fruits);
+        fruitTypes = new ArrayList<String>(sorted.keySet());
+        fruitColors = new ArrayList<Color>(sorted.values());
+    }
+
+    /**
+     * @return the seed orchards are generated from
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the fruit types trees are drawn from, in the order used by the generator
+     */
+    public List<String> getFruitTypes() {
+        return new ArrayList<String>(fruitTypes);
+    }
+
+    /**
+     * Generates an orchard: on the calling thread into a {@code CopyOnWriteOrchardBoard} if it
+     * has at most {@value #PARALLEL_CELLS} cells, and otherwise on the common fork/join pool
+     * into an {@code OffHeapOrchardBoard}.
+     *
+     * @param width the width of the orchard
+     * @param height the height of the orchard
+     * @return the generated orchard
+     * @throws IllegalArgumentException if either dimension is not positive
+     */
+    public PackedOrchardBoard generate(int width, int height) {
+        if (width > 0 && height > 0 && (long) width * height <= PARALLEL_CELLS) {
+            CopyOnWriteOrchardBoard board = new CopyOnWriteOrchardBoard(width, height);
+            int[] treeCells = registerTypes(board);
+            SplittableRandom[] bandRandoms = bandRandoms(height);
+            for (int band = 0; band < bandRandoms.length; band++) {
+                fillBand(board, treeCells, bandRandoms, band);
+            }
+            return board;
+        }
+        return generate(width, height, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generates an orchard on the given fork/join pool.
+     *
+     * @param width the width of the orchard
+     * @param height the height of the orchard
+     * @param pool the pool the bands of the orchard are filled on
+     * @return the generated orchard
+     * @throws IllegalArgumentException if either dimension is not positive
+     */
+    public OffHeapOrchardBoard generate(int width, int height, ForkJoinPool pool) {
+        OffHeapOrchardBoard board = new OffHeapOrchardBoard(width, height);
+        int[] treeCells = registerTypes(board);
+        SplittableRandom[] bandRandoms = bandRandoms(height);
+        pool.invoke(new FillBands(board, treeCells, bandRandoms, 0, bandRandoms.length));
+        return board;
+    }
+
+    // Splits a stream for every band off the root stream, in band order
+    private SplittableRandom[] bandRandoms(int height) {
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] bandRandoms = new SplittableRandom[(height - 1) / BAND_ROWS + 1];
+        for (int band = 0; band < bandRandoms.length; band++) {
+            bandRandoms[band] = root.split();
+        }
+        return bandRandoms;
+    }
+
+    // Fills the rows of one band from the stream of the band
+    private void fillBand(PackedOrchardBoard board, int[] treeCells,
+                    SplittableRandom[] bandRandoms, int band) {
+        SplittableRandom r = bandRandoms[band];
+        int[] row = new int[board.getWidth()];
+        int end = Math.min(board.getHeight(), (band + 1) * BAND_ROWS);
+        for (int y = band * BAND_ROWS; y < end; y++) {
+            for (int x = 0; x < row.length; x++) {
+                row[x] = randomCell(r, treeCells);
+            }
+            board.writeRow(y, row);
+        }
+    }
+
+    /**
+     * Registers the fruit types of this generator on a board, in the generator's order.
+     *
+     * @param board the board to register the types on
+     * @return the packed cell of an immature tree of each type, in the generator's order
+     */
+    public int[] registerTypes(PackedOrchardBoard board) {
+        int[] treeCells = new int[fruitTypes.size()];
+        for (int i = 0; i < treeCells.length; i++) {
+            treeCells[i] = PackedCell.tree(board.typeId(fruitTypes.get(i), fruitColors.get(i)));
+        }
+        return treeCells;
+    }
+
+    /**
+     * Draws the next cell of an orchard: a pond with the generator's pond percent,
+     * and otherwise an immature tree of a type chosen with equal chance.
+     *
+     * @param r the random stream to draw from
+     * @param treeCells the packed cells returned by {@link #registerTypes(PackedOrchardBoard)}
+     * @return the packed cell drawn
+     */
+    public int randomCell(SplittableRandom r, int[] treeCells) {
+        if (r.nextDouble() * 100 < pondPercent) {
+            return PackedCell.POND;
+        }
+        return treeCells[r.nextInt(treeCells.length)];
+    }
+
+    /**
+     * Fills a range of bands, splitting it in halves until a single band is left.
+     */
+    private class FillBands extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final PackedOrchardBoard board;
+        private final int[] treeCells;
+        private final SplittableRandom[] bandRandoms;
+        private final int from;
+        private final int to;
+
+        private FillBands(PackedOrchardBoard board, int[] treeCells,
+                        SplittableRandom[] bandRandoms, int from, int to) {
+            this.board = board;
+            this.treeCells = treeCells;
+            this.bandRandoms = bandRandoms;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new FillBands(board, treeCells, bandRandoms, from, mid),
+                                new FillBands(board, treeCells, bandRandoms, mid, to));
+                return;
+            }
+            fillBand(board, treeCells, bandRandoms, from);
+        }
+
+    }
+
+}
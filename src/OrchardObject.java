@@ -18,6 +18,16 @@ public interface OrchardObject {
      */
     public boolean meetPlayer(Map<String, Integer> collected);
     
+    /**
+     * Specifies how an object should react when it meets the player, counting the fruit
+     * collected in an array indexed by {@link FruitType#getId()} instead of a map.
+     * 
+     * @param collected the quantities of the fruits collected, indexed by fruit type id
+     * @return whether the object is a "bomb" that kills the player when encountered;
+     * {@code true} if the object kills the player and {@code false} otherwise
+     */
+    public boolean meetPlayerById(int[] collected);
+    
     /**
      * Draws the object with the given specifications.
      * 
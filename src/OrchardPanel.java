@@ -1,21 +1,30 @@
-import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Point;
 
 import javax.swing.JPanel;
 
 /**
  * A {@code JPanel} that paints the orchard board of a {@code FruitCollectGame}. It is
  * divided into many rectangular grids, and each object in the orchard is drawn in one grid.
+ * A {@code Camera} follows the player over boards larger than the panel, so only the grids
+ * in view are painted, and of those only the ones inside the clip of the {@code Graphics}.
+ * Repainting the cells changed by the game with {@link #repaintDirtyCells()} is cheap.
+ * Zoomed out all the way, the panel shows an overview of the whole orchard instead.
+ * An overlay with the timings of the panel and the game can be toggled on top.
+ * The painting itself is done by an {@code OrchardRenderer}.
  * 
  * @author yuyingf
  *
  */
 public class OrchardPanel extends JPanel {
     
+    public static final int MAX_PREFERRED_GRIDS = 30;
+    
     private FruitCollectGame game;
-    private int gridWidth;
-    private int gridHeight;
+    private OrchardRenderer renderer;
+    private Camera camera;
+    private DirtyCells dirtyCells;
 
     /**
      * Constructs a {@code OrchardPanel} with a given {@code FruitCollectGame} and
@@ -27,55 +36,125 @@ public class OrchardPanel extends JPanel {
      */
     public OrchardPanel(FruitCollectGame game, int gridWidth, int gridHeight) {
         this.game = game;
-        this.gridWidth = gridWidth;
-        this.gridHeight = gridHeight;
-        setPreferredSize(new Dimension(game.getWidth() * gridWidth, game.getHeight() * gridHeight));
+        this.renderer = new OrchardRenderer(game, gridWidth, gridHeight);
+        this.camera = renderer.getCamera();
+        this.dirtyCells = new DirtyCells();
+        game.addCellListener(dirtyCells);
+        setPreferredSize(new Dimension(
+                        Math.min(game.getWidth(), MAX_PREFERRED_GRIDS) * camera.getCellWidth(),
+                        Math.min(game.getHeight(), MAX_PREFERRED_GRIDS) * camera.getCellHeight()));
     }
     
     /**
      * Paints the current state of the {@code FruitCollectGame} on this panel.
      * The player is a small green filled circle, and each game object is painted
-     * in its respective way.
+     * in its respective way. Grids out of view or outside the clip are skipped.
      */
     @Override
     public void paintComponent(Graphics g) {
-        for (int x = 0; x < game.getWidth(); x++) {
-            for (int y = 0; y < game.getHeight(); y++) {
-                game.drawObject(x, y, g, x * gridWidth, y * gridHeight, gridWidth, gridHeight);
+        // the renderer covers the whole clip, so the background is not cleared first
+        renderer.paint(g, getWidth(), getHeight(), getBackground(), getGraphicsConfiguration());
+    }
+    
+    /**
+     * Repaints only the grids of the cells the game changed since the last call, or the
+     * whole panel if the camera has to scroll to follow the player or the overview is shown.
+     */
+    public void repaintDirtyCells() {
+        if (renderer.isOverlayVisible()) {
+            repaint(renderer.getOverlayBounds());
+        }
+        if (renderer.isOverview()) {
+            if (!dirtyCells.take().isEmpty()) {
+                repaint();
             }
+            return;
+        }
+        camera.setViewport(getWidth(), getHeight());
+        if (camera.follow(game.getPlayerX(), game.getPlayerY())) {
+            dirtyCells.take();
+            repaint();
+            return;
+        }
+        for (Point cell : dirtyCells.take()) {
+            repaint(camera.screenX(cell.x), camera.screenY(cell.y),
+                            camera.getCellWidth(), camera.getCellHeight());
         }
-        g.setColor(Color.GREEN);
-        g.fillOval(game.getPlayerX() * gridWidth + (int)(gridWidth * 0.2),
-                        game.getPlayerY() * gridHeight + (int)(gridHeight * 0.2),
-                        (int)(gridWidth * 0.6), (int)(gridHeight * 0.6));
+    }
+    
+    /**
+     * Makes the grids larger and repaints the panel.
+     */
+    public void zoomIn() {
+        renderer.zoomIn();
+        repaint();
+    }
+    
+    /**
+     * Makes the grids smaller, or shows the overview once they are as small as they get,
+     * and repaints the panel.
+     */
+    public void zoomOut() {
+        renderer.zoomOut();
+        repaint();
+    }
+    
+    /**
+     * Shows the overlay with the timings if it is hidden, hides it otherwise, and repaints
+     * the panel.
+     */
+    public void toggleOverlay() {
+        renderer.setOverlayVisible(!renderer.isOverlayVisible());
+        repaint();
+    }
+    
+    /**
+     * @return the timings of the panel, to which the game's timings are added
+     */
+    public PerfStats getPerfStats() {
+        return renderer.getPerfStats();
+    }
+    
+    /**
+     * @return the cached layer with the background and the ponds
+     */
+    public TerrainLayer getTerrainLayer() {
+        return renderer.getTerrainLayer();
+    }
+    
+    /**
+     * @return the camera that decides which part of the orchard is shown
+     */
+    public Camera getCamera() {
+        return camera;
     }
     
     /**
      * @return the width of a grid
      */
     public int getGridWidth() {
-        return gridWidth;
+        return camera.getCellWidth();
     }
 
     /**
      * @param gridWidth the new grid width
      */
     public void setGridWidth(int gridWidth) {
-        this.gridWidth = gridWidth;
+        camera.setCellSize(Math.max(1, gridWidth), camera.getCellHeight());
     }
 
     /**
      * @return the height of a grid
      */
     public int getGridHeight() {
-        return gridHeight;
+        return camera.getCellHeight();
     }
 
     /**
      * @param gridHeight the new grid height
      */
     public void setGridHeight(int gridHeight) {
-        this.gridHeight = gridHeight;
+        camera.setCellSize(camera.getCellWidth(), Math.max(1, gridHeight));
     }
     
 }
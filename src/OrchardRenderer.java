@@ -0,0 +1,239 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+
+/**
+ * Paints the orchard of a {@code FruitCollectGame} through a {@code Camera}, for any surface:
+ * the passive {@code OrchardPanel} and the active {@code ActiveOrchardCanvas} share it.<p>
+ * A frame is painted in three layers: a {@code TerrainLayer} with the background and the
+ * ponds, which is cached and only rendered again when the view changes; the trees, blitted
+ * from a {@code SpriteAtlas}, along with the ponds if the view has too few of them to be
+ * cached; and the player on top. Grids out of view or outside the clip are skipped. A view
+ * of at least {@value #RASTER_MIN_CELLS} cells is instead rendered in software by a
+ * {@code PixelRasterizer} and blitted with the player on top.<p>
+ * Zooming out past the smallest cell size of the camera switches to an overview of the whole
+ * orchard, painted from a {@code Minimap} that is kept up to date as the game changes.<p>
+ * The time taken by every frame is recorded in {@code PerfStats}, which can be shown in an
+ * overlay at the top-left corner.
+ * 
+ * @author yuyingf
+ *
+ */
+public class OrchardRenderer {
+    
+    public static final int RASTER_MIN_CELLS = 4096;
+    public static final int OVERLAY_MARGIN = 4;
+    
+    private final FruitCollectGame game;
+    private final Camera camera;
+    private final SpriteAtlas sprites;
+    private final TerrainLayer terrain;
+    private final PixelRasterizer rasterizer;
+    private final PerfStats stats;
+    private boolean overlayVisible;
+    private Minimap minimap;
+    private boolean overview;
+    
+    /**
+     * Constructs an {@code OrchardRenderer} for a game with the given grid dimensions.
+     * 
+     * @param game the game to paint
+     * @param gridWidth the width of a grid
+     * @param gridHeight the height of a grid
+     */
+    public OrchardRenderer(FruitCollectGame game, int gridWidth, int gridHeight) {
+        this.game = game;
+        this.camera = new Camera(game.getWidth(), game.getHeight(), Math.max(1, gridWidth),
+                        Math.max(1, gridHeight));
+        this.sprites = new SpriteAtlas(game::getFruitType);
+        this.terrain = new TerrainLayer();
+        this.rasterizer = new PixelRasterizer();
+        this.stats = new PerfStats();
+    }
+    
+    /**
+     * Paints a frame with the player at its current position.
+     * 
+     * @param g the {@code Graphics} context to paint with
+     * @param width the width of the surface in pixels
+     * @param height the height of the surface in pixels
+     * @param background the color of the background
+     * @param config the configuration of the screen painted on; null if unknown
+     */
+    public void paint(Graphics g, int width, int height, Color background,
+                    GraphicsConfiguration config) {
+        paint(g, width, height, background, config, game.getPlayerX(), game.getPlayerY());
+    }
+    
+    /**
+     * Paints a frame with the player at the position specified, which may lie between
+     * cells while the player is shown moving from one cell to the next.
+     * 
+     * @param g the {@code Graphics} context to paint with
+     * @param width the width of the surface in pixels
+     * @param height the height of the surface in pixels
+     * @param background the color of the background
+     * @param config the configuration of the screen painted on; null if unknown
+     * @param playerX the x-coordinate of the player in cells
+     * @param playerY the y-coordinate of the player in cells
+     */
+    public void paint(Graphics g, int width, int height, Color background,
+                    GraphicsConfiguration config, double playerX, double playerY) {
+        long start = System.nanoTime();
+        stats.frame(start);
+        boolean playerPainted = paintOrchard(g, width, height, background, config, playerX,
+                        playerY);
+        long paintNanos = stats.getPaintTimes().recordSince(start);
+        if (playerPainted) {
+            stats.inputsPainted(start + paintNanos, paintNanos);
+        }
+        if (overlayVisible) {
+            stats.drawOverlay(g, OVERLAY_MARGIN, OVERLAY_MARGIN);
+        }
+    }
+    
+    // Paints the orchard and the player; returns whether the player was inside the clip,
+    // that is whether the paint shows where the player is now
+    private boolean paintOrchard(Graphics g, int width, int height, Color background,
+                    GraphicsConfiguration config, double playerX, double playerY) {
+        if (overview) {
+            minimap.paint(g, width, height, background, playerX, playerY);
+            return true;
+        }
+        camera.setViewport(width, height);
+        camera.follow(game.getPlayerX(), game.getPlayerY());
+        int gridWidth = camera.getCellWidth();
+        int gridHeight = camera.getCellHeight();
+        Rectangle cells = camera.visibleCells(g.getClipBounds());
+        if ((long) cells.width * cells.height >= RASTER_MIN_CELLS) {
+            g.drawImage(rasterizer.render(camera, game, background), 0, 0, null);
+        } else {
+            sprites.prepare(config, background, gridWidth, gridHeight);
+            boolean pondsPainted = terrain.paint(g, camera, game, sprites, background, config);
+            for (int y = cells.y; y < cells.y + cells.height; y++) {
+                int py = camera.screenY(y);
+                for (int x = cells.x; x < cells.x + cells.width; x++) {
+                    int cell = game.getCell(x, y);
+                    if (PackedCell.isTree(cell) || !pondsPainted && PackedCell.isPond(cell)) {
+                        sprites.draw(g, cell, camera.screenX(x), py);
+                    }
+                }
+            }
+        }
+        // the other players, if any, are orange and drawn under player 0
+        g.setColor(Color.ORANGE);
+        for (int i = 1; i < game.getPlayerCount(); i++) {
+            int x = game.getPlayerX(i);
+            int y = game.getPlayerY(i);
+            if (!game.isOut(i) && cells.contains(x, y)) {
+                g.fillOval(camera.screenX(x) + (int)(0.2 * gridWidth),
+                                camera.screenY(y) + (int)(0.2 * gridHeight),
+                                (int)(gridWidth * 0.6), (int)(gridHeight * 0.6));
+            }
+        }
+        int cellX = (int) Math.floor(playerX);
+        int cellY = (int) Math.floor(playerY);
+        g.setColor(Color.GREEN);
+        g.fillOval(camera.screenX(cellX) + (int)((playerX - cellX + 0.2) * gridWidth),
+                        camera.screenY(cellY) + (int)((playerY - cellY + 0.2) * gridHeight),
+                        (int)(gridWidth * 0.6), (int)(gridHeight * 0.6));
+        Rectangle clip = g.getClipBounds();
+        return clip == null || clip.intersects(camera.screenX(game.getPlayerX()),
+                        camera.screenY(game.getPlayerY()), gridWidth, gridHeight);
+    }
+    
+    /**
+     * Makes the grids larger, leaving the overview for the smallest grids if it is shown.
+     */
+    public void zoomIn() {
+        if (overview) {
+            overview = false;
+        } else {
+            camera.zoomIn();
+        }
+    }
+    
+    /**
+     * Makes the grids smaller, or shows the overview once they are as small as they get.
+     * The minimap of the overview is built the first time it is shown.
+     */
+    public void zoomOut() {
+        if (camera.getCellWidth() > Camera.MIN_CELL_SIZE
+                        || camera.getCellHeight() > Camera.MIN_CELL_SIZE) {
+            camera.zoomOut();
+        } else {
+            if (minimap == null) {
+                minimap = new Minimap(game);
+            }
+            overview = true;
+        }
+    }
+    
+    /**
+     * @return {@code true} if the overview of the whole orchard is shown
+     * and {@code false} otherwise
+     */
+    public boolean isOverview() {
+        return overview;
+    }
+    
+    /**
+     * @return the timings of the frames painted, to which the game's timings can be added
+     */
+    public PerfStats getPerfStats() {
+        return stats;
+    }
+    
+    /**
+     * @param overlayVisible whether the overlay of the timings is painted on every frame
+     */
+    public void setOverlayVisible(boolean overlayVisible) {
+        this.overlayVisible = overlayVisible;
+    }
+    
+    /**
+     * @return {@code true} if the overlay of the timings is painted and {@code false}
+     * otherwise
+     */
+    public boolean isOverlayVisible() {
+        return overlayVisible;
+    }
+    
+    /**
+     * @return the area of the surface the overlay of the timings is painted in
+     */
+    public Rectangle getOverlayBounds() {
+        return new Rectangle(OVERLAY_MARGIN, OVERLAY_MARGIN, PerfStats.OVERLAY_WIDTH,
+                        PerfStats.OVERLAY_HEIGHT);
+    }
+    
+    /**
+     * @return the minimap of the overview; null if the overview has never been shown
+     */
+    public Minimap getMinimap() {
+        return minimap;
+    }
+    
+    /**
+     * @return the camera that decides which part of the orchard is shown
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+    
+    /**
+     * @return the cached layer with the background and the ponds
+     */
+    public TerrainLayer getTerrainLayer() {
+        return terrain;
+    }
+    
+    /**
+     * @return the software renderer of views with many cells
+     */
+    public PixelRasterizer getRasterizer() {
+        return rasterizer;
+    }
+
+}
@@ -0,0 +1,111 @@
+/**
+ * Encodes the state of one orchard cell in the low 16 bits of an {@code int}, so that boards
+ * can keep their cells in primitive storage instead of one heap object per cell.<p>
+ * Bit 0 marks a fruit tree, bit 1 marks a pond, bit 2 marks a mature tree, bit 3 marks a tree
+ * bearing bad fruit, and bits 4 to 15 hold the type id of the tree's fruit type on the board
+ * the cell belongs to ({@link OrchardBoard#getTypeId(FruitType)}).
+ * A cell with no bits set is empty.
+ *
+ * @author yuyingf
+ *
+ */
+public final class PackedCell {
+
+    public static final int EMPTY = 0;
+    public static final int TREE = 1;
+    public static final int POND = 1 << 1;
+    public static final int MATURE = 1 << 2;
+    public static final int BAD = 1 << 3;
+    public static final int TYPE_SHIFT = 4;
+    public static final int MAX_TYPES = 1 << (16 - TYPE_SHIFT);
+
+    private PackedCell() {
+    }
+
+    /**
+     * @param typeId the type id of the fruit type the tree produces
+     * @return the cell of an immature tree of the given fruit type
+     * @throws IllegalArgumentException if the type id does not fit in a cell
+     */
+    public static int tree(int typeId) {
+        if (typeId < 0 || typeId >= MAX_TYPES) {
+            throw new IllegalArgumentException("invalid fruit type id: " + typeId);
+        }
+        return TREE | (typeId << TYPE_SHIFT);
+    }
+
+    /**
+     * @param cell the cell of interest
+     * @return {@code true} if the cell holds a fruit tree and {@code false} otherwise
+     */
+    public static boolean isTree(int cell) {
+        return (cell & TREE) != 0;
+    }
+
+    /**
+     * @param cell the cell of interest
+     * @return {@code true} if the cell holds a pond and {@code false} otherwise
+     */
+    public static boolean isPond(int cell) {
+        return (cell & POND) != 0;
+    }
+
+    /**
+     * @param cell the cell of interest
+     * @return {@code true} if the cell holds a mature tree and {@code false} otherwise
+     */
+    public static boolean isMature(int cell) {
+        return (cell & MATURE) != 0;
+    }
+
+    /**
+     * @param cell the cell of interest
+     * @return {@code true} if the cell holds a mature tree bearing bad fruit
+     * and {@code false} otherwise
+     */
+    public static boolean isBadFruit(int cell) {
+        return (cell & (MATURE | BAD)) == (MATURE | BAD);
+    }
+
+    /**
+     * @param cell the cell of interest
+     * @return {@code true} if the cell holds a mature tree bearing good fruit
+     * and {@code false} otherwise
+     */
+    public static boolean isGoodFruit(int cell) {
+        return (cell & (MATURE | BAD)) == MATURE;
+    }
+
+    /**
+     * @param cell a cell holding a fruit tree
+     * @return the type id of the fruit type of the tree
+     */
+    public static int typeId(int cell) {
+        return (cell & 0xFFFF) >>> TYPE_SHIFT;
+    }
+
+    /**
+     * @param cell a cell holding a fruit tree
+     * @return the cell with its tree made mature
+     */
+    public static int mature(int cell) {
+        return cell | MATURE;
+    }
+
+    /**
+     * @param cell a cell holding a fruit tree
+     * @return the cell with its fruit turned bad; the cell itself if the tree is not mature
+     */
+    public static int turnBad(int cell) {
+        return isMature(cell) ? cell | BAD : cell;
+    }
+
+    /**
+     * @param cell a cell holding a fruit tree
+     * @return the cell with its fruit picked, i.e. with its tree immature again
+     */
+    public static int pick(int cell) {
+        return cell & ~MATURE;
+    }
+
+}
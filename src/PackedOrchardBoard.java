@@ -0,0 +1,295 @@
+import java.awt.Color;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An {@code OrchardBoard} that stores every cell as a {@link PackedCell} instead of an
+ * {@code OrchardObject}. Subclasses decide where the packed cells live.<p>
+ * {@link #getObject(int, int)} hands out lightweight views: changes made to a returned
+ * {@code FruitTree} are written straight back to the packed cell, and every pond is the same
+ * shared {@code Pond} instance.<p>
+ * The views change their cell with {@link #compareAndSetCell(int, int, int, int)}, so on a
+ * board that may be shared between threads several players can claim the fruit of one tree
+ * at once and exactly one of them gets it.
+ *
+ * @author yuyingf
+ *
+ */
+public abstract class PackedOrchardBoard extends OrchardBoard {
+
+    private static final Pond POND = new Pond();
+
+    /**
+     * Constructs an empty {@code PackedOrchardBoard} of the given dimensions.
+     *
+     * @param width the width of the orchard
+     * @param height the height of the orchard
+     * @throws IllegalArgumentException if either dimension is not positive
+     */
+    protected PackedOrchardBoard(int width, int height) {
+        super(width, height);
+    }
+
+    /**
+     * @param x the x-coordinate of a location on the board
+     * @param y the y-coordinate of a location on the board
+     * @return the packed cell at the location specified
+     */
+    protected abstract int readCell(int x, int y);
+
+    /**
+     * Stores a packed cell at the location specified.
+     *
+     * @param x the x-coordinate of a location on the board
+     * @param y the y-coordinate of a location on the board
+     * @param cell the packed cell to store
+     */
+    protected abstract void writeCell(int x, int y, int cell);
+
+    /**
+     * Stores a row of packed cells, as {@link #writeCell(int, int, int)} does for each cell.
+     * Boards that take a lock to write a cell override it to take the lock once for many
+     * cells.
+     *
+     * @param y the y-coordinate of a row of the board
+     * @param row the packed cells to store, one for each column of the board
+     */
+    protected void writeRow(int y, int[] row) {
+        for (int x = 0; x < row.length; x++) {
+            writeCell(x, y, row[x]);
+        }
+    }
+
+    /**
+     * Stores a packed cell at the location specified if the cell there is the one expected.
+     * This implementation reads and then writes the cell, which is only atomic on a board
+     * used by one thread, such as a {@code ChunkedOrchardBoard}; boards that may be shared
+     * between threads override it with a compare-and-set of their storage or a lock.
+     *
+     * @param x the x-coordinate of a location on the board
+     * @param y the y-coordinate of a location on the board
+     * @param expect the packed cell expected at the location
+     * @param cell the packed cell to store
+     * @return {@code true} if the cell was stored and {@code false} if the cell at the location
+     * was not the one expected
+     */
+    protected boolean compareAndSetCell(int x, int y, int expect, int cell) {
+        if (readCell(x, y) != expect) {
+            return false;
+        }
+        writeCell(x, y, cell);
+        return true;
+    }
+
+    /**
+     * Copies an initial setup into this board. The setup must have the dimensions of the board.
+     *
+     * @param orchard 2-D array representing the initial setup of the orchard
+     */
+    protected void copyFrom(OrchardObject[][] orchard) {
+        for (int y = 0; y < getHeight(); y++) {
+            for (int x = 0; x < getWidth(); x++) {
+                OrchardObject obj = orchard[y][x];
+                if (obj instanceof Pond) {
+                    placePond(x, y);
+                } else if (obj instanceof FruitTree) {
+                    FruitTree tree = (FruitTree) obj;
+                    int cell = PackedCell.tree(typeId(tree.getType(), tree.getColor()));
+                    if (tree.isMature()) {
+                        cell = PackedCell.mature(cell);
+                    }
+                    if (tree.isBadFruit()) {
+                        cell = PackedCell.turnBad(cell);
+                    }
+                    writeCell(x, y, cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the type id of a fruit type on this board, giving the type the next id if it
+     * is new to the board. The type id stands for the name and the color, so trees keep the
+     * color they were placed with.
+     *
+     * @param type the type of fruit
+     * @param color the color of the fruit
+     * @return the type id of the fruit type on this board
+     * @throws IllegalArgumentException if the board already has {@code PackedCell.MAX_TYPES}
+     * fruit types
+     */
+    protected int typeId(String type, Color color) {
+        return typeId(FruitType.of(type, color));
+    }
+
+    /**
+     * Places a pond at the location specified, replacing whatever was there.
+     *
+     * @param x the x-coordinate of the location specified
+     * @param y the y-coordinate of the location specified
+     * @throws IllegalArgumentException if the location is not on the board
+     */
+    public void placePond(int x, int y) {
+        if (!onBoard(x, y)) {
+            throw new IllegalArgumentException("invalid position");
+        }
+        writeCell(x, y, PackedCell.POND);
+    }
+
+    /**
+     * Places an immature fruit tree at the location specified, replacing whatever was there.
+     *
+     * @param x the x-coordinate of the location specified
+     * @param y the y-coordinate of the location specified
+     * @param type the type of fruit the tree produces
+     * @param color the color of the fruit the tree produces
+     * @throws IllegalArgumentException if the location is not on the board
+     */
+    public void placeTree(int x, int y, String type, Color color) {
+        if (!onBoard(x, y)) {
+            throw new IllegalArgumentException("invalid position");
+        }
+        writeCell(x, y, PackedCell.tree(typeId(type, color)));
+    }
+
+    /**
+     * Reads the packed cell straight from storage, without creating a view.
+     */
+    @Override
+    public int getCell(int x, int y) {
+        return onBoard(x, y) ? readCell(x, y) : PackedCell.EMPTY;
+    }
+
+    /**
+     * @return a view of the object at the location specified,
+     * null if the location is empty or not on board
+     */
+    @Override
+    public OrchardObject getObject(int x, int y) {
+        if (!onBoard(x, y)) {
+            return null;
+        }
+        int cell = readCell(x, y);
+        if (PackedCell.isPond(cell)) {
+            return POND;
+        }
+        if (PackedCell.isTree(cell)) {
+            return new TreeView(x, y, getFruitType(PackedCell.typeId(cell)));
+        }
+        return null;
+    }
+
+    @Override
+    public List<Point> goodFruitPositions() {
+        List<Point> positions = new ArrayList<Point>();
+        int width = getWidth();
+        int height = getHeight();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (PackedCell.isGoodFruit(readCell(x, y))) {
+                    positions.add(new Point(x, y));
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * @return a set of the types of fruit trees placed on the board
+     */
+    @Override
+    public Set<String> getFruitTypes() {
+        Set<String> types = new HashSet<String>();
+        for (int id = 0; id < getTypeCount(); id++) {
+            types.add(getFruitType(id).getName());
+        }
+        return types;
+    }
+
+    /**
+     * @return a set of the descriptors of fruit trees placed on the board
+     */
+    @Override
+    public Set<FruitType> getTreeTypes() {
+        Set<FruitType> types = new HashSet<FruitType>();
+        for (int id = 0; id < getTypeCount(); id++) {
+            types.add(getFruitType(id));
+        }
+        return types;
+    }
+
+    /**
+     * A {@code FruitTree} backed by a packed cell of this board.
+     */
+    private class TreeView extends FruitTree {
+
+        private final int x;
+        private final int y;
+
+        private TreeView(int x, int y, FruitType fruitType) {
+            super(fruitType);
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        protected int readState() {
+            int cell = readCell(x, y);
+            if (!PackedCell.isMature(cell)) {
+                return 0;
+            }
+            return PackedCell.isBadFruit(cell) ? MATURE | BAD : MATURE;
+        }
+
+        @Override
+        public boolean isMature() {
+            return PackedCell.isMature(readCell(x, y));
+        }
+
+        @Override
+        public boolean isBadFruit() {
+            return PackedCell.isBadFruit(readCell(x, y));
+        }
+
+        @Override
+        public boolean ripen() {
+            int cell;
+            do {
+                cell = readCell(x, y);
+                if (PackedCell.isMature(cell)) {
+                    return false;
+                }
+            } while (!compareAndSetCell(x, y, cell, PackedCell.mature(cell)));
+            return true;
+        }
+
+        @Override
+        public boolean spoilFruit() {
+            int cell;
+            do {
+                cell = readCell(x, y);
+                if (!PackedCell.isGoodFruit(cell)) {
+                    return false;
+                }
+            } while (!compareAndSetCell(x, y, cell, PackedCell.turnBad(cell)));
+            return true;
+        }
+
+        @Override
+        public boolean claimFruit() {
+            int cell;
+            do {
+                cell = readCell(x, y);
+                if (!PackedCell.isGoodFruit(cell)) {
+                    return false;
+                }
+            } while (!compareAndSetCell(x, y, cell, PackedCell.pick(cell)));
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A goal accomplished once a minimum quantity of every fruit type in the game has been
+ * collected. The minimum can be set for each type; types without their own minimum use the
+ * default one. The goal keeps a running count of the types still below their minimum.
+ * 
+ * @author yuyingf
+ *
+ */
+public class PerTypeGoal implements CollectionGoal {
+    
+    private final int defaultGoal;
+    private final Map<String, Integer> goals;
+    private int[] goalById;
+    private int remaining;
+    
+    /**
+     * Constructs a {@code PerTypeGoal} with the same minimum for every fruit type.
+     * 
+     * @param defaultGoal the quantity of each type of fruit to collect
+     * @throws IllegalArgumentException if the quantity is negative
+     */
+    public PerTypeGoal(int defaultGoal) {
+        this(defaultGoal, new HashMap<String, Integer>());
+    }
+    
+    /**
+     * Constructs a {@code PerTypeGoal} with its own minimum for some fruit types.
+     * 
+     * @param defaultGoal the quantity to collect of each type of fruit not in the map
+     * @param goals a map of fruit types to the quantity of each to collect
+     * @throws IllegalArgumentException if the map is null or any quantity is negative
+     */
+    public PerTypeGoal(int defaultGoal, Map<String, Integer> goals) {
+        if (goals == null) {
+            throw new IllegalArgumentException("map of goals is null");
+        }
+        if (defaultGoal < 0 || goals.containsValue(null)) {
+            throw new IllegalArgumentException("invalid goal");
+        }
+        for (int goal : goals.values()) {
+            if (goal < 0) {
+                throw new IllegalArgumentException("invalid goal: " + goal);
+            }
+        }
+        this.defaultGoal = defaultGoal;
+        this.goals = new HashMap<String, Integer>(goals);
+    }
+    
+    /**
+     * @param fruit the fruit of interest
+     * @return the quantity of this fruit to collect
+     */
+    public int getGoal(String fruit) {
+        Integer goal = goals.get(fruit);
+        return goal == null ? defaultGoal : goal;
+    }
+    
+    @Override
+    public void start(int[] collected) {
+        goalById = new int[collected.length];
+        remaining = 0;
+        for (int id = 0; id < collected.length; id++) {
+            if (collected[id] >= 0) {
+                goalById[id] = getGoal(FruitType.byId(id).getName());
+                if (collected[id] < goalById[id]) {
+                    remaining++;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Counts the fruit type as done when its quantity reaches its minimum.
+     */
+    @Override
+    public void collected(int typeId, int count) {
+        if (count == goalById[typeId]) {
+            remaining--;
+        }
+    }
+    
+    /**
+     * @return {@code true} if no fruit type is below its minimum and {@code false} otherwise
+     */
+    @Override
+    public boolean isAccomplished() {
+        return remaining == 0;
+    }
+
+}
@@ -0,0 +1,193 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Timings of a running game, kept in {@code LatencyHistogram}s: how long painting a frame
+ * takes, how long a tick or a generation takes, how long a move takes, and the time between
+ * two frames, from which the frames per second are derived. They can be drawn as an overlay
+ * on top of the orchard showing the p50, p99 and max of each.<p>
+ * The input latency is the time from a key press to the end of the first paint that shows
+ * the move it made. A handled key press is kept until that paint, and a press slower than
+ * {@link #SLOW_INPUT_NANOS} is logged with the time it spent queued, moving and painting.<p>
+ * Like the histograms, the stats are not thread-safe and are recorded and read on the thread
+ * that runs the game.
+ * 
+ * @author yuyingf
+ *
+ */
+public class PerfStats {
+    
+    public static final int OVERLAY_WIDTH = 300;
+    public static final int OVERLAY_HEIGHT = 85;
+    public static final long SLOW_INPUT_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    
+    private static final int LINE_HEIGHT = 15;
+    private static final Logger LOG = Logger.getLogger(PerfStats.class.getName());
+    
+    private final LatencyHistogram paintTimes = new LatencyHistogram();
+    private final LatencyHistogram tickTimes = new LatencyHistogram();
+    private final LatencyHistogram moveTimes = new LatencyHistogram();
+    private final LatencyHistogram frameTimes = new LatencyHistogram();
+    private final LatencyHistogram inputLatencies = new LatencyHistogram();
+    // key presses handled but not painted yet: pressed, handled and move time of each
+    private final List<long[]> pendingInputs = new ArrayList<long[]>();
+    private long lastFrame;
+    private boolean framed;
+    
+    /**
+     * @return the time taken to paint each frame
+     */
+    public LatencyHistogram getPaintTimes() {
+        return paintTimes;
+    }
+    
+    /**
+     * @return the time taken by each tick of the game, including any new generation
+     */
+    public LatencyHistogram getTickTimes() {
+        return tickTimes;
+    }
+    
+    /**
+     * @return the time taken by each move of the player
+     */
+    public LatencyHistogram getMoveTimes() {
+        return moveTimes;
+    }
+    
+    /**
+     * @return the time between the starts of two frames in a row
+     */
+    public LatencyHistogram getFrameTimes() {
+        return frameTimes;
+    }
+    
+    /**
+     * @return the time from each key press to the end of the paint that first showed it
+     */
+    public LatencyHistogram getInputLatencies() {
+        return inputLatencies;
+    }
+    
+    /**
+     * Converts the timestamp of an input event, in milliseconds of the wall clock, to the
+     * {@code System.nanoTime()} clock. The result is only as precise as the timestamp.
+     * 
+     * @param when the timestamp of the event, as returned by {@code InputEvent.getWhen()}
+     * @param now the current time from {@code System.nanoTime()}
+     * @return the time of the event on the nano time clock, never later than now
+     */
+    public static long pressedAt(long when, long now) {
+        long age = Math.max(0, System.currentTimeMillis() - when);
+        return now - TimeUnit.MILLISECONDS.toNanos(age);
+    }
+    
+    /**
+     * Records that a key press has been handled by a move; its latency is recorded by the
+     * next call to {@link #inputsPainted(long, long)}.
+     * 
+     * @param pressed when the key was pressed, from {@link #pressedAt(long, long)}
+     * @param handled when the move started, from {@code System.nanoTime()}
+     * @param moveNanos how long the move took
+     */
+    public void inputHandled(long pressed, long handled, long moveNanos) {
+        pendingInputs.add(new long[] {pressed, handled, moveNanos});
+    }
+    
+    /**
+     * Records the latency of every key press handled since the last call, now that a paint
+     * showing the moves has finished, and logs the slow ones.
+     * 
+     * @param painted when the paint finished, from {@code System.nanoTime()}
+     * @param paintNanos how long the paint took
+     */
+    public void inputsPainted(long painted, long paintNanos) {
+        for (long[] input : pendingInputs) {
+            long latency = painted - input[0];
+            inputLatencies.record(latency);
+            if (latency > SLOW_INPUT_NANOS) {
+                long queued = input[1] - input[0];
+                LOG.warning(String.format("slow input: %.1f ms (queued %.1f ms, move %.2f ms, "
+                                + "waiting for paint %.1f ms, paint %.1f ms)", latency / 1e6,
+                                queued / 1e6, input[2] / 1e6,
+                                (latency - queued - input[2] - paintNanos) / 1e6,
+                                paintNanos / 1e6));
+            }
+        }
+        pendingInputs.clear();
+    }
+    
+    /**
+     * Records that a frame started at the time specified; the time since the last frame
+     * started is added to the frame times.
+     * 
+     * @param now the start of the frame, from {@code System.nanoTime()}
+     */
+    public void frame(long now) {
+        if (framed) {
+            frameTimes.record(now - lastFrame);
+        }
+        lastFrame = now;
+        framed = true;
+    }
+    
+    /**
+     * Returns the frames per second the given percent of frames reached, that is the frame
+     * rate of the frame time at that percentile. The p99 frame rate is the one all but the
+     * slowest 1% of frames reached.
+     * 
+     * @param percentile the percent of frames, between 0 and 100 inclusive
+     * @return the frames per second; 0 if fewer than two frames were recorded
+     */
+    public double getFramesPerSecond(double percentile) {
+        long nanos = frameTimes.getValueAtPercentile(percentile);
+        return nanos == 0 ? 0 : 1e9 / nanos;
+    }
+    
+    /**
+     * Forgets every timing recorded.
+     */
+    public void reset() {
+        paintTimes.reset();
+        tickTimes.reset();
+        moveTimes.reset();
+        frameTimes.reset();
+        inputLatencies.reset();
+        pendingInputs.clear();
+        framed = false;
+    }
+    
+    /**
+     * Draws the overlay of the stats, {@value #OVERLAY_WIDTH} x {@value #OVERLAY_HEIGHT}
+     * pixels, with its top-left corner at the position specified.
+     * 
+     * @param g the {@code Graphics} context to draw with
+     * @param px the pixel x-coordinate of the overlay
+     * @param py the pixel y-coordinate of the overlay
+     */
+    public void drawOverlay(Graphics g, int px, int py) {
+        g.setColor(new Color(0, 0, 0, 160));
+        g.fillRect(px, py, OVERLAY_WIDTH, OVERLAY_HEIGHT);
+        g.setColor(Color.WHITE);
+        int y = py + LINE_HEIGHT - 2;
+        g.drawString(line("paint", paintTimes), px + 5, y);
+        g.drawString(line("tick", tickTimes), px + 5, y += LINE_HEIGHT);
+        g.drawString(line("move", moveTimes), px + 5, y += LINE_HEIGHT);
+        g.drawString(line("input", inputLatencies), px + 5, y += LINE_HEIGHT);
+        g.drawString(String.format("fps    p50 %.1f  p99 %.1f  min %.1f",
+                        getFramesPerSecond(50), getFramesPerSecond(99),
+                        getFramesPerSecond(100)), px + 5, y += LINE_HEIGHT);
+    }
+    
+    // One line of the overlay, in milliseconds
+    private static String line(String name, LatencyHistogram times) {
+        return String.format("%-6s p50 %.2f  p99 %.2f  max %.2f ms", name,
+                        times.getValueAtPercentile(50) / 1e6, times.getValueAtPercentile(99) / 1e6,
+                        times.getMax() / 1e6);
+    }
+    
+}
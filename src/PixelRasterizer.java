@@ -0,0 +1,220 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Renders the part of an orchard in view of a {@code Camera} in software, writing the colors
+ * of the cells straight into the {@code int[]} behind a {@code BufferedImage}, which is then
+ * blitted to the screen once per frame instead of making one Java2D call per cell.<p>
+ * Each look of a cell is drawn once for the current grid size, the same way as the sprites of
+ * a {@code SpriteAtlas}, into a small tile of pixels; the circle of a tree is then a mask of
+ * precomputed pixels, and painting a row of cells is a run of array copies from the tiles.
+ * The view is split into bands of {@value #BAND_HEIGHT} pixel rows, which are filled in
+ * parallel on a fork/join pool. The board is only read while rendering, so it must not be
+ * changed until {@link #render(Camera, FruitCollectGame, Color)} returns.
+ * 
+ * @author yuyingf
+ *
+ */
+public class PixelRasterizer {
+    
+    public static final int BAND_HEIGHT = 32;
+    
+    private final ForkJoinPool pool;
+    private BufferedImage image;
+    private int[] pixels;
+    // the game the tiles were drawn for, since looks are told apart by the type ids of its board
+    private FruitCollectGame game;
+    private Color background;
+    private int cellWidth;
+    private int cellHeight;
+    // the pixels of each look, row by row; null if the look is not drawn yet
+    private int[][] tiles = new int[0][];
+    private int renders;
+    
+    /**
+     * Constructs a {@code PixelRasterizer} that renders on the common fork/join pool.
+     */
+    public PixelRasterizer() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Constructs a {@code PixelRasterizer} that renders on the given fork/join pool.
+     * 
+     * @param pool the pool the bands of the view are filled on
+     * @throws IllegalArgumentException if the pool is null
+     */
+    public PixelRasterizer(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool is null");
+        }
+        this.pool = pool;
+    }
+    
+    /**
+     * Renders the view of a camera into an image of the size of its viewport.
+     * 
+     * @param camera the camera the orchard is seen through
+     * @param game the game whose orchard is rendered
+     * @param background the color of empty cells and of the area around the board
+     * @return the rendered image, which is reused by the next render;
+     * null if the viewport is empty
+     */
+    public BufferedImage render(Camera camera, FruitCollectGame game, Color background) {
+        int width = camera.getViewWidth();
+        int height = camera.getViewHeight();
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+        prepare(game, background, camera.getCellWidth(), camera.getCellHeight());
+        pool.invoke(new FillBands(camera, game, 0, (height - 1) / BAND_HEIGHT + 1));
+        renders++;
+        return image;
+    }
+    
+    /**
+     * @return the number of times a view was rendered
+     */
+    public int getRenderCount() {
+        return renders;
+    }
+    
+    // Draws the tiles of every look the game can show, before any band is filled
+    private void prepare(FruitCollectGame game, Color background, int cellWidth, int cellHeight) {
+        if (game != this.game || !background.equals(this.background)
+                        || cellWidth != this.cellWidth || cellHeight != this.cellHeight) {
+            this.game = game;
+            this.background = background;
+            this.cellWidth = cellWidth;
+            this.cellHeight = cellHeight;
+            tiles = new int[0][];
+        }
+        prepareTile(PackedCell.POND, null);
+        for (int id = 0; id < game.getTypeCount(); id++) {
+            FruitType type = game.getFruitType(id);
+            int tree = PackedCell.tree(id);
+            prepareTile(tree, type);
+            prepareTile(PackedCell.mature(tree), type);
+            prepareTile(PackedCell.turnBad(PackedCell.mature(tree)), type);
+        }
+    }
+    
+    private void prepareTile(int cell, FruitType type) {
+        int look = SpriteAtlas.look(cell);
+        if (look >= tiles.length) {
+            tiles = Arrays.copyOf(tiles, Math.max(look + 1, tiles.length * 2));
+        }
+        if (tiles[look] != null) {
+            return;
+        }
+        BufferedImage tile = new BufferedImage(cellWidth, cellHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = tile.createGraphics();
+        try {
+            g.setColor(background);
+            g.fillRect(0, 0, cellWidth, cellHeight);
+            SpriteAtlas.drawLook(g, cell, type, 0, 0, cellWidth, cellHeight);
+        } finally {
+            g.dispose();
+        }
+        tiles[look] = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+    }
+    
+    // The tile of a cell; null for an empty cell
+    private int[] tile(int cell) {
+        int look = SpriteAtlas.look(cell);
+        return look >= 0 && look < tiles.length ? tiles[look] : null;
+    }
+    
+    /**
+     * Fills a range of bands, splitting it in halves until a single band is left.
+     */
+    private class FillBands extends RecursiveAction {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final Camera camera;
+        private final FruitCollectGame game;
+        private final int from;
+        private final int to;
+        
+        private FillBands(Camera camera, FruitCollectGame game, int from, int to) {
+            this.camera = camera;
+            this.game = game;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new FillBands(camera, game, from, mid),
+                                new FillBands(camera, game, mid, to));
+                return;
+            }
+            int width = image.getWidth();
+            int end = Math.min(image.getHeight(), (from + 1) * BAND_HEIGHT);
+            int bg = background.getRGB();
+            long originX = camera.getOriginX();
+            long originY = camera.getOriginY();
+            long boardHeight = (long) game.getHeight() * cellHeight;
+            long fromX = Math.max(0, Math.floorDiv(originX, cellWidth));
+            long toX = Math.min(game.getWidth(), Math.floorDiv(originX + width - 1, cellWidth) + 1);
+            int[] row = new int[(int) Math.max(0, toX - fromX)];
+            int left = (int) (fromX * cellWidth - originX);
+            int py = from * BAND_HEIGHT;
+            while (py < end) {
+                long by = originY + py;
+                if (by < 0 || by >= boardHeight || row.length == 0) {
+                    Arrays.fill(pixels, py * width, (py + 1) * width, bg);
+                    py++;
+                    continue;
+                }
+                // the cells of a row are read once for all the pixel rows they cover
+                int y = (int) (by / cellHeight);
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = game.getCell((int) fromX + i, y);
+                }
+                int rowEnd = (int) Math.min(end, (long) (y + 1) * cellHeight - originY);
+                for (; py < rowEnd; py++) {
+                    fillRow(row, left, (int) (originY + py - (long) y * cellHeight), py, bg);
+                }
+            }
+        }
+        
+        // Fills one pixel row with row ty of the tiles of a row of cells
+        private void fillRow(int[] row, int left, int ty, int py, int bg) {
+            int width = image.getWidth();
+            int base = py * width;
+            int px = left;
+            if (px > 0) {
+                Arrays.fill(pixels, base, base + px, bg);
+            }
+            for (int i = 0; i < row.length; i++, px += cellWidth) {
+                int start = Math.max(0, px);
+                int stop = Math.min(width, px + cellWidth);
+                int[] tile = tile(row[i]);
+                if (tile == null) {
+                    Arrays.fill(pixels, base + start, base + stop, bg);
+                } else {
+                    System.arraycopy(tile, ty * cellWidth + start - px, pixels, base + start,
+                                    stop - start);
+                }
+            }
+            if (px < width) {
+                Arrays.fill(pixels, base + Math.max(0, px), base + width, bg);
+            }
+        }
+        
+    }
+    
+}
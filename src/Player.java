@@ -7,8 +7,8 @@
  */
 public class Player {
     
-    private int x;
-    private int y;
+    private volatile int x;
+    private volatile int y;
 
     /**
      * Constructs a {@code Player} at the position specified by (x,y) on the game board.
@@ -11,6 +11,8 @@ import java.util.Map;
  */
 public class Pond implements OrchardObject {
     
+    public static final Color COLOR = new Color(51, 204, 255);
+    
     /**
      * All ponds are equal.
      */
@@ -42,6 +44,14 @@ public class Pond implements OrchardObject {
     public boolean meetPlayer(Map<String, Integer> collected) {
         return true;
     }
+    
+    /**
+     * Kills the player.
+     */
+    @Override
+    public boolean meetPlayerById(int[] collected) {
+        return true;
+    }
 
     /**
      * Draws a filled light blue rectangle with the given dimension
@@ -49,7 +59,7 @@ public class Pond implements OrchardObject {
      */
     @Override
     public void draw(Graphics g, int px, int py, int width, int height) {
-        g.setColor(new Color(51,204,255));
+        g.setColor(COLOR);
         g.fillRect(px, py, width, height);
     }
     
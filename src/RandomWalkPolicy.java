@@ -0,0 +1,36 @@
+import java.util.SplittableRandom;
+
+/**
+ * A {@code MovePolicy} that steps onto an adjacent tree with good fruit when there is one,
+ * and otherwise walks randomly. Ponds and bad fruit are avoided unless every step leads
+ * into one, in which case the player stays put.
+ * 
+ * @author yuyingf
+ *
+ */
+public class RandomWalkPolicy implements MovePolicy {
+    
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    @Override
+    public Direction nextMove(FruitCollectGame game, SplittableRandom random) {
+        Direction[] safe = new Direction[DIRECTIONS.length];
+        int numSafe = 0;
+        for (Direction direction : DIRECTIONS) {
+            int x = game.getPlayerX() + direction.getDx();
+            int y = game.getPlayerY() + direction.getDy();
+            if (!game.onBoard(x, y)) {
+                continue;
+            }
+            int cell = game.getCell(x, y);
+            if (PackedCell.isGoodFruit(cell)) {
+                return direction;
+            }
+            if (!PackedCell.isPond(cell) && !PackedCell.isBadFruit(cell)) {
+                safe[numSafe++] = direction;
+            }
+        }
+        return numSafe == 0 ? null : safe[random.nextInt(numSafe)];
+    }
+
+}
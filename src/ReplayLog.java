@@ -0,0 +1,303 @@
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A record of a game built from a {@code BoardSpec} and a seed: the steps of player 0, the
+ * generations and the end of the game, each with the time it happened, in milliseconds
+ * since the log was created. Every generation and the end carry the checksum of the game
+ * right after them, so a {@code Replayer} can tell where a replay first differs from the
+ * game recorded. A log is filled by the game it is given to with
+ * {@link FruitCollectGame#setReplayLog(ReplayLog)}; the game keeps its checksum up to date as
+ * it changes, so recording a generation does not visit the whole orchard.<p>
+ * A saved log starts with the magic number {@code "FCRP"}, the format {@value #VERSION},
+ * the seed and the spec: the dimensions, the percent of ponds, the starting position and the
+ * fruits, each with its name and color. Then come the number of events and the events, each
+ * a byte holding its kind and, for a step, the direction; the time since the event before it,
+ * as a variable-length number; and, for a generation or the end, the checksum. A step of a
+ * game played by hand takes about 2 bytes.
+ *
+ * @author yuyingf
+ *
+ */
+public class ReplayLog {
+
+    public static final int MAGIC = 0x46435250;
+    public static final int VERSION = 2;
+
+    /** A step of player 0. */
+    public static final int MOVE = 0;
+    /** A generation. */
+    public static final int GEN = 1;
+    /** The end of the game, other than by a step. */
+    public static final int END = 2;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int KIND_SHIFT = 4;
+    private static final int MAX_FRUITS = 1 << 12;
+
+    private final BoardSpec spec;
+    private final long seed;
+    private final long start = System.nanoTime();
+    private int size;
+    private byte[] codes = new byte[64];
+    private int[] millis = new int[64];
+    private long[] checksums = new long[64];
+
+    /**
+     * Constructs an empty {@code ReplayLog} for a game, starting its clock.
+     *
+     * @param spec the spec the game is built from
+     * @param seed the seed the game is built from
+     * @throws IllegalArgumentException if the spec or its fruits are null
+     */
+    public ReplayLog(BoardSpec spec, long seed) {
+        if (spec == null || spec.getFruits() == null) {
+            throw new IllegalArgumentException("spec or fruits is null");
+        }
+        this.spec = spec;
+        this.seed = seed;
+    }
+
+    /**
+     * @return the spec of the game
+     */
+    public BoardSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * @return the seed of the game
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Builds the game recorded, as it was before its first event.
+     *
+     * @return a new game from the spec and seed of the log, not recorded in any log
+     * @throws IllegalArgumentException if the spec is invalid
+     */
+    public FruitCollectGame newGame() {
+        return spec.newGame(seed);
+    }
+
+    /**
+     * Records a step of player 0. Called by the game recorded.
+     *
+     * @param direction the direction of the step
+     */
+    public synchronized void recordMove(Direction direction) {
+        add(MOVE << KIND_SHIFT | direction.ordinal(), 0);
+    }
+
+    /**
+     * Records a generation. Called by the game recorded.
+     *
+     * @param checksum the checksum of the game after the generation
+     */
+    public synchronized void recordGen(long checksum) {
+        add(GEN << KIND_SHIFT, checksum);
+    }
+
+    /**
+     * Records the end of the game. Called by the game recorded.
+     *
+     * @param checksum the checksum of the game once it ended
+     */
+    public synchronized void recordEnd(long checksum) {
+        add(END << KIND_SHIFT, checksum);
+    }
+
+    private void add(int code, long checksum) {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, size * 2);
+            millis = Arrays.copyOf(millis, size * 2);
+            checksums = Arrays.copyOf(checksums, size * 2);
+        }
+        codes[size] = (byte) code;
+        millis[size] = (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        checksums[size] = checksum;
+        size++;
+    }
+
+    /**
+     * @return the number of events recorded
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param event the index of an event
+     * @return the kind of the event: {@link #MOVE}, {@link #GEN} or {@link #END}
+     * @throws IllegalArgumentException if there is no such event
+     */
+    public synchronized int getKind(int event) {
+        check(event);
+        return codes[event] >>> KIND_SHIFT;
+    }
+
+    /**
+     * @param event the index of an event
+     * @return the direction of the step; null if the event is not a step
+     * @throws IllegalArgumentException if there is no such event
+     */
+    public synchronized Direction getDirection(int event) {
+        check(event);
+        return codes[event] >>> KIND_SHIFT == MOVE ? DIRECTIONS[codes[event] & 0xF] : null;
+    }
+
+    /**
+     * @param event the index of an event
+     * @return the time of the event, in milliseconds since the log was created
+     * @throws IllegalArgumentException if there is no such event
+     */
+    public synchronized int getMillis(int event) {
+        check(event);
+        return millis[event];
+    }
+
+    /**
+     * @param event the index of an event
+     * @return the checksum of the game after a generation or the end; 0 for a step
+     * @throws IllegalArgumentException if there is no such event
+     */
+    public synchronized long getChecksum(int event) {
+        check(event);
+        return checksums[event];
+    }
+
+    private void check(int event) {
+        if (event < 0 || event >= size) {
+            throw new IllegalArgumentException("invalid event: " + event);
+        }
+    }
+
+    /**
+     * Writes the log to a channel, leaving the channel open.
+     *
+     * @param channel the channel to write to
+     * @throws IOException if the channel cannot be written to
+     * @throws IllegalArgumentException if the channel is null
+     */
+    public synchronized void write(WritableByteChannel channel) throws IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("channel is null");
+        }
+        DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel)));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(seed);
+        out.writeInt(spec.getWidth());
+        out.writeInt(spec.getHeight());
+        out.writeInt(spec.getPondPercent());
+        out.writeInt(spec.getPlayerX());
+        out.writeInt(spec.getPlayerY());
+        Map<String, Color> fruits = new TreeMap<String, Color>(spec.getFruits());
+        out.writeInt(fruits.size());
+        for (Map.Entry<String, Color> fruit : fruits.entrySet()) {
+            out.writeUTF(fruit.getKey());
+            out.writeByte(fruit.getValue() == null ? 0 : 1);
+            out.writeInt(fruit.getValue() == null ? 0 : fruit.getValue().getRGB());
+        }
+        out.writeInt(size);
+        int previous = 0;
+        for (int i = 0; i < size; i++) {
+            out.writeByte(codes[i]);
+            // 7 bits per byte, least significant first; the high bit marks that more follow
+            int delta = millis[i] - previous;
+            while ((delta & ~0x7F) != 0) {
+                out.writeByte(delta & 0x7F | 0x80);
+                delta >>>= 7;
+            }
+            out.writeByte(delta);
+            previous = millis[i];
+            if (codes[i] >>> KIND_SHIFT != MOVE) {
+                out.writeLong(checksums[i]);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads a log written by {@link #write(WritableByteChannel)}.
+     *
+     * @param channel the channel to read from
+     * @return the log read
+     * @throws IOException if the channel cannot be read from or does not hold a saved log
+     * @throws IllegalArgumentException if the channel is null
+     */
+    public static ReplayLog read(ReadableByteChannel channel) throws IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("channel is null");
+        }
+        DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(Channels.newInputStream(channel)));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a replay log");
+        }
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported format version: " + version);
+        }
+        long seed = in.readLong();
+        int width = in.readInt();
+        int height = in.readInt();
+        int pondPercent = in.readInt();
+        int playerX = in.readInt();
+        int playerY = in.readInt();
+        int count = in.readInt();
+        if (count <= 0 || count > MAX_FRUITS) {
+            throw new IOException("corrupt fruit table");
+        }
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            boolean hasColor = in.readByte() != 0;
+            int rgb = in.readInt();
+            fruits.put(name, hasColor ? new Color(rgb, true) : null);
+        }
+        ReplayLog log = new ReplayLog(new BoardSpec(width, height, fruits, pondPercent,
+                        playerX, playerY), seed);
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("corrupt number of events: " + size);
+        }
+        int time = 0;
+        for (int i = 0; i < size; i++) {
+            int code = in.readByte() & 0xFF;
+            int kind = code >>> KIND_SHIFT;
+            if (kind > END || kind == MOVE && (code & 0xF) >= DIRECTIONS.length) {
+                throw new IOException("corrupt event: " + code);
+            }
+            int delta = 0;
+            for (int shift = 0, b = 0x80; (b & 0x80) != 0; shift += 7) {
+                if (shift >= 35) {
+                    throw new IOException("corrupt event time");
+                }
+                b = in.readByte();
+                delta |= (b & 0x7F) << shift;
+            }
+            time += delta;
+            long checksum = kind == MOVE ? 0 : in.readLong();
+            log.add(code, checksum);
+            log.millis[i] = time;
+        }
+        return log;
+    }
+
+}
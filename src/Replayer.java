@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Plays a {@code ReplayLog} again, headless and as fast as it can, ignoring the times of the
+ * events, and checks the game against the checksums recorded. Each run of steps between two
+ * generations is played with one {@link FruitCollectGame#movePath(int, Direction[], int, int)}.
+ * A replay that matches at every generation and at the end reproduces the game recorded, so
+ * a log saved by a player reporting a bug reproduces the bug, and logs of real games make
+ * realistic workloads for measuring the game.
+ *
+ * @author yuyingf
+ *
+ */
+public class Replayer {
+
+    private final ReplayLog log;
+    private Direction[] path = new Direction[64];
+    private int mismatches;
+    private int firstMismatch = -1;
+    private long replayNanos;
+
+    /**
+     * Constructs a {@code Replayer}.
+     *
+     * @param log the log to play
+     * @throws IllegalArgumentException if the log is null
+     */
+    public Replayer(ReplayLog log) {
+        if (log == null) {
+            throw new IllegalArgumentException("log is null");
+        }
+        this.log = log;
+    }
+
+    /**
+     * Plays the log from the start, on a new game.
+     *
+     * @return the game as it is after the last event
+     * @throws IllegalArgumentException if the spec of the log is invalid
+     */
+    public FruitCollectGame replay() {
+        long start = System.nanoTime();
+        FruitCollectGame game = log.newGame();
+        mismatches = 0;
+        firstMismatch = -1;
+        int size = log.size();
+        int event = 0;
+        while (event < size) {
+            int kind = log.getKind(event);
+            if (kind == ReplayLog.MOVE) {
+                int steps = 0;
+                while (event + steps < size && log.getKind(event + steps) == ReplayLog.MOVE) {
+                    if (steps == path.length) {
+                        path = Arrays.copyOf(path, steps * 2);
+                    }
+                    path[steps] = log.getDirection(event + steps);
+                    steps++;
+                }
+                game.movePath(0, path, 0, steps);
+                event += steps;
+                continue;
+            }
+            if (kind == ReplayLog.GEN) {
+                game.nextGen();
+            } else {
+                game.endGame();
+            }
+            if (game.checksum() != log.getChecksum(event)) {
+                mismatches++;
+                if (firstMismatch < 0) {
+                    firstMismatch = event;
+                }
+            }
+            event++;
+        }
+        replayNanos = System.nanoTime() - start;
+        return game;
+    }
+
+    /**
+     * @return the number of checksums the last replay did not match
+     */
+    public int getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * @return the index of the first event whose checksum the last replay did not match; -1
+     * if it matched every checksum
+     */
+    public int getFirstMismatch() {
+        return firstMismatch;
+    }
+
+    /**
+     * @return how long the last replay took in nanoseconds
+     */
+    public long getReplayNanos() {
+        return replayNanos;
+    }
+
+    /**
+     * Replays saved logs and prints whether each matches and how fast it was played.
+     *
+     * @param args the paths of the logs, optionally preceded by {@code --repeat n} to play
+     * each log n times (default 1)
+     * @throws IOException if a log cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        int repeat = 1;
+        int first = 0;
+        if (args.length > 1 && args[0].equals("--repeat")) {
+            repeat = Integer.parseInt(args[1]);
+            first = 2;
+        }
+        for (int i = first; i < args.length; i++) {
+            ReplayLog log;
+            try (FileChannel channel = FileChannel.open(Paths.get(args[i]),
+                            StandardOpenOption.READ)) {
+                log = ReplayLog.read(channel);
+            }
+            Replayer replayer = new Replayer(log);
+            LatencyHistogram times = new LatencyHistogram();
+            for (int r = 0; r < repeat; r++) {
+                replayer.replay();
+                times.record(replayer.getReplayNanos());
+            }
+            String result = replayer.getFirstMismatch() < 0 ? "matches"
+                            : "MISMATCH at event " + replayer.getFirstMismatch() + " ("
+                                            + replayer.getMismatches() + " checksums differ)";
+            System.out.printf("%s: %d events, %s; replay p50 %.1f us (%.0f events/s)%n",
+                            args[i], log.size(), result, times.getValueAtPercentile(50) / 1e3,
+                            log.size() / (times.getValueAtPercentile(50) / 1e9));
+        }
+    }
+
+}
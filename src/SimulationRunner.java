@@ -0,0 +1,185 @@
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Plays {@code FruitCollectGame}s without a GUI, many at a time, for balance tuning and
+ * load testing.<p>
+ * Each game is built from a {@code BoardSpec} and a seed, and its player is driven by a
+ * {@code MovePolicy}. The generation schedule mirrors the GUI: the game starts with one
+ * generation, a new generation comes after every {@code movesPerGen} moves, and the game is
+ * stopped once it goes past {@code maxGen} generations.<p>
+ * A range of seeds is split into batches on a work-stealing fork/join pool. Each batch has
+ * its own {@code SimulationStats}, so workers share no mutable state. A game's orchard, the
+ * trees that mature in its generations and its player's moves are all drawn from streams
+ * derived from its seed, so the results are the same for any number of threads.
+ * 
+ * @author yuyingf
+ *
+ */
+public class SimulationRunner {
+    
+    public static final int BATCH_SIZE = 256;
+    
+    // keeps the policy's random stream apart from the orchard's and the generations' of one
+    // seed
+    private static final long POLICY_STREAM = 0xBB67AE8584CAA73BL;
+    
+    private final BoardSpec spec;
+    private final MovePolicy policy;
+    private final int movesPerGen;
+    private final int maxGen;
+    
+    /**
+     * Constructs a {@code SimulationRunner}.
+     * 
+     * @param spec the settings each game is built from
+     * @param policy the strategy the player follows
+     * @param movesPerGen the number of moves played in each generation
+     * @param maxGen the number of generations after which a game is stopped
+     * @throws IllegalArgumentException if the spec or policy is null, or either number is
+     * not positive
+     */
+    public SimulationRunner(BoardSpec spec, MovePolicy policy, int movesPerGen, int maxGen) {
+        if (spec == null || policy == null) {
+            throw new IllegalArgumentException("spec or policy is null");
+        }
+        if (movesPerGen <= 0 || maxGen <= 0) {
+            throw new IllegalArgumentException("invalid generation schedule");
+        }
+        this.spec = spec;
+        this.policy = policy;
+        this.movesPerGen = movesPerGen;
+        this.maxGen = maxGen;
+    }
+    
+    /**
+     * Plays a single game to its end.
+     * 
+     * @param seed the seed of the game
+     * @param stats the results to record the game in
+     */
+    public void play(long seed, SimulationStats stats) {
+        FruitCollectGame game = spec.newGame(seed);
+        SplittableRandom random = new SplittableRandom(seed ^ POLICY_STREAM);
+        long moves = 0;
+        game.nextGen();
+        while (!game.hasEnded()) {
+            for (int i = 0; i < movesPerGen && !game.hasEnded(); i++) {
+                Direction direction = policy.nextMove(game, random);
+                if (direction != null) {
+                    game.move(direction);
+                }
+                moves++;
+            }
+            if (!game.hasEnded()) {
+                game.nextGen();
+                if (game.getGen() > maxGen) {
+                    game.endGame();
+                }
+            }
+        }
+        stats.record(game, moves);
+    }
+    
+    /**
+     * Plays one game for each seed in a range on the common fork/join pool.
+     * 
+     * @param fromSeed the first seed, inclusive
+     * @param toSeed the last seed, exclusive
+     * @return the combined results of all games
+     */
+    public SimulationStats run(long fromSeed, long toSeed) {
+        return run(fromSeed, toSeed, ForkJoinPool.commonPool(), null);
+    }
+    
+    /**
+     * Plays one game for each seed in a range on the given pool, streaming the results of
+     * each finished batch of at most {@value #BATCH_SIZE} games as it completes.
+     * 
+     * @param fromSeed the first seed, inclusive
+     * @param toSeed the last seed, exclusive
+     * @param pool the pool the games are played on
+     * @param progress receives the results of each batch, possibly from several threads at
+     * once; may be null
+     * @return the combined results of all games
+     */
+    public SimulationStats run(long fromSeed, long toSeed, ForkJoinPool pool,
+                    Consumer<SimulationStats> progress) {
+        if (fromSeed > toSeed) {
+            throw new IllegalArgumentException("invalid seed range");
+        }
+        return pool.invoke(new Batch(fromSeed, toSeed, progress));
+    }
+    
+    /**
+     * Plays a range of seeds, splitting it in halves until it fits in a batch.
+     */
+    private class Batch extends RecursiveTask<SimulationStats> {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final long from;
+        private final long to;
+        private final Consumer<SimulationStats> progress;
+        
+        private Batch(long from, long to, Consumer<SimulationStats> progress) {
+            this.from = from;
+            this.to = to;
+            this.progress = progress;
+        }
+        
+        @Override
+        protected SimulationStats compute() {
+            if (to - from > BATCH_SIZE) {
+                long mid = from + (to - from) / 2;
+                Batch right = new Batch(mid, to, progress);
+                right.fork();
+                SimulationStats stats = new Batch(from, mid, progress).compute();
+                return stats.merge(right.join());
+            }
+            SimulationStats stats = new SimulationStats();
+            for (long seed = from; seed < to; seed++) {
+                play(seed, stats);
+            }
+            if (progress != null) {
+                progress.accept(new SimulationStats().merge(stats));
+            }
+            return stats;
+        }
+        
+    }
+    
+    /**
+     * Runs a simulation of the default game with a {@code RandomWalkPolicy} and prints
+     * the results.
+     * 
+     * @param args the number of games to play (default 100000) and, optionally, the number
+     * of threads to play them on
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                        : Runtime.getRuntime().availableProcessors();
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Banana", Color.YELLOW);
+        fruits.put("Peach", Color.PINK);
+        SimulationRunner runner = new SimulationRunner(new BoardSpec(fruits),
+                        new RandomWalkPolicy(), FruitCollectGame.DEFAULT_SECONDS_PER_GEN * 4,
+                        FruitCollectGame.DEFAULT_MAX_GEN);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        SimulationStats stats = runner.run(0, games, pool, null);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        System.out.println(stats);
+        System.out.printf("%d games on %d threads in %.2f s (%.0f games/s)%n",
+                        games, threads, seconds, games / seconds);
+    }
+
+}
@@ -0,0 +1,128 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregated results of simulated games: how the games ended, how many generations and
+ * moves they took and how much of each fruit was collected. Each worker of a simulation
+ * fills its own {@code SimulationStats}, and the results are combined with
+ * {@link #merge(SimulationStats)}, so no instance is ever shared between threads.
+ * 
+ * @author yuyingf
+ *
+ */
+public class SimulationStats {
+    
+    private long games;
+    private final long[] outcomes;
+    private long generations;
+    private long moves;
+    private final Map<String, Long> fruitCollected;
+    
+    /**
+     * Constructs an empty {@code SimulationStats}.
+     */
+    public SimulationStats() {
+        outcomes = new long[GameOutcome.values().length];
+        fruitCollected = new HashMap<String, Long>();
+    }
+    
+    /**
+     * Records the results of a finished game.
+     * 
+     * @param game the game to record
+     * @param movesPlayed the number of moves played in the game
+     */
+    public void record(FruitCollectGame game, long movesPlayed) {
+        games++;
+        outcomes[game.getOutcome().ordinal()]++;
+        generations += game.getGen();
+        moves += movesPlayed;
+        for (String fruit : game.getFruitSet()) {
+            Long total = fruitCollected.get(fruit);
+            fruitCollected.put(fruit, (total == null ? 0 : total) + game.numCollected(fruit));
+        }
+    }
+    
+    /**
+     * Adds the results recorded in another {@code SimulationStats} to this one.
+     * 
+     * @param other the results to add
+     * @return this {@code SimulationStats}
+     */
+    public SimulationStats merge(SimulationStats other) {
+        games += other.games;
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] += other.outcomes[i];
+        }
+        generations += other.generations;
+        moves += other.moves;
+        for (String fruit : other.fruitCollected.keySet()) {
+            Long total = fruitCollected.get(fruit);
+            fruitCollected.put(fruit, (total == null ? 0 : total)
+                            + other.fruitCollected.get(fruit));
+        }
+        return this;
+    }
+    
+    /**
+     * @return the number of games recorded
+     */
+    public long getGames() {
+        return games;
+    }
+    
+    /**
+     * @param outcome the outcome of interest
+     * @return the number of games that ended this way
+     */
+    public long getCount(GameOutcome outcome) {
+        return outcomes[outcome.ordinal()];
+    }
+    
+    /**
+     * @return the fraction of games won; 0 if no game was recorded
+     */
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) getCount(GameOutcome.WON) / games;
+    }
+    
+    /**
+     * @return the average number of generations a game lasted; 0 if no game was recorded
+     */
+    public double getAverageGenerations() {
+        return games == 0 ? 0 : (double) generations / games;
+    }
+    
+    /**
+     * @return the average number of moves played in a game; 0 if no game was recorded
+     */
+    public double getAverageMoves() {
+        return games == 0 ? 0 : (double) moves / games;
+    }
+    
+    /**
+     * @param fruit the fruit of interest
+     * @return the total quantity of this fruit collected over all games
+     */
+    public long getFruitCollected(String fruit) {
+        Long total = fruitCollected.get(fruit);
+        return total == null ? 0 : total;
+    }
+    
+    /**
+     * @return a one-line summary of the results
+     */
+    @Override
+    public String toString() {
+        String out = String.format("games=%d winRate=%.4f avgGen=%.2f avgMoves=%.2f",
+                        games, getWinRate(), getAverageGenerations(), getAverageMoves());
+        for (GameOutcome outcome : GameOutcome.values()) {
+            if (outcome != GameOutcome.IN_PROGRESS) {
+                out += " " + outcome + "=" + getCount(outcome);
+            }
+        }
+        return out + " fruit=" + new TreeMap<String, Long>(fruitCollected);
+    }
+
+}
@@ -0,0 +1,180 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * A cache of pre-rendered cells for painting an orchard. Every distinct look of a cell, the
+ * pond and the immature, mature and bad states of each fruit type, is rasterized once for
+ * the current grid size into a slot of a single atlas image, using the {@code draw} method of
+ * the matching {@code OrchardObject}. Painting a cell is then one {@code drawImage} blit from
+ * the atlas, with no allocation and no shape rasterization.<p>
+ * Sprites are opaque, filled with the background of the panel, so a blit is a plain copy
+ * without blending. Looks are told apart by the type ids of one board, so an atlas draws the
+ * cells of one game. Looks are rasterized the first time they are drawn. The atlas is
+ * compatible with the screen it is drawn on, which lets Java2D keep it in video memory, and
+ * it is rebuilt when the grid size, the background or the screen changes.
+ * 
+ * @author yuyingf
+ *
+ */
+public class SpriteAtlas {
+    
+    public static final int COLUMNS = 16;
+    
+    // looks per fruit type: immature, mature, bad
+    private static final int TREE_LOOKS = 3;
+    
+    private final IntFunction<FruitType> fruitTypes;
+    private GraphicsConfiguration config;
+    private Color background;
+    private int cellWidth;
+    private int cellHeight;
+    private BufferedImage atlas;
+    // slot + 1 of each look in the atlas; 0 if the look is not rasterized yet
+    private int[] slots = new int[0];
+    private int used;
+    
+    /**
+     * Constructs a {@code SpriteAtlas} for the cells of one board.
+     * 
+     * @param fruitTypes the fruit type of each type id of the board, such as
+     * {@code game::getFruitType}
+     * @throws IllegalArgumentException if the fruit types are null
+     */
+    public SpriteAtlas(IntFunction<FruitType> fruitTypes) {
+        if (fruitTypes == null) {
+            throw new IllegalArgumentException("fruit types are null");
+        }
+        this.fruitTypes = fruitTypes;
+    }
+    
+    /**
+     * Makes the atlas ready to draw cells of the given size on a screen, dropping every
+     * sprite if anything changed.
+     * 
+     * @param config the configuration of the screen drawn on; null if unknown
+     * @param background the color behind the objects in a cell
+     * @param cellWidth the width of a cell in pixels
+     * @param cellHeight the height of a cell in pixels
+     */
+    public void prepare(GraphicsConfiguration config, Color background, int cellWidth,
+                    int cellHeight) {
+        if (config != this.config || !background.equals(this.background)
+                        || cellWidth != this.cellWidth || cellHeight != this.cellHeight) {
+            this.config = config;
+            this.background = background;
+            this.cellWidth = cellWidth;
+            this.cellHeight = cellHeight;
+            atlas = null;
+            Arrays.fill(slots, 0);
+            used = 0;
+        }
+    }
+    
+    /**
+     * Draws a cell at the position specified. Does nothing for an empty cell.
+     * 
+     * @param g the {@code Graphics} context to draw with
+     * @param cell the {@code PackedCell} to draw
+     * @param px the pixel x-coordinate of the cell
+     * @param py the pixel y-coordinate of the cell
+     */
+    public void draw(Graphics g, int cell, int px, int py) {
+        int look = look(cell);
+        if (look < 0) {
+            return;
+        }
+        if (look >= slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(look + 1, slots.length * 2));
+        }
+        if (slots[look] == 0) {
+            rasterize(look, cell);
+        }
+        int slot = slots[look] - 1;
+        int sx = slot % COLUMNS * cellWidth;
+        int sy = slot / COLUMNS * cellHeight;
+        g.drawImage(atlas, px, py, px + cellWidth, py + cellHeight,
+                        sx, sy, sx + cellWidth, sy + cellHeight, null);
+    }
+    
+    /**
+     * @return the number of looks rasterized into the atlas since it was last rebuilt
+     */
+    public int getSpriteCount() {
+        return used;
+    }
+    
+    // The index of the look of a cell; -1 for an empty cell
+    static int look(int cell) {
+        if (PackedCell.isPond(cell)) {
+            return 0;
+        }
+        if (!PackedCell.isTree(cell)) {
+            return -1;
+        }
+        int state = PackedCell.isBadFruit(cell) ? 2 : PackedCell.isMature(cell) ? 1 : 0;
+        return 1 + PackedCell.typeId(cell) * TREE_LOOKS + state;
+    }
+    
+    private void rasterize(int look, int cell) {
+        int slot = used++;
+        int rows = slot / COLUMNS + 1;
+        if (atlas == null || atlas.getHeight() < rows * cellHeight) {
+            grow(Math.max(rows, atlas == null ? 1 : atlas.getHeight() / cellHeight * 2));
+        }
+        Graphics2D g = atlas.createGraphics();
+        try {
+            int sx = slot % COLUMNS * cellWidth;
+            int sy = slot / COLUMNS * cellHeight;
+            g.clipRect(sx, sy, cellWidth, cellHeight);
+            g.setColor(background);
+            g.fillRect(sx, sy, cellWidth, cellHeight);
+            FruitType type = PackedCell.isTree(cell)
+                            ? fruitTypes.apply(PackedCell.typeId(cell)) : null;
+            drawLook(g, cell, type, sx, sy, cellWidth, cellHeight);
+        } finally {
+            g.dispose();
+        }
+        slots[look] = slot + 1;
+    }
+    
+    // Draws the look of a non-empty cell with the draw method of the matching object; the
+    // fruit type is that of the cell's tree, and ignored for a pond
+    static void drawLook(Graphics g, int cell, FruitType type, int px, int py, int cellWidth,
+                    int cellHeight) {
+        if (PackedCell.isPond(cell)) {
+            new Pond().draw(g, px, py, cellWidth, cellHeight);
+        } else {
+            FruitTree tree = new FruitTree(type);
+            if (PackedCell.isMature(cell)) {
+                tree.mature();
+            }
+            if (PackedCell.isBadFruit(cell)) {
+                tree.turnBad();
+            }
+            // a pixel smaller, so that the outline of an immature tree fits in the cell
+            tree.draw(g, px, py, cellWidth - 1, cellHeight - 1);
+        }
+    }
+    
+    // Replaces the atlas by one with the given number of rows, keeping the sprites drawn
+    private void grow(int rows) {
+        int width = COLUMNS * cellWidth;
+        int height = rows * cellHeight;
+        BufferedImage grown = config != null
+                        ? config.createCompatibleImage(width, height, Transparency.OPAQUE)
+                        : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        if (atlas != null) {
+            Graphics2D g = grown.createGraphics();
+            g.drawImage(atlas, 0, 0, null);
+            g.dispose();
+        }
+        atlas = grown;
+    }
+
+}
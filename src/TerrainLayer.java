@@ -0,0 +1,160 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * The static bottom layer of an {@code OrchardPanel}: the background and the ponds in view.
+ * Ponds never change once a game is set up, so the layer is rendered once into an
+ * offscreen image and then copied to the screen with a single blit per paint. It is
+ * rendered again only when the view changes, that is when the panel is resized, zoomed or
+ * scrolled. Only the part of the image inside the clip is copied.<p>
+ * A view in which less than {@value #MIN_POND_PERCENT}% of the cells are ponds is not
+ * cached: copying a whole image to draw a few ponds costs more than drawing them. The layer
+ * then only fills the clip with the background and leaves the ponds to the caller.
+ * 
+ * @author yuyingf
+ *
+ */
+public class TerrainLayer {
+    
+    public static final int MIN_POND_PERCENT = 20;
+    
+    private BufferedImage image;
+    private boolean valid;
+    private boolean cached;
+    private int viewWidth;
+    private int viewHeight;
+    private GraphicsConfiguration config;
+    private Color background;
+    private long originX;
+    private long originY;
+    private int cellWidth;
+    private int cellHeight;
+    private int renders;
+    
+    /**
+     * Paints the layer, rendering it first if the view changed since it was last rendered.
+     * 
+     * @param g the {@code Graphics} context to paint with
+     * @param camera the camera the orchard is seen through
+     * @param game the game whose ponds are painted
+     * @param sprites the sprites ponds are drawn with, prepared for the camera's grid size
+     * @param background the color of the background
+     * @param config the configuration of the screen painted on; null if unknown
+     * @return {@code true} if the ponds were painted and {@code false} if only the background
+     * was, leaving the ponds in view to be drawn by the caller
+     */
+    public boolean paint(Graphics g, Camera camera, FruitCollectGame game, SpriteAtlas sprites,
+                    Color background, GraphicsConfiguration config) {
+        if (camera.getViewWidth() <= 0 || camera.getViewHeight() <= 0) {
+            return true;
+        }
+        if (isStale(camera, background, config)) {
+            render(camera, game, sprites, background, config);
+        }
+        Rectangle clip = g.getClipBounds();
+        if (!cached) {
+            g.setColor(background);
+            if (clip == null) {
+                g.fillRect(0, 0, viewWidth, viewHeight);
+            } else {
+                g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            }
+            return false;
+        }
+        if (clip == null || clip.contains(0, 0, viewWidth, viewHeight)) {
+            g.drawImage(image, 0, 0, null);
+        } else {
+            g.drawImage(image, clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+                            clip.x, clip.y, clip.x + clip.width, clip.y + clip.height, null);
+        }
+        return true;
+    }
+    
+    /**
+     * Drops the rendered layer, so that it is rendered again on the next paint.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+    
+    /**
+     * @return the number of times the layer was rendered into its image
+     */
+    public int getRenderCount() {
+        return renders;
+    }
+    
+    private boolean isStale(Camera camera, Color background, GraphicsConfiguration config) {
+        return !valid || viewWidth != camera.getViewWidth()
+                        || viewHeight != camera.getViewHeight()
+                        || originX != camera.getOriginX() || originY != camera.getOriginY()
+                        || cellWidth != camera.getCellWidth()
+                        || cellHeight != camera.getCellHeight()
+                        || !background.equals(this.background) || config != this.config;
+    }
+    
+    private void render(Camera camera, FruitCollectGame game, SpriteAtlas sprites,
+                    Color background, GraphicsConfiguration config) {
+        int width = camera.getViewWidth();
+        int height = camera.getViewHeight();
+        Rectangle cells = camera.visibleCells(null);
+        valid = true;
+        viewWidth = width;
+        viewHeight = height;
+        this.background = background;
+        if (config != this.config) {
+            // an image made for another screen is not reused
+            image = null;
+            this.config = config;
+        }
+        originX = camera.getOriginX();
+        originY = camera.getOriginY();
+        cellWidth = camera.getCellWidth();
+        cellHeight = camera.getCellHeight();
+        cached = countPonds(game, cells) * 100L
+                        >= (long) MIN_POND_PERCENT * cells.width * cells.height;
+        if (!cached) {
+            return;
+        }
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = config != null
+                            ? config.createCompatibleImage(width, height, Transparency.OPAQUE)
+                            : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(background);
+            g.fillRect(0, 0, width, height);
+            for (int y = cells.y; y < cells.y + cells.height; y++) {
+                int py = camera.screenY(y);
+                for (int x = cells.x; x < cells.x + cells.width; x++) {
+                    int cell = game.getCell(x, y);
+                    if (PackedCell.isPond(cell)) {
+                        sprites.draw(g, cell, camera.screenX(x), py);
+                    }
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        renders++;
+    }
+    
+    private static int countPonds(FruitCollectGame game, Rectangle cells) {
+        int ponds = 0;
+        for (int y = cells.y; y < cells.y + cells.height; y++) {
+            for (int x = cells.x; x < cells.x + cells.width; x++) {
+                if (PackedCell.isPond(game.getCell(x, y))) {
+                    ponds++;
+                }
+            }
+        }
+        return ponds;
+    }
+
+}
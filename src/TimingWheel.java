@@ -0,0 +1,200 @@
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel: timeouts due a number of ticks from now, with constant-time
+ * {@link #schedule(long, Runnable)} and {@link Timeout#cancel()} however many timeouts are
+ * pending.<p>
+ * The wheel has {@value #LEVELS} levels of {@value #SLOTS} slots. A slot of level 0 holds the
+ * timeouts due at one tick, a slot of level 1 those due in a span of {@value #SLOTS} ticks,
+ * and so on, so the wheel spans {@code SLOTS^LEVELS} ticks; timeouts due later still wait in
+ * the top level and are placed again when their slot comes round. Each slot is a doubly
+ * linked list, so a timeout is added or removed without searching. Whenever the slots of a
+ * level wrap around, the next slot of the level above is emptied into the levels below, by
+ * how far each of its timeouts is from due.<p>
+ * A wheel is not thread-safe; {@code GenerationScheduler} guards one with a lock.
+ *
+ * @author yuyingf
+ *
+ */
+public class TimingWheel {
+
+    public static final int SLOTS = 64;
+    public static final int LEVELS = 4;
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final Timeout[] slots = new Timeout[SLOTS * LEVELS];
+    private long tick;
+    private int size;
+
+    /**
+     * A task waiting in a {@code TimingWheel}.
+     */
+    public final class Timeout {
+
+        private final Runnable task;
+        private final long deadline;
+        private Timeout prev;
+        private Timeout next;
+        // the index of the slot the timeout waits in; -1 once it has expired or is cancelled
+        private int slot = -1;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return the task to run when the timeout expires
+         */
+        public Runnable getTask() {
+            return task;
+        }
+
+        /**
+         * @return the tick the timeout is due at
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * @return {@code true} if the timeout is still waiting in the wheel
+         */
+        public boolean isPending() {
+            return slot >= 0;
+        }
+
+        /**
+         * Removes the timeout from the wheel, so that it never expires.
+         *
+         * @return {@code true} if the timeout was waiting and {@code false} if it had
+         * already expired or been cancelled
+         */
+        public boolean cancel() {
+            if (slot < 0) {
+                return false;
+            }
+            unlink(this);
+            return true;
+        }
+
+    }
+
+    /**
+     * @return the number of ticks the wheel has advanced
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return the number of timeouts waiting
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules a task to expire a number of ticks from now.
+     *
+     * @param delay the number of ticks until the timeout expires, at least 1
+     * @param task the task to hand back when it does
+     * @return the timeout, which can be cancelled
+     * @throws IllegalArgumentException if the delay is not positive or the task is null
+     */
+    public Timeout schedule(long delay, Runnable task) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("invalid delay: " + delay);
+        }
+        if (task == null) {
+            throw new IllegalArgumentException("task is null");
+        }
+        Timeout timeout = new Timeout(task, tick + delay);
+        place(timeout);
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel by one tick and hands every timeout due at the new tick to the
+     * consumer, removed from the wheel.
+     *
+     * @param expired receives the timeouts that expire
+     * @return the number of timeouts that expired
+     */
+    public int advance(Consumer<Timeout> expired) {
+        tick++;
+        // empties a slot of each level whose lower level wrapped, from the bottom up
+        for (int level = 1; level < LEVELS; level++) {
+            if ((tick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                break;
+            }
+            Timeout timeout = take(level * SLOTS
+                            + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK));
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                place(timeout);
+                timeout = next;
+            }
+        }
+        int count = 0;
+        Timeout timeout = take((int) (tick & SLOT_MASK));
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            expired.accept(timeout);
+            count++;
+            timeout = next;
+        }
+        return count;
+    }
+
+    // Puts a timeout in the slot for how far it is from due
+    private void place(Timeout timeout) {
+        long delay = timeout.deadline - tick;
+        long due = delay < SPAN ? timeout.deadline : tick + SPAN - 1;
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = level * SLOTS + (int) ((due >>> (SLOT_BITS * level)) & SLOT_MASK);
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = slots[slot];
+        if (slots[slot] != null) {
+            slots[slot].prev = timeout;
+        }
+        slots[slot] = timeout;
+        size++;
+    }
+
+    // Removes every timeout from a slot and returns the first, still linked to the rest
+    private Timeout take(int slot) {
+        Timeout first = slots[slot];
+        slots[slot] = null;
+        for (Timeout timeout = first; timeout != null; timeout = timeout.next) {
+            timeout.slot = -1;
+            timeout.prev = null;
+            size--;
+        }
+        return first;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.slot = -1;
+        size--;
+    }
+
+}
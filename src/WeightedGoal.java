@@ -0,0 +1,66 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A goal accomplished once enough points have been scored, where each fruit collected
+ * scores the weight of its type. Types without a weight score nothing.
+ * 
+ * @author yuyingf
+ *
+ */
+public class WeightedGoal implements CollectionGoal {
+    
+    private final Map<String, Integer> weights;
+    private final long target;
+    private int[] weightById;
+    private long score;
+    
+    /**
+     * Constructs a {@code WeightedGoal}.
+     * 
+     * @param weights a map of fruit types to the points each fruit of the type scores
+     * @param target the points to score
+     * @throws IllegalArgumentException if the map is null or contains a null weight
+     */
+    public WeightedGoal(Map<String, Integer> weights, long target) {
+        if (weights == null || weights.containsValue(null)) {
+            throw new IllegalArgumentException("invalid map of weights");
+        }
+        this.weights = new HashMap<String, Integer>(weights);
+        this.target = target;
+    }
+    
+    /**
+     * @return the points scored so far
+     */
+    public long getScore() {
+        return score;
+    }
+    
+    @Override
+    public void start(int[] collected) {
+        weightById = new int[collected.length];
+        score = 0;
+        for (int id = 0; id < collected.length; id++) {
+            Integer weight = weights.get(FruitType.byId(id).getName());
+            if (collected[id] >= 0 && weight != null) {
+                weightById[id] = weight;
+                score += (long) weight * collected[id];
+            }
+        }
+    }
+    
+    @Override
+    public void collected(int typeId, int count) {
+        score += weightById[typeId];
+    }
+    
+    /**
+     * @return {@code true} if the points scored reach the target and {@code false} otherwise
+     */
+    @Override
+    public boolean isAccomplished() {
+        return score >= target;
+    }
+
+}
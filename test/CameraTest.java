@@ -0,0 +1,71 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Rectangle;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code Camera}.
+ *
+ * @author yuyingf
+ *
+ */
+public class CameraTest {
+
+    @Test
+    public void testSmallBoardIsCentered() {
+        Camera camera = new Camera(10, 10, 10, 10);
+        camera.setViewport(200, 100);
+        camera.follow(9, 9);
+        assertEquals(50, camera.screenX(0));
+        assertEquals(0, camera.screenY(0));
+        assertEquals(new Rectangle(0, 0, 10, 10), camera.visibleCells(null));
+    }
+
+    @Test
+    public void testFollowAndCull() {
+        Camera camera = new Camera(10000, 10000, 10, 10);
+        camera.setViewport(400, 300);
+        assertTrue(camera.follow(5000, 5000));
+        int px = camera.screenX(5000);
+        int py = camera.screenY(5000);
+        assertTrue(px >= 100 && px + 10 <= 300);
+        assertTrue(py >= 75 && py + 10 <= 225);
+        
+        // stepping inside the middle half does not scroll
+        assertFalse(camera.follow(5001, 5000));
+        Rectangle visible = camera.visibleCells(null);
+        assertTrue(visible.contains(5000, 5000));
+        assertTrue(visible.width <= 41 && visible.height <= 31);
+        
+        // a clip of one grid covers at most four cells
+        Rectangle clip = camera.visibleCells(new Rectangle(px, py, 10, 10));
+        assertEquals(new Rectangle(5000, 5000, 1, 1), clip);
+        assertTrue(camera.visibleCells(new Rectangle(500, 500, 10, 10)).isEmpty());
+    }
+
+    @Test
+    public void testEdgesOfBoard() {
+        Camera camera = new Camera(1000, 1000, 10, 10);
+        camera.setViewport(400, 300);
+        camera.follow(0, 999);
+        assertEquals(0, camera.screenX(0));
+        assertEquals(300, camera.screenY(1000));
+    }
+
+    @Test
+    public void testZoom() {
+        Camera camera = new Camera(100, 100, 4, 4);
+        camera.zoomIn();
+        assertEquals(5, camera.getCellWidth());
+        for (int i = 0; i < 10; i++) {
+            camera.zoomOut();
+        }
+        assertEquals(Camera.MIN_CELL_SIZE, camera.getCellHeight());
+        camera.setCellSize(1000, 1000);
+        assertEquals(Camera.MAX_CELL_SIZE, camera.getCellWidth());
+        assertThrows(IllegalArgumentException.class, () -> camera.setCellSize(0, 5));
+        assertThrows(IllegalArgumentException.class, () -> new Camera(0, 5, 5, 5));
+    }
+
+}
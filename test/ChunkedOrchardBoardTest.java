@@ -0,0 +1,192 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods in {@code ChunkedOrchardBoard}.
+ *
+ * @author yuyingf
+ *
+ */
+public class ChunkedOrchardBoardTest {
+
+    private Map<String, Color> fruits;
+
+    @BeforeEach
+    public void setUp() {
+        fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Banana", Color.YELLOW);
+        fruits.put("Peach", Color.PINK);
+    }
+
+    @Test
+    public void testSameSeedSameOrchard() {
+        try (ChunkedOrchardBoard board1 = new ChunkedOrchardBoard(42, fruits, 20);
+                        ChunkedOrchardBoard board2 = new ChunkedOrchardBoard(42, fruits, 20)) {
+            assertEquals(Integer.MAX_VALUE, board1.getWidth());
+            for (int i = 0; i < 1000; i++) {
+                int x = i * 7919 % 100000;
+                int y = i * 104729 % 100000;
+                assertEquals(board1.getObject(x, y), board2.getObject(x, y));
+                assertTrue(board1.hasObject(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new ChunkedOrchardBoard(1, new HashMap<String, Color>(), 20);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new ChunkedOrchardBoard(1, fruits, FruitCollectGame.MAX_POND_PERCENT + 1);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new ChunkedOrchardBoard(100, 100, 1, fruits, 20, 1, Path.of("unused"));
+        });
+    }
+
+    @Test
+    public void testEvictedChangesAreSpilled() throws IOException {
+        Path spill = Files.createTempFile("orchard", ".spill");
+        // room for a single chunk, so every other chunk touched evicts the previous one
+        int chunk = ChunkedOrchardBoard.CHUNK_SIZE;
+        try (ChunkedOrchardBoard board = new ChunkedOrchardBoard(100000, 100000, 7, fruits, 0,
+                        chunk * chunk * 2, spill)) {
+            FruitTree tree = (FruitTree) board.getObject(5, 5);
+            tree.mature();
+            board.getObject(5 * chunk, 5 * chunk);
+            board.getObject(9 * chunk, 2 * chunk);
+            assertEquals(1, board.residentChunks());
+            assertEquals(1, board.spilledChunks());
+            assertTrue(((FruitTree) board.getObject(5, 5)).isMature());
+            assertFalse(((FruitTree) board.getObject(6, 5)).isMature());
+        } finally {
+            Files.deleteIfExists(spill);
+        }
+    }
+
+    @Test
+    public void testSnapshotCopiesChangedChunks() throws IOException {
+        Path spill = Files.createTempFile("orchard", ".spill");
+        int chunk = ChunkedOrchardBoard.CHUNK_SIZE;
+        try (ChunkedOrchardBoard board = new ChunkedOrchardBoard(100000, 100000, 7, fruits, 0,
+                        chunk * chunk * 2, spill)) {
+            // one changed chunk spilled, another resident
+            ((FruitTree) board.getObject(5, 5)).mature();
+            ((FruitTree) board.getObject(5 * chunk, 5 * chunk)).mature();
+            assertEquals(1, board.spilledChunks());
+            try (ChunkedOrchardBoard snapshot = board.snapshot()) {
+                ((FruitTree) board.getObject(5, 5)).turnBad();
+                ((FruitTree) board.getObject(6, 5)).mature();
+                assertTrue(((FruitTree) snapshot.getObject(5, 5)).isMature());
+                assertFalse(((FruitTree) snapshot.getObject(5, 5)).isBadFruit());
+                assertFalse(((FruitTree) snapshot.getObject(6, 5)).isMature());
+                assertTrue(((FruitTree) snapshot.getObject(5 * chunk, 5 * chunk)).isMature());
+                // unchanged chunks grow again from the seed
+                assertEquals(board.getCell(9 * chunk, 2 * chunk),
+                                snapshot.getCell(9 * chunk, 2 * chunk));
+                assertEquals(2, snapshot.goodFruitPositions().size());
+            }
+        } finally {
+            Files.deleteIfExists(spill);
+        }
+    }
+
+    @Test
+    public void testGoodFruitPositions() {
+        try (ChunkedOrchardBoard board = new ChunkedOrchardBoard(3, fruits, 0)) {
+            int far = 1000 * ChunkedOrchardBoard.CHUNK_SIZE;
+            ((FruitTree) board.getObject(1, 1)).mature();
+            ((FruitTree) board.getObject(2, 1)).mature();
+            ((FruitTree) board.getObject(far, far)).mature();
+            assertEquals(Set.of(new Point(1, 1), new Point(2, 1), new Point(far, far)),
+                            new HashSet<Point>(board.goodFruitPositions()));
+            // fruit that turns bad or is collected leaves the positions, and so do their chunks
+            ((FruitTree) board.getObject(1, 1)).turnBad();
+            assertTrue(((FruitTree) board.getObject(2, 1)).claimFruit());
+            assertEquals(List.of(new Point(far, far)), board.goodFruitPositions());
+            ((FruitTree) board.getObject(far, far)).turnBad();
+            assertTrue(board.goodFruitPositions().isEmpty());
+        }
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        Path spill = Files.createTempFile("orchard", ".spill");
+        int chunk = ChunkedOrchardBoard.CHUNK_SIZE;
+        // two chunks in memory, so the threads keep evicting each other's chunks
+        try (ChunkedOrchardBoard board = new ChunkedOrchardBoard(100000, 100000, 9, fruits, 0,
+                        chunk * chunk * 4, spill)) {
+            int threads = 4;
+            int chunks = 16;
+            AtomicInteger failures = new AtomicInteger();
+            List<Thread> workers = new ArrayList<Thread>();
+            for (int t = 0; t < threads; t++) {
+                int column = t;
+                workers.add(new Thread(() -> {
+                    try {
+                        for (int round = 0; round < 50; round++) {
+                            for (int c = 0; c < chunks; c++) {
+                                FruitTree tree = (FruitTree) board.getObject(c * chunk + column,
+                                                0);
+                                if (round == 0) {
+                                    tree.mature();
+                                }
+                                if (!tree.isMature()) {
+                                    failures.incrementAndGet();
+                                }
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }));
+            }
+            for (Thread worker : workers) {
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertEquals(0, failures.get());
+            assertEquals(threads * chunks, board.goodFruitPositions().size());
+        } finally {
+            Files.deleteIfExists(spill);
+        }
+    }
+
+    @Test
+    public void testMoveAcrossChunks() {
+        try (ChunkedOrchardBoard board = new ChunkedOrchardBoard(5, fruits, 0)) {
+            int edge = ChunkedOrchardBoard.CHUNK_SIZE - 1;
+            ((FruitTree) board.getObject(edge + 1, 0)).mature();
+            FruitCollectGame game = new FruitCollectGame(board, edge, 0);
+            game.move(edge + 1, 0);
+            assertEquals(edge + 1, game.getPlayerX());
+            assertEquals(3, game.getFruitSet().size());
+            int collected = 0;
+            for (String fruit : game.getFruitSet()) {
+                collected += game.numCollected(fruit);
+            }
+            assertEquals(1, collected);
+            assertFalse(((FruitTree) board.getObject(edge + 1, 0)).isMature());
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the {@code CollectionGoal} implementations through a {@code FruitCollectGame}.
+ *
+ * @author yuyingf
+ *
+ */
+public class CollectionGoalTest {
+
+    private OrchardObject[][] setup;
+
+    // Row 0 holds mature apples, row 1 mature peaches; the player starts at (0,2).
+    @BeforeEach
+    public void setUp() {
+        setup = new OrchardObject[3][5];
+        for (int x = 0; x < 5; x++) {
+            FruitTree apple = new FruitTree("Apple", Color.RED);
+            apple.mature();
+            setup[0][x] = apple;
+            FruitTree peach = new FruitTree("Peach", Color.PINK);
+            peach.mature();
+            setup[1][x] = peach;
+            setup[2][x] = new FruitTree("Banana", Color.YELLOW);
+        }
+    }
+
+    @Test
+    public void testPerTypeGoals() {
+        Map<String, Integer> goals = new HashMap<String, Integer>();
+        goals.put("Apple", 2);
+        goals.put("Peach", 1);
+        PerTypeGoal goal = new PerTypeGoal(0, goals);
+        assertEquals(2, goal.getGoal("Apple"));
+        assertEquals(0, goal.getGoal("Banana"));
+
+        FruitCollectGame game = new FruitCollectGame(setup, 0, 2);
+        game.setGoal(goal);
+        assertFalse(game.goalAccomplished());
+        game.move(0, 0);
+        game.move(0, 1);
+        assertFalse(game.goalAccomplished());
+        game.move(1, 1);  // second peach does not count towards apples
+        assertFalse(game.goalAccomplished());
+        game.move(1, 0);
+        assertTrue(game.goalAccomplished());
+        assertTrue(game.hasEnded());
+    }
+
+    @Test
+    public void testPerTypeGoalStartsFromCounters() {
+        FruitCollectGame game = new FruitCollectGame(setup, 0, 2);
+        game.move(0, 0);
+        game.move(0, 1);
+        game.setGoal(new PerTypeGoal(1));
+        assertFalse(game.goalAccomplished());  // no banana collected
+        game.setGoal(new PerTypeGoal(0));
+        assertTrue(game.goalAccomplished());
+    }
+
+    @Test
+    public void testWeightedGoal() {
+        Map<String, Integer> weights = new HashMap<String, Integer>();
+        weights.put("Apple", 1);
+        weights.put("Peach", 3);
+        WeightedGoal goal = new WeightedGoal(weights, 5);
+        FruitCollectGame game = new FruitCollectGame(setup, 0, 2);
+        game.setGoal(goal);
+        game.move(0, 1);
+        assertEquals(3, goal.getScore());
+        game.move(0, 0);
+        assertFalse(game.goalAccomplished());
+        game.move(1, 0);
+        assertEquals(5, goal.getScore());
+        assertTrue(game.hasEnded());
+    }
+
+    @Test
+    public void testCompositeGoals() {
+        Map<String, Integer> weights = new HashMap<String, Integer>();
+        weights.put("Apple", 1);
+        FruitCollectGame game = new FruitCollectGame(setup, 0, 2);
+        game.setGoal(CompositeGoal.anyOf(new WeightedGoal(weights, 2), new PerTypeGoal(1)));
+        game.move(0, 0);
+        assertFalse(game.goalAccomplished());
+        game.move(1, 0);
+        assertTrue(game.goalAccomplished());
+
+        game = new FruitCollectGame(setup, 0, 2);
+        game.setGoal(CompositeGoal.allOf(new WeightedGoal(weights, 2), new PerTypeGoal(0)));
+        game.move(0, 0);
+        assertFalse(game.goalAccomplished());
+        game.move(1, 0);
+        assertTrue(game.goalAccomplished());
+    }
+
+    @Test
+    public void testInvalidGoals() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new PerTypeGoal(-1);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new WeightedGoal(null, 3);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            CompositeGoal.allOf();
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new CompositeGoal(3, new PerTypeGoal(1), new PerTypeGoal(2));
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new FruitCollectGame(setup, 0, 2).setGoal(null);
+        });
+    }
+
+}
@@ -0,0 +1,168 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods in {@code CopyOnWriteOrchardBoard}.
+ *
+ * @author yuyingf
+ *
+ */
+public class CopyOnWriteOrchardBoardTest {
+
+    @Test
+    public void testConstructorFromSetup() {
+        OrchardObject[][] setup = new OrchardObject[2][3];
+        setup[0][0] = new Pond();
+        setup[1][2] = new FruitTree("Apple", Color.RED);
+        CopyOnWriteOrchardBoard board = new CopyOnWriteOrchardBoard(setup);
+        assertEquals(3, board.getWidth());
+        assertEquals(2, board.getHeight());
+        assertEquals(new Pond(), board.getObject(0, 0));
+        assertEquals(new FruitTree("Apple", Color.RED), board.getObject(2, 1));
+        assertNull(board.getObject(1, 1));
+    }
+
+    @Test
+    public void testConstructorInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new CopyOnWriteOrchardBoard(null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new CopyOnWriteOrchardBoard(new OrchardObject[][] {});
+        });
+    }
+
+    @Test
+    public void testSnapshotIsIsolated() {
+        CopyOnWriteOrchardBoard board = new CopyOnWriteOrchardBoard(200, 200);
+        board.placeTree(0, 0, "Apple", Color.RED);
+        board.placeTree(150, 150, "Peach", Color.PINK);
+        CopyOnWriteOrchardBoard snapshot = board.snapshot();
+
+        ((FruitTree) board.getObject(0, 0)).mature();
+        board.placePond(150, 150);
+        assertTrue(((FruitTree) board.getObject(0, 0)).isMature());
+        assertFalse(((FruitTree) snapshot.getObject(0, 0)).isMature());
+        assertEquals(new Pond(), board.getObject(150, 150));
+        assertEquals(new FruitTree("Peach", Color.PINK), snapshot.getObject(150, 150));
+
+        ((FruitTree) snapshot.getObject(0, 0)).mature();
+        ((FruitTree) snapshot.getObject(0, 0)).turnBad();
+        assertTrue(((FruitTree) snapshot.getObject(0, 0)).isBadFruit());
+        assertFalse(((FruitTree) board.getObject(0, 0)).isBadFruit());
+    }
+
+    @Test
+    public void testWriteRowAcrossChunks() {
+        CopyOnWriteOrchardBoard board = new CopyOnWriteOrchardBoard(150, 3);
+        board.placeTree(100, 1, "Apple", Color.RED);
+        CopyOnWriteOrchardBoard snapshot = board.snapshot();
+        int[] row = new int[150];
+        for (int x = 0; x < row.length; x++) {
+            row[x] = x % 2 == 0 ? PackedCell.POND : PackedCell.EMPTY;
+        }
+        board.writeRow(1, row);
+        for (int x = 0; x < row.length; x++) {
+            assertEquals(row[x], board.getCell(x, 1));
+            assertEquals(PackedCell.EMPTY, board.getCell(x, 0));
+        }
+        assertEquals(new FruitTree("Apple", Color.RED), snapshot.getObject(100, 1));
+        assertNull(snapshot.getObject(0, 1));
+    }
+
+    @Test
+    public void testGoodFruitPositions() {
+        CopyOnWriteOrchardBoard board = new CopyOnWriteOrchardBoard(150, 70);
+        board.placeTree(140, 3, "Apple", Color.RED);
+        board.placeTree(2, 3, "Apple", Color.RED);
+        board.placeTree(70, 65, "Apple", Color.RED);
+        board.placeTree(5, 5, "Apple", Color.RED);
+        ((FruitTree) board.getObject(140, 3)).mature();
+        ((FruitTree) board.getObject(2, 3)).mature();
+        ((FruitTree) board.getObject(70, 65)).mature();
+        List<Point> positions = new ArrayList<Point>();
+        positions.add(new Point(2, 3));
+        positions.add(new Point(140, 3));
+        positions.add(new Point(70, 65));
+        assertEquals(positions, board.goodFruitPositions());
+        ((FruitTree) board.getObject(2, 3)).turnBad();
+        positions.remove(0);
+        assertEquals(positions, board.snapshot().goodFruitPositions());
+    }
+
+    @Test
+    public void testRepeatedSnapshots() {
+        CopyOnWriteOrchardBoard board = new CopyOnWriteOrchardBoard(10, 10);
+        board.placeTree(3, 3, "Apple", Color.RED);
+        CopyOnWriteOrchardBoard first = board.snapshot();
+        ((FruitTree) board.getObject(3, 3)).mature();
+        CopyOnWriteOrchardBoard second = board.snapshot();
+        ((FruitTree) board.getObject(3, 3)).turnBad();
+        assertFalse(((FruitTree) first.getObject(3, 3)).isMature());
+        assertTrue(((FruitTree) second.getObject(3, 3)).isMature());
+        assertFalse(((FruitTree) second.getObject(3, 3)).isBadFruit());
+        assertTrue(((FruitTree) board.getObject(3, 3)).isBadFruit());
+    }
+
+    @Test
+    public void testSnapshotsDuringConcurrentWrites() throws InterruptedException {
+        int size = 4 * CopyOnWriteOrchardBoard.CHUNK_SIZE;
+        CopyOnWriteOrchardBoard board = new CopyOnWriteOrchardBoard(size, size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                board.placeTree(x, y, "Apple", Color.RED);
+            }
+        }
+        // each thread matures the trees of its own rows, across every chunk they pass
+        int threads = 4;
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers.add(new Thread(() -> {
+                for (int y = first; y < size; y += threads) {
+                    for (int x = 0; x < size; x++) {
+                        ((FruitTree) board.getObject(x, y)).mature();
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        List<CopyOnWriteOrchardBoard> snapshots = new ArrayList<CopyOnWriteOrchardBoard>();
+        List<Integer> counts = new ArrayList<Integer>();
+        for (int i = 0; i < 20; i++) {
+            CopyOnWriteOrchardBoard snapshot = board.snapshot();
+            snapshots.add(snapshot);
+            counts.add(snapshot.goodFruitPositions().size());
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(size * size, board.goodFruitPositions().size());
+        // a snapshot never sees the writes made after it was taken
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertEquals(counts.get(i).intValue(), snapshots.get(i).goodFruitPositions().size());
+        }
+    }
+
+    @Test
+    public void testGameSnapshot() {
+        CopyOnWriteOrchardBoard board = new CopyOnWriteOrchardBoard(3, 1);
+        board.placeTree(0, 0, "Apple", Color.RED);
+        board.placeTree(1, 0, "Apple", Color.RED);
+        ((FruitTree) board.getObject(1, 0)).mature();
+        FruitCollectGame game = new FruitCollectGame(board, 0, 0);
+        OrchardBoard snapshot = game.snapshotOrchard();
+        game.move(1, 0);
+        assertEquals(1, game.numCollected("Apple"));
+        assertTrue(((FruitTree) snapshot.getObject(1, 0)).isMature());
+    }
+
+}
@@ -0,0 +1,66 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code DirtyCells} following a {@code FruitCollectGame}.
+ *
+ * @author yuyingf
+ *
+ */
+public class DirtyCellsTest {
+
+    private OrchardObject[][] setup;
+
+    @BeforeEach
+    public void setUp() {
+        setup = new OrchardObject[2][3];
+        setup[0][0] = new Pond();
+        setup[0][1] = new FruitTree("Peach", Color.PINK);
+        setup[0][2] = new FruitTree("Peach", Color.PINK);
+        setup[1][0] = new FruitTree("Banana", Color.YELLOW);
+        setup[1][1] = new Pond();
+        setup[1][2] = new FruitTree("Apple", Color.RED);
+    }
+
+    @Test
+    public void testMovesAndGens() {
+        ((FruitTree) setup[0][2]).mature();  // Peach
+        FruitCollectGame game = new FruitCollectGame(setup, 1, 0);
+        DirtyCells dirty = new DirtyCells();
+        game.addCellListener(dirty);
+        assertTrue(dirty.take().isEmpty());
+        game.move(2, 0);
+        assertEquals(Set.of(new Point(1, 0), new Point(2, 0)), dirty.take());
+        assertTrue(dirty.take().isEmpty());
+        game.move(-1, 0);
+        assertTrue(dirty.take().isEmpty());
+        game.addPlayer(0, 1);
+        assertEquals(Set.of(new Point(0, 1)), dirty.take());
+
+        ((FruitTree) setup[1][0]).mature();  // Banana
+        game = new FruitCollectGame(setup, 2, 1);
+        dirty = new DirtyCells();
+        game.addCellListener(dirty);
+        game.nextGen();
+        Set<Point> spoiled = dirty.take();
+        assertTrue(spoiled.contains(new Point(2, 0)));
+        assertTrue(spoiled.contains(new Point(0, 1)));
+    }
+
+    @Test
+    public void testNothingMarkedAfterRemoval() {
+        FruitCollectGame game = new FruitCollectGame(setup, 1, 0);
+        DirtyCells dirty = new DirtyCells();
+        game.addCellListener(dirty);
+        game.removeCellListener(dirty);
+        game.move(2, 0);
+        assertTrue(dirty.take().isEmpty());
+    }
+
+}
@@ -1,8 +1,11 @@
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -82,6 +85,22 @@ public class FruitCollectGameTest {
         assertFalse(game.hasEnded());
     }
     
+    @Test
+    public void testConstructorRandomKeepsColors() {
+        // the same name in another color, registered first by another game
+        Map<String, Color> red = new HashMap<String, Color>();
+        red.put("Quince", Color.RED);
+        new FruitCollectGame(15, 15, red, 10, 7, 7, 1L);
+        Map<String, Color> green = new HashMap<String, Color>();
+        green.put("Quince", Color.GREEN);
+        FruitCollectGame game = new FruitCollectGame(15, 15, green, 10, 7, 7, 1L);
+        FruitTree tree = (FruitTree) game.snapshotOrchard().getObject(7, 7);
+        assertEquals(Color.GREEN, tree.getColor());
+        int typeId = PackedCell.typeId(game.getCell(7, 7));
+        assertEquals(Color.GREEN, game.getFruitType(typeId).getColor());
+        assertTrue(game.isCollecting("Quince"));
+    }
+    
     @Test
     public void testConstructorRandomInvalidWidth() {
         Map<String, Color> fruits = new HashMap<String, Color>();
@@ -322,6 +341,301 @@ public class FruitCollectGameTest {
         assertTrue(game.hasEnded());
     }
     
+    @Test
+    public void testNextGenSpoilsUncollectedFruit() {
+        ((FruitTree) setup[0][2]).mature();  // Peach
+        ((FruitTree) setup[1][2]).mature();  // Apple
+        FruitCollectGame game = new FruitCollectGame(setup, 1, 0);
+        game.move(2, 1);  // Apple
+        assertEquals(1, game.numCollected("Apple"));
+        
+        // The player stands in column 2, so no tree in it can mature again
+        game.nextGen();
+        assertEquals(1, game.getGen());
+        game.move(2, 1);
+        assertFalse(game.hasEnded());
+        game.move(2, 0);
+        assertEquals(0, game.numCollected("Peach"));
+        assertTrue(game.hasEnded());
+    }
+    
+    @Test
+    public void testCellListener() {
+        ((FruitTree) setup[0][2]).mature();  // Peach
+        FruitCollectGame game = new FruitCollectGame(setup, 1, 0);
+        StringBuilder changes = new StringBuilder();
+        game.addCellListener((x, y, oldCell, newCell) -> {
+            changes.append(x).append(',').append(y).append(' ');
+            assertTrue(PackedCell.isGoodFruit(oldCell));
+            assertFalse(PackedCell.isMature(newCell));
+        });
+        game.move(2, 0);
+        game.move(2, 1);
+        assertEquals("2,0 ", changes.toString());
+        assertThrows(IllegalArgumentException.class, () -> {
+            game.addCellListener(null);
+        });
+    }
+    
+    @Test
+    public void testConcurrentMovesAndGens() throws InterruptedException {
+        int size = 64;
+        OrchardObject[][] orchard = new OrchardObject[size][size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                FruitTree tree = new FruitTree("Peach", Color.PINK);
+                tree.mature();
+                orchard[y][x] = tree;
+            }
+        }
+        FruitCollectGame game = new FruitCollectGame(orchard, 0, 0);
+        game.setGoal(new PerTypeGoal(size * size));
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            threads.add(new Thread(() -> {
+                Random r = new Random(seed);
+                Direction[] directions = Direction.values();
+                for (int i = 0; i < 5000; i++) {
+                    game.move(directions[r.nextInt(directions.length)]);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        // every fruit picked was counted exactly once
+        int picked = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (!PackedCell.isMature(game.getCell(x, y))) {
+                    picked++;
+                }
+            }
+        }
+        assertTrue(picked > 0);
+        assertEquals(picked, game.numCollected("Peach"));
+        assertFalse(game.hasEnded());
+        
+        // a generation running alongside the moves spoils all the fruit left but the trees
+        // it makes mature
+        Thread mover = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                game.move(i % 2 == 0 ? Direction.RIGHT : Direction.LEFT);
+            }
+        });
+        mover.start();
+        game.nextGen();
+        mover.join();
+        assertEquals(1, game.getGen());
+        int good = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (PackedCell.isGoodFruit(game.getCell(x, y))) {
+                    good++;
+                }
+            }
+        }
+        assertTrue(good <= FruitCollectGame.MAX_MATURE_PER_GEN);
+    }
+    
+    @Test
+    public void testMultiplayer() {
+        ((FruitTree) setup[0][2]).mature();
+        FruitCollectGame game = new FruitCollectGame(setup, 1, 0);
+        assertEquals(1, game.getPlayerCount());
+        assertThrows(IllegalArgumentException.class, () -> game.addPlayer(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> game.addPlayer(3, 0));
+        assertEquals(1, game.addPlayer(2, 1));
+        assertEquals(2, game.getPlayerCount());
+        assertEquals(2, game.getPlayerX(1));
+        assertEquals(1, game.getPlayerY(1));
+        assertThrows(IllegalArgumentException.class, () -> game.getPlayerX(2));
+        
+        // the second player collects into its own counters
+        game.move(1, Direction.UP);
+        assertEquals(1, game.numCollected(1, "Peach"));
+        assertEquals(0, game.numCollected("Peach"));
+        assertEquals(0, game.numCollected(0, "Peach"));
+        assertEquals(-1, game.numCollected(1, "Cherry"));
+        game.move(Direction.RIGHT);
+        assertEquals(0, game.numCollected("Peach"));
+        
+        // and drowning puts it out without ending the game
+        game.move(1, Direction.LEFT);
+        game.move(1, Direction.DOWN);
+        assertTrue(game.isOut(1));
+        assertFalse(game.isOut(0));
+        assertFalse(game.hasEnded());
+        game.move(1, Direction.LEFT);
+        assertEquals(1, game.getPlayerX(1));
+        assertEquals(1, game.getPlayerY(1));
+    }
+    
+    @Test
+    public void testPlayersRaceForFruit() throws InterruptedException {
+        int size = 32;
+        OrchardObject[][] orchard = new OrchardObject[size][size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                FruitTree tree = new FruitTree("Peach", Color.PINK);
+                tree.mature();
+                orchard[y][x] = tree;
+            }
+        }
+        FruitCollectGame game = new FruitCollectGame(new OffHeapOrchardBoard(orchard), 0, 0);
+        game.setGoal(new PerTypeGoal(size * size));
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            // all the players start in one corner so that they often meet on the same tree
+            int player = t == 0 ? 0 : game.addPlayer(t % 2, t / 2);
+            threads.add(new Thread(() -> {
+                Random r = new Random(player);
+                Direction[] directions = Direction.values();
+                for (int i = 0; i < 3000; i++) {
+                    game.move(player, directions[r.nextInt(directions.length)]);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        
+        // every fruit picked was collected by exactly one player
+        int picked = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (!PackedCell.isMature(game.getCell(x, y))) {
+                    picked++;
+                }
+            }
+        }
+        int collected = 0;
+        for (int player = 0; player < game.getPlayerCount(); player++) {
+            collected += game.numCollected(player, "Peach");
+        }
+        assertTrue(picked > 0);
+        assertEquals(picked, collected);
+        assertEquals(game.numCollected("Peach"), game.numCollected(0, "Peach"));
+    }
+    
+    @Test
+    public void testMovePathStopsAtDeath() {
+        ((FruitTree) setup[0][2]).mature();
+        FruitCollectGame game = new FruitCollectGame(setup, 1, 0);
+        Direction[] path = {Direction.RIGHT, Direction.UP, Direction.LEFT, Direction.DOWN,
+                        Direction.RIGHT};
+        
+        // the step off the board counts, and the step into the pond is the last
+        assertEquals(4, game.movePath(path));
+        assertEquals(1, game.getPlayerX());
+        assertEquals(1, game.getPlayerY());
+        assertEquals(1, game.numCollected("Peach"));
+        assertTrue(game.hasEnded());
+        assertEquals(0, game.movePath(Direction.LEFT));
+    }
+    
+    @Test
+    public void testMovePathStopsAtWin() {
+        ((FruitTree) setup[0][2]).mature();
+        ((FruitTree) setup[1][2]).mature();
+        FruitCollectGame game = new FruitCollectGame(setup, 1, 0);
+        Map<String, Integer> goals = new HashMap<String, Integer>();
+        goals.put("Peach", 1);
+        goals.put("Apple", 1);
+        game.setGoal(new PerTypeGoal(0, goals));
+        Direction[] path = {Direction.LEFT, Direction.RIGHT, Direction.DOWN, Direction.UP,
+                        Direction.LEFT};
+        
+        // only the steps from index 1 to 4 are taken
+        assertEquals(2, game.movePath(0, path, 1, 4));
+        assertEquals(2, game.getPlayerX());
+        assertEquals(1, game.getPlayerY());
+        assertTrue(game.goalAccomplished());
+        assertTrue(game.hasEnded());
+    }
+    
+    @Test
+    public void testMovePathOtherPlayer() {
+        FruitCollectGame game = new FruitCollectGame(setup, 1, 0);
+        int player = game.addPlayer(2, 1);
+        Direction[] path = {Direction.UP, Direction.LEFT, Direction.DOWN, Direction.LEFT};
+        assertEquals(3, game.movePath(player, path, 0, path.length));
+        assertTrue(game.isOut(player));
+        assertFalse(game.hasEnded());
+        assertEquals(0, game.movePath(player, path, 0, path.length));
+        assertEquals(1, game.movePath(0, path, 0, 1));
+        assertEquals(1, game.getPlayerX());
+        assertEquals(0, game.getPlayerY());
+        assertThrows(IllegalArgumentException.class, () -> game.movePath(0, path, 3, 2));
+        assertThrows(IllegalArgumentException.class, () -> game.movePath(0, path, 0, 5));
+        assertThrows(IllegalArgumentException.class, () -> game.movePath(0, null, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> game.movePath(2, path, 0, 0));
+    }
+    
+    @Test
+    public void testSeededGenerations() {
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Peach", Color.PINK);
+        FruitCollectGame game = new FruitCollectGame(40, 40, fruits, 10, 20, 20, 99);
+        FruitCollectGame same = new FruitCollectGame(40, 40, fruits, 10, 20, 20, 99);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(game.checksum(), same.checksum());
+            game.nextGen();
+            same.nextGen();
+        }
+        assertEquals(game.checksum(), same.checksum());
+        
+        // a game built from an array is seeded explicitly
+        game = new FruitCollectGame(setup, 1, 0);
+        same = new FruitCollectGame(setup, 1, 0);
+        game.setSeed(5);
+        same.setSeed(5);
+        for (int i = 0; i < 10; i++) {
+            game.nextGen();
+            same.nextGen();
+            assertEquals(game.checksum(), same.checksum());
+        }
+    }
+    
+    @Test
+    public void testChecksumKeptUpToDate() {
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Peach", Color.PINK);
+        FruitCollectGame game = new FruitCollectGame(12, 12, fruits, 0, 6, 6, 3);
+        FruitCollectGame same = new FruitCollectGame(12, 12, fruits, 0, 6, 6, 3);
+        // the first game sums its cells up now and follows their changes from then on,
+        // the second visits every cell only at the end
+        long start = game.checksum();
+        Direction[] directions = Direction.values();
+        Random random = new Random(3);
+        for (int i = 0; i < 300 && !game.hasEnded(); i++) {
+            if (i % 3 == 0) {
+                game.nextGen();
+                same.nextGen();
+            }
+            Direction direction = directions[random.nextInt(directions.length)];
+            game.move(direction);
+            same.move(direction);
+        }
+        assertNotEquals(start, game.checksum());
+        assertEquals(same.checksum(), game.checksum());
+        int collected = 0;
+        for (String fruit : game.getFruitSet()) {
+            collected += game.numCollected(fruit);
+        }
+        assertTrue(collected > 0);
+    }
+    
     @Test
     public void testMoveOffBoard() {
         FruitCollectGame game = new FruitCollectGame(setup, 1, 0);
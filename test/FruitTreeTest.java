@@ -2,8 +2,11 @@ import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /** 
  *  Tests methods in {@code FruitTree}.
@@ -98,6 +101,35 @@ public class FruitTreeTest {
         assertTrue(tree.meetPlayer(null));
     }
     
+    @Test
+    public void testMeetPlayerByIdGoodFruit() {
+        FruitTree tree = new FruitTree("Apple", Color.RED);
+        tree.mature();
+        int[] collected = new int[FruitType.count()];
+        assertFalse(tree.meetPlayerById(collected));
+        assertEquals(1, collected[tree.getFruitType().getId()]);
+        assertFalse(tree.isMature());
+    }
+    
+    @Test
+    public void testMeetPlayerByIdNotCounted() {
+        FruitTree tree = new FruitTree("Apple", Color.RED);
+        tree.mature();
+        int[] collected = new int[FruitType.count()];
+        collected[tree.getFruitType().getId()] = -1;
+        assertFalse(tree.meetPlayerById(collected));
+        assertEquals(-1, collected[tree.getFruitType().getId()]);
+        assertFalse(tree.isMature());
+    }
+    
+    @Test
+    public void testMeetPlayerByIdBadFruitNullArray() {
+        FruitTree tree = new FruitTree("Apple", Color.RED);
+        tree.mature();
+        tree.turnBad();
+        assertTrue(tree.meetPlayerById(null));
+    }
+    
     @Test
     public void testClone() {
         FruitTree tree1 = new FruitTree("Apple", Color.RED);
@@ -115,5 +147,50 @@ public class FruitTreeTest {
         assertTrue(tree2 instanceof FruitTree);
         assertTrue(tree1 != tree2 && tree1.equals(tree2));
     }
+    
+    @Test
+    public void testStateChanges() {
+        FruitTree tree = new FruitTree("Apple", Color.RED);
+        assertFalse(tree.claimFruit());
+        assertFalse(tree.spoilFruit());
+        assertTrue(tree.ripen());
+        assertFalse(tree.ripen());
+        assertTrue(tree.claimFruit());
+        assertFalse(tree.isMature());
+        assertFalse(tree.claimFruit());
+        
+        assertTrue(tree.ripen());
+        assertTrue(tree.spoilFruit());
+        assertTrue(tree.isBadFruit());
+        assertFalse(tree.spoilFruit());
+        assertFalse(tree.claimFruit());
+        assertFalse(tree.ripen());
+        assertTrue(tree.isBadFruit());
+    }
+    
+    @Test
+    public void testClaimFruitConcurrently() throws InterruptedException {
+        for (int round = 0; round < 100; round++) {
+            FruitTree tree = new FruitTree("Apple", Color.RED);
+            tree.mature();
+            AtomicInteger claims = new AtomicInteger();
+            List<Thread> threads = new ArrayList<Thread>();
+            for (int t = 0; t < 8; t++) {
+                threads.add(new Thread(() -> {
+                    if (tree.claimFruit()) {
+                        claims.incrementAndGet();
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(1, claims.get());
+            assertFalse(tree.isMature());
+        }
+    }
 
 }
@@ -0,0 +1,49 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods in {@code FruitType}.
+ *
+ * @author yuyingf
+ *
+ */
+public class FruitTypeTest {
+
+    @Test
+    public void testInterned() {
+        FruitType apple = FruitType.of("Apple", Color.RED);
+        assertSame(apple, FruitType.of("Apple", Color.RED));
+        assertSame(apple, new FruitTree("Apple", Color.RED).getFruitType());
+        assertEquals("Apple", apple.getName());
+        assertEquals(Color.RED, apple.getColor());
+    }
+
+    @Test
+    public void testIdsByName() {
+        FruitType red = FruitType.of("Plum", Color.RED);
+        FruitType blue = FruitType.of("Plum", Color.BLUE);
+        assertNotSame(red, blue);
+        assertNotEquals(red, blue);
+        assertEquals(red.getId(), blue.getId());
+        assertEquals(red.getId(), FruitType.idOf("Plum"));
+        assertSame(red, FruitType.byId(red.getId()));
+        assertTrue(red.getId() < FruitType.count());
+        assertNotEquals(red.getId(), FruitType.of("Cherry", Color.RED).getId());
+    }
+
+    @Test
+    public void testUnknown() {
+        assertEquals(-1, FruitType.idOf("Durian that nobody grows"));
+        assertEquals(-1, FruitType.idOf(null));
+        assertThrows(IllegalArgumentException.class, () -> {
+            FruitType.byId(-1);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            FruitType.of(null, Color.RED);
+        });
+    }
+
+}
@@ -0,0 +1,111 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code GameLoop}.
+ *
+ * @author yuyingf
+ *
+ */
+public class GameLoopTest {
+
+    private FruitCollectGame game;
+
+    @BeforeEach
+    public void setUp() {
+        OrchardObject[][] setup = new OrchardObject[1][5];
+        for (int x = 0; x < 5; x++) {
+            setup[0][x] = new FruitTree("Apple", Color.RED);
+        }
+        game = new FruitCollectGame(setup, 1, 0);
+    }
+
+    @Test
+    public void testTicks() {
+        GameLoop loop = new GameLoop(game, 60, 3, 10, 60);
+        loop.post(() -> game.move(Direction.RIGHT));
+        assertEquals(1, game.getPlayerX());
+        loop.tick();
+        assertEquals(2, game.getPlayerX());
+        assertEquals(1.5, loop.getPlayerX(0.5));
+        assertEquals(0.0, loop.getPlayerY(0.5));
+        loop.tick();
+        assertEquals(2.0, loop.getPlayerX(0.5));
+        assertEquals(0, game.getGen());
+        assertEquals(1 / 60.0, loop.getSecondsToNextGen(), 1e-6);
+        loop.tick();
+        assertEquals(1, game.getGen());
+        assertEquals(3, loop.getTicks());
+    }
+
+    @Test
+    public void testMovesPlayedPerTick() {
+        GameLoop loop = new GameLoop(game, 60, 3, 10, 60);
+        PerfStats stats = new PerfStats();
+        loop.setPerfStats(stats);
+        assertTrue(loop.getMoves().offer(Direction.RIGHT));
+        assertTrue(loop.getMoves().offer(Direction.RIGHT));
+        assertTrue(loop.getMoves().offer(Direction.LEFT));
+        assertEquals(1, game.getPlayerX());
+        loop.tick();
+        assertEquals(2, game.getPlayerX());
+        assertEquals(1.5, loop.getPlayerX(0.5));
+        assertTrue(loop.getMoves().isEmpty());
+        assertEquals(3, stats.getMoveTimes().getCount());
+    }
+
+    @Test
+    public void testGameEndsAfterLastGen() {
+        AtomicInteger ticked = new AtomicInteger();
+        GameLoop loop = new GameLoop(game, 60, 1, 2, 60);
+        loop.setListener(l -> ticked.incrementAndGet());
+        for (int i = 0; i < 5; i++) {
+            loop.tick();
+        }
+        assertTrue(game.hasEnded());
+        assertEquals(3, game.getGen());
+        assertEquals(3, loop.getTicks());
+        assertEquals(5, ticked.get());
+    }
+
+    @Test
+    public void testRunPacesFrames() throws InterruptedException {
+        AtomicInteger frames = new AtomicInteger();
+        GameLoop loop = new GameLoop(game, 1000, 1000, 10, 50);
+        loop.setRenderer(alpha -> {
+            assertTrue(alpha >= 0 && alpha < 1);
+            frames.incrementAndGet();
+        });
+        Thread thread = new Thread(loop);
+        thread.start();
+        Thread.sleep(300);
+        loop.stop();
+        thread.join();
+        assertTrue(frames.get() >= 5 && frames.get() <= 25, frames.get() + " frames");
+        assertTrue(loop.getTicks() >= 100, loop.getTicks() + " ticks");
+    }
+
+    @Test
+    public void testStopEndsCatchUp() throws InterruptedException {
+        // a frame every 100 ms runs about 100 ticks, but the first stops the loop
+        GameLoop loop = new GameLoop(game, 1000, 1000, 10, 10);
+        loop.setListener(GameLoop::stop);
+        Thread thread = new Thread(loop);
+        thread.start();
+        thread.join();
+        assertEquals(1, loop.getTicks());
+    }
+
+    @Test
+    public void testInvalidRates() {
+        assertThrows(IllegalArgumentException.class, () -> new GameLoop(null, 60, 1, 1, 60));
+        assertThrows(IllegalArgumentException.class, () -> new GameLoop(game, 0, 1, 1, 60));
+        assertThrows(IllegalArgumentException.class, () -> new GameLoop(game, 60, 1, 1, 0));
+    }
+
+}
@@ -0,0 +1,251 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code GameSerializer}.
+ *
+ * @author yuyingf
+ *
+ */
+public class GameSerializerTest {
+
+    private OrchardObject[][] setup;
+
+    // A pond at (0,0), an empty cell at (1,0), a mature apple at (2,0), bad banana at (0,1)
+    @BeforeEach
+    public void setUp() {
+        setup = new OrchardObject[3][4];
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 4; x++) {
+                setup[y][x] = new FruitTree("Apple", Color.RED);
+            }
+        }
+        setup[0][0] = new Pond();
+        setup[0][1] = null;
+        ((FruitTree) setup[0][2]).mature();
+        FruitTree banana = new FruitTree("Banana", Color.YELLOW);
+        banana.mature();
+        banana.turnBad();
+        setup[1][0] = banana;
+    }
+
+    private static byte[] save(OrchardBoard board) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameSerializer.writeBoard(board, Channels.newChannel(bytes));
+        return bytes.toByteArray();
+    }
+
+    // Compares the cells of two boards, with the fruit types of trees compared by name and
+    // color since each board has type ids of its own
+    private static void assertSameCells(OrchardBoard expected, OrchardBoard actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int stateMask = (1 << PackedCell.TYPE_SHIFT) - 1;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int cell = expected.getCell(x, y);
+                int actualCell = actual.getCell(x, y);
+                assertEquals(cell & stateMask, actualCell & stateMask);
+                if (PackedCell.isTree(cell)) {
+                    assertEquals(expected.getFruitType(PackedCell.typeId(cell)),
+                                    actual.getFruitType(PackedCell.typeId(actualCell)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBoardRoundTrip() throws IOException {
+        OrchardBoard board = new OrchardBoard(setup);
+        OrchardBoard restored = GameSerializer.readBoard(Channels.newChannel(
+                        new ByteArrayInputStream(save(board))));
+        assertSameCells(board, restored);
+        assertEquals(board.toString(), restored.toString());
+        assertEquals(board.getFruitTypes(), restored.getFruitTypes());
+    }
+
+    @Test
+    public void testRunsOfCellsAreCompact() throws IOException {
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        OrchardBoard board = new OrchardGenerator(5, fruits, 0).generate(1000, 1000);
+        byte[] saved = save(board);
+        assertTrue(saved.length < 100, "one run of a million identical cells");
+        assertSameCells(board, GameSerializer.readBoard(Channels.newChannel(
+                        new ByteArrayInputStream(saved))));
+    }
+
+    @Test
+    public void testGameRoundTrip() throws IOException {
+        FruitCollectGame game = new FruitCollectGame(setup, 3, 0);
+        game.move(2, 0);
+        game.nextGen();
+        game.nextGen();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameSerializer.writeGame(game, Channels.newChannel(bytes));
+        FruitCollectGame restored = GameSerializer.readGame(Channels.newChannel(
+                        new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(2, restored.getPlayerX());
+        assertEquals(0, restored.getPlayerY());
+        assertEquals(2, restored.getGen());
+        assertFalse(restored.hasEnded());
+        assertEquals(game.getFruitSet(), restored.getFruitSet());
+        assertEquals(1, restored.numCollected("Apple"));
+        assertEquals(0, restored.numCollected("Banana"));
+        assertSameCells(game.snapshotOrchard(), restored.snapshotOrchard());
+    }
+
+    @Test
+    public void testSaveWhileRestoredGameIsPlayed() throws IOException {
+        FruitCollectGame game = new FruitCollectGame(setup, 3, 0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameSerializer.writeGame(game, Channels.newChannel(bytes));
+        FruitCollectGame restored = GameSerializer.readGame(Channels.newChannel(
+                        new ByteArrayInputStream(bytes.toByteArray())));
+        assertTrue(restored.snapshotOrchard() instanceof CopyOnWriteOrchardBoard);
+
+        // saves taken while another thread plays the game read back
+        Thread player = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) {
+                restored.nextGen();
+            }
+        });
+        player.start();
+        for (int i = 0; i < 20; i++) {
+            ByteArrayOutputStream again = new ByteArrayOutputStream();
+            GameSerializer.writeGame(restored, Channels.newChannel(again));
+            FruitCollectGame copy = GameSerializer.readGame(Channels.newChannel(
+                            new ByteArrayInputStream(again.toByteArray())));
+            assertEquals(4, copy.getWidth());
+        }
+        try {
+            player.join();
+        } catch (InterruptedException e) {
+            fail(e);
+        }
+    }
+
+    @Test
+    public void testSaveIsFromOneMoment() throws IOException {
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Pear", Color.GREEN);
+        FruitCollectGame game = new FruitCollectGame(40, 40, fruits, 0, 20, 20, 5L);
+        Set<Long> checksums = ConcurrentHashMap.newKeySet();
+        checksums.add(game.checksum());
+
+        // every state the game passes through, against which the saves are checked
+        Thread player = new Thread(() -> {
+            SplittableRandom random = new SplittableRandom(5L);
+            Direction[] directions = Direction.values();
+            for (int i = 0; i < 20000; i++) {
+                if (i % 3 == 0) {
+                    game.nextGen();
+                } else {
+                    game.move(directions[random.nextInt(directions.length)]);
+                }
+                checksums.add(game.checksum());
+            }
+        });
+        player.start();
+        List<Long> saved = new ArrayList<Long>();
+        while (player.isAlive()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            GameSerializer.writeGame(game, Channels.newChannel(bytes));
+            FruitCollectGame copy = GameSerializer.readGame(Channels.newChannel(
+                            new ByteArrayInputStream(bytes.toByteArray())));
+            saved.add(copy.checksum());
+        }
+        try {
+            player.join();
+        } catch (InterruptedException e) {
+            fail(e);
+        }
+        for (long checksum : saved) {
+            assertTrue(checksums.contains(checksum));
+        }
+    }
+
+    @Test
+    public void testSaveChunkedGame() throws IOException {
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        Path spill = Files.createTempFile("orchard", ".spill");
+        try (ChunkedOrchardBoard board = new ChunkedOrchardBoard(100, 70, 3, fruits, 0,
+                        ChunkedOrchardBoard.DEFAULT_MEMORY_BUDGET, spill)) {
+            ((FruitTree) board.getObject(80, 60)).mature();
+            FruitCollectGame game = new FruitCollectGame(board, 0, 0);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            GameSerializer.writeGame(game, Channels.newChannel(bytes));
+            FruitCollectGame restored = GameSerializer.readGame(Channels.newChannel(
+                            new ByteArrayInputStream(bytes.toByteArray())));
+            assertSameCells(board, restored.snapshotOrchard());
+            assertTrue(PackedCell.isGoodFruit(restored.getCell(80, 60)));
+        } finally {
+            Files.deleteIfExists(spill);
+        }
+    }
+
+    @Test
+    public void testOneNameInTwoColors() throws IOException {
+        setup[2][3] = new FruitTree("Apple", Color.GREEN);
+        FruitCollectGame game = new FruitCollectGame(setup, 3, 0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameSerializer.writeGame(game, Channels.newChannel(bytes));
+        FruitCollectGame restored = GameSerializer.readGame(Channels.newChannel(
+                        new ByteArrayInputStream(bytes.toByteArray())));
+        OrchardBoard board = restored.snapshotOrchard();
+        assertEquals(Color.RED, ((FruitTree) board.getObject(3, 1)).getColor());
+        assertEquals(Color.GREEN, ((FruitTree) board.getObject(3, 2)).getColor());
+        assertEquals(game.getFruitSet(), restored.getFruitSet());
+        assertSameCells(game.snapshotOrchard(), board);
+    }
+
+    @Test
+    public void testEndedGameInPond() throws IOException {
+        setup[0][1] = new FruitTree("Apple", Color.RED);
+        FruitCollectGame game = new FruitCollectGame(setup, 1, 1);
+        game.move(1, 0);
+        game.move(0, 0);
+        assertEquals(GameOutcome.DROWNED, game.getOutcome());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GameSerializer.writeGame(game, Channels.newChannel(bytes));
+        FruitCollectGame restored = GameSerializer.readGame(Channels.newChannel(
+                        new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(GameOutcome.DROWNED, restored.getOutcome());
+    }
+
+    @Test
+    public void testInvalidData() throws IOException {
+        byte[] saved = save(new OrchardBoard(setup));
+        assertThrows(EOFException.class, () -> GameSerializer.readBoard(Channels.newChannel(
+                        new ByteArrayInputStream(Arrays.copyOf(saved, saved.length - 1)))));
+        assertThrows(IOException.class, () -> GameSerializer.readGame(Channels.newChannel(
+                        new ByteArrayInputStream(saved))));
+        byte[] corrupt = saved.clone();
+        corrupt[0]++;
+        assertThrows(IOException.class, () -> GameSerializer.readBoard(Channels.newChannel(
+                        new ByteArrayInputStream(corrupt))));
+        assertThrows(IllegalArgumentException.class, () -> GameSerializer.readBoard(null));
+    }
+
+}
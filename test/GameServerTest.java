@@ -0,0 +1,152 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods in {@code GameServer}, {@code GameClient} and {@code LoadGenerator}.
+ *
+ * @author yuyingf
+ *
+ */
+public class GameServerTest {
+
+    private BoardSpec spec;
+    private GameServer server;
+
+    @BeforeEach
+    public void setUp() {
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Peach", Color.PINK);
+        spec = new BoardSpec(fruits);
+        server = new GameServer(spec, 4);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    private SocketAddress startLocal() throws IOException {
+        return server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @Test
+    public void testConstructorInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new GameServer(null, 4));
+        assertThrows(IllegalArgumentException.class, () -> new GameServer(spec, 0));
+    }
+
+    @Test
+    public void testPlayMatchesLocalGame() throws IOException {
+        SocketAddress address = startLocal();
+        FruitCollectGame local = spec.newGame(42);
+        try (GameClient client = new GameClient(address)) {
+            client.newGame(42);
+            assertEquals(GameOutcome.IN_PROGRESS, client.getOutcome());
+            assertEquals(local.getPlayerX(), client.getPlayerX());
+            assertEquals(local.getPlayerY(), client.getPlayerY());
+            Direction[] walk = { Direction.UP, Direction.UP, Direction.LEFT, Direction.DOWN };
+            for (Direction direction : walk) {
+                local.move(direction);
+                client.move(direction);
+                assertEquals(local.getPlayerX(), client.getPlayerX());
+                assertEquals(local.getPlayerY(), client.getPlayerY());
+                assertEquals(local.getOutcome(), client.getOutcome());
+            }
+            client.nextGen();
+            assertEquals(1, client.getGen());
+            assertEquals(0, client.getCollected());
+        }
+    }
+
+    @Test
+    public void testUnixDomainSocket() throws IOException {
+        Path dir = Files.createTempDirectory("fruitcollect");
+        Path file = dir.resolve("server.sock");
+        SocketAddress address = server.start(UnixDomainSocketAddress.of(file));
+        try (GameClient client = new GameClient(address)) {
+            client.newGame(7);
+            client.move(Direction.RIGHT);
+            assertEquals(spec.newGame(7).getPlayerX() + 1, client.getPlayerX());
+        }
+        server.close();
+        assertFalse(Files.exists(file));
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        SocketAddress address = startLocal();
+        try (GameClient client = new GameClient(address)) {
+            IOException e = assertThrows(IOException.class, () -> client.move(Direction.UP));
+            assertTrue(e.getMessage().endsWith(" " + GameProtocol.NO_GAME));
+            client.newGame(1);
+        }
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            // an unknown direction is refused and the session goes on
+            ByteBuffer request = ByteBuffer.allocate(16);
+            GameProtocol.putNewGame(request, 1);
+            request.put(GameProtocol.MOVE).put((byte) 9).flip();
+            channel.write(request);
+            ByteBuffer reply = ByteBuffer.allocate(20);
+            while (reply.position() < 20) {
+                channel.read(reply);
+            }
+            assertEquals(GameProtocol.STATE, reply.get(0));
+            assertEquals(GameProtocol.ERROR, reply.get(18));
+            assertEquals(GameProtocol.BAD_REQUEST, reply.get(19));
+        }
+    }
+
+    @Test
+    public void testBusy() throws IOException {
+        SocketAddress address = startLocal();
+        GameClient[] clients = new GameClient[4];
+        for (int i = 0; i < clients.length; i++) {
+            clients[i] = new GameClient(address);
+            clients[i].newGame(i);
+        }
+        assertEquals(4, server.getSessionCount());
+        try (GameClient extra = new GameClient(address)) {
+            IOException e = assertThrows(IOException.class, () -> extra.newGame(5));
+            assertTrue(e.getMessage().endsWith(" " + GameProtocol.BUSY));
+        }
+        for (GameClient client : clients) {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testLoadGenerator() throws IOException, InterruptedException {
+        server = new GameServer(spec, 100);
+        SocketAddress address = startLocal();
+        LoadGenerator generator = new LoadGenerator(address, 20);
+        LatencyHistogram times = generator.run(50, 100);
+        assertEquals(0, generator.getFailedSessions());
+        assertEquals(50 * 100, times.getCount());
+        assertTrue(times.getValueAtPercentile(99) > 0);
+        for (int i = 0; i < 100 && server.getSessionsServed() < 50; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(50, server.getSessionsServed());
+        assertEquals(0, server.getSessionCount());
+        assertEquals(50 * 100, server.getMoveTimes().getCount());
+    }
+
+}
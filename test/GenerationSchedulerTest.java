@@ -0,0 +1,115 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods in {@code GenerationScheduler}.
+ *
+ * @author yuyingf
+ *
+ */
+public class GenerationSchedulerTest {
+
+    private GenerationScheduler scheduler;
+    private BoardSpec spec;
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = new GenerationScheduler(1, 2);
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        spec = new BoardSpec(fruits);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.close();
+    }
+
+    // Waits up to a few seconds for a condition that the scheduler makes true
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new GenerationScheduler(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new GenerationScheduler(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.schedule(null, 5, 5, null));
+        assertThrows(IllegalArgumentException.class,
+                        () -> scheduler.schedule(spec.newGame(0), 0, 5, null));
+        assertThrows(IllegalArgumentException.class,
+                        () -> scheduler.scheduleAtFixedRate(null, 5));
+    }
+
+    @Test
+    public void testManyGamesRunToTheirLastGen() throws InterruptedException {
+        FruitCollectGame[] games = new FruitCollectGame[200];
+        GenerationScheduler.Task[] tasks = new GenerationScheduler.Task[games.length];
+        AtomicInteger gens = new AtomicInteger();
+        for (int i = 0; i < games.length; i++) {
+            games[i] = spec.newGame(i);
+            tasks[i] = scheduler.schedule(games[i], 2 + i % 5, 3, g -> gens.incrementAndGet());
+        }
+        await(() -> gens.get() == games.length * 4);
+        for (int i = 0; i < games.length; i++) {
+            assertTrue(games[i].hasEnded());
+            assertEquals(4, games[i].getGen());
+            assertTrue(tasks[i].isCancelled());
+        }
+    }
+
+    @Test
+    public void testPauseAndResume() throws InterruptedException {
+        FruitCollectGame game = spec.newGame(1);
+        GenerationScheduler.Task task = scheduler.schedule(game, 20, 1000, null);
+        await(() -> game.getGen() >= 2);
+        task.pause();
+        assertTrue(task.isPaused());
+        // a generation already handed to a worker may still finish
+        Thread.sleep(30);
+        int gen = game.getGen();
+        Thread.sleep(100);
+        assertEquals(gen, game.getGen());
+        assertTrue(task.getMillisToNextRun() > 0);
+        task.resume();
+        assertFalse(task.isPaused());
+        await(() -> game.getGen() >= gen + 2);
+        task.cancel();
+        Thread.sleep(30);
+        int last = game.getGen();
+        Thread.sleep(100);
+        assertEquals(last, game.getGen());
+        assertEquals(0, task.getMillisToNextRun());
+    }
+
+    @Test
+    public void testEndedGameIsDropped() throws InterruptedException {
+        FruitCollectGame game = spec.newGame(2);
+        GenerationScheduler.Task task = scheduler.schedule(game, 5, 1000, null);
+        game.endGame();
+        await(task::isCancelled);
+        assertEquals(0, game.getGen());
+    }
+
+    @Test
+    public void testFixedRate() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        GenerationScheduler.Task task = scheduler.scheduleAtFixedRate(runs::incrementAndGet, 3);
+        await(() -> runs.get() >= 5);
+        task.cancel();
+        assertTrue(task.getLastRunNanos() >= 0);
+    }
+
+}
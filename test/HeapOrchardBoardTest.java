@@ -0,0 +1,140 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods in {@code HeapOrchardBoard}.
+ *
+ * @author yuyingf
+ *
+ */
+public class HeapOrchardBoardTest {
+
+    @Test
+    public void testConstructorFromSetup() {
+        OrchardObject[][] setup = new OrchardObject[2][3];
+        setup[0][0] = new Pond();
+        FruitTree tree = new FruitTree("Apple", Color.RED);
+        tree.mature();
+        setup[1][2] = tree;
+        HeapOrchardBoard board = new HeapOrchardBoard(setup);
+        assertEquals(3, board.getWidth());
+        assertEquals(2, board.getHeight());
+        assertEquals(new Pond(), board.getObject(0, 0));
+        assertEquals(tree, board.getObject(2, 1));
+        assertNull(board.getObject(0, 1));
+        assertNull(board.getObject(5, 4));
+    }
+
+    @Test
+    public void testConstructorInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new HeapOrchardBoard(null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new HeapOrchardBoard(new OrchardObject[][] {});
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new HeapOrchardBoard(0, 5);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new HeapOrchardBoard(100000, 100000);
+        });
+    }
+
+    @Test
+    public void testSnapshotIsCopy() {
+        HeapOrchardBoard board = new HeapOrchardBoard(3, 2);
+        board.placeTree(0, 0, "Apple", Color.RED);
+        board.placePond(2, 1);
+        OrchardBoard copy = board.snapshot();
+        ((FruitTree) board.getObject(0, 0)).mature();
+        board.placePond(1, 0);
+        assertFalse(((FruitTree) copy.getObject(0, 0)).isMature());
+        assertNull(copy.getObject(1, 0));
+        assertEquals(new Pond(), copy.getObject(2, 1));
+        assertTrue(copy.getFruitTypes().contains("Apple"));
+    }
+
+    @Test
+    public void testGoodFruitPositions() {
+        HeapOrchardBoard board = new HeapOrchardBoard(3, 2);
+        board.placeTree(0, 0, "Apple", Color.RED);
+        board.placeTree(2, 1, "Banana", Color.YELLOW);
+        ((FruitTree) board.getObject(2, 1)).mature();
+        assertEquals(List.of(new Point(2, 1)), board.goodFruitPositions());
+        ((FruitTree) board.getObject(2, 1)).turnBad();
+        assertTrue(board.goodFruitPositions().isEmpty());
+    }
+
+    @Test
+    public void testConcurrentClaims() throws InterruptedException {
+        HeapOrchardBoard board = new HeapOrchardBoard(7, 5);
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++) {
+                board.placeTree(x, y, "Damson", Color.MAGENTA);
+                ((FruitTree) board.getObject(x, y)).mature();
+            }
+        }
+        AtomicInteger claims = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int y = 0; y < 5; y++) {
+                    for (int x = 0; x < 7; x++) {
+                        if (((FruitTree) board.getObject(x, y)).claimFruit()) {
+                            claims.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(35, claims.get());
+        assertFalse(PackedCell.isMature(board.getCell(6, 4)));
+    }
+
+    @Test
+    public void testTypeIdsPerBoard() {
+        FruitType red = FruitType.of("Sloe", Color.RED);
+        FruitType blue = FruitType.of("Sloe", Color.BLUE);
+        HeapOrchardBoard board = new HeapOrchardBoard(PackedCell.MAX_TYPES, 2);
+        board.placeTree(0, 0, "Sloe", Color.RED);
+        board.placeTree(1, 0, "Sloe", Color.BLUE);
+        assertEquals(0, board.getTypeId(red));
+        assertEquals(1, board.getTypeId(blue));
+        assertEquals(-1, board.getTypeId(FruitType.of("Damson", Color.BLUE)));
+        assertEquals(1, PackedCell.typeId(board.getCell(1, 0)));
+        assertSame(blue, board.getFruitType(1));
+        assertEquals(2, board.getTypeCount());
+        assertThrows(IllegalArgumentException.class, () -> {
+            board.getFruitType(2);
+        });
+        assertEquals(1, board.snapshot().getTypeId(blue));
+
+        for (int x = 2; x < PackedCell.MAX_TYPES; x++) {
+            board.placeTree(x, 0, "Sloe " + x, Color.GREEN);
+        }
+        assertEquals(PackedCell.MAX_TYPES, board.getTypeCount());
+        assertThrows(IllegalArgumentException.class, () -> {
+            board.placeTree(0, 1, "Sloe", Color.GREEN);
+        });
+
+        HeapOrchardBoard other = new HeapOrchardBoard(1, 1);
+        other.placeTree(0, 0, "Sloe", Color.BLUE);
+        assertEquals(0, other.getTypeId(blue));
+        assertSame(blue, other.getFruitType(0));
+    }
+
+}
@@ -0,0 +1,136 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code LatencyHistogram} and the {@code PerfStats} built on it.
+ *
+ * @author yuyingf
+ *
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 50; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+        assertEquals(51, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(25, histogram.getValueAtPercentile(50));
+        assertEquals(50, histogram.getValueAtPercentile(100));
+        assertEquals(50, histogram.getMax());
+    }
+
+    @Test
+    public void testPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 us to 100 ms
+        for (long nanos = 1000; nanos <= 100_000_000; nanos += 1000) {
+            histogram.record(nanos);
+        }
+        long[] expected = {50_000_000, 99_000_000, 100_000_000};
+        double[] percentiles = {50, 99, 100};
+        for (int i = 0; i < percentiles.length; i++) {
+            long value = histogram.getValueAtPercentile(percentiles[i]);
+            assertTrue(value >= expected[i] && value <= expected[i] * 1.04,
+                            percentiles[i] + ": " + value);
+        }
+        assertEquals(50_000_500, histogram.getMean(), 1);
+        assertEquals(Long.MAX_VALUE, recordOne(Long.MAX_VALUE).getValueAtPercentile(50));
+        assertThrows(IllegalArgumentException.class, () -> {
+            histogram.getValueAtPercentile(101);
+        });
+    }
+
+    private static LatencyHistogram recordOne(long nanos) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(nanos);
+        return histogram;
+    }
+
+    @Test
+    public void testAddAndReset() {
+        LatencyHistogram a = recordOne(10);
+        LatencyHistogram b = recordOne(1_000_000);
+        a.add(b);
+        assertEquals(2, a.getCount());
+        assertEquals(1_000_000, a.getMax());
+        assertEquals(10, a.getValueAtPercentile(50));
+        a.reset();
+        assertEquals(0, a.getCount());
+        assertEquals(0, a.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testPerfStats() {
+        PerfStats stats = new PerfStats();
+        assertEquals(0, stats.getFramesPerSecond(50));
+        for (int frame = 0; frame <= 100; frame++) {
+            // a frame every 10 ms, with a 100 ms stutter at the end
+            stats.frame(frame * 10_000_000L + (frame == 100 ? 90_000_000L : 0));
+        }
+        assertEquals(100, stats.getFrameTimes().getCount());
+        assertEquals(100, stats.getFramesPerSecond(50), 4);
+        assertEquals(10, stats.getFramesPerSecond(100), 0.5);
+        
+        // the renderer records every frame it paints
+        OrchardObject[][] setup = {{new FruitTree("Apple", Color.RED), new Pond()}};
+        OrchardRenderer renderer = new OrchardRenderer(new FruitCollectGame(setup, 0, 0),
+                        10, 10);
+        renderer.setOverlayVisible(true);
+        BufferedImage image = new BufferedImage(400, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        renderer.paint(g, 400, 100, Color.WHITE, null);
+        renderer.paint(g, 400, 100, Color.WHITE, null);
+        g.dispose();
+        assertEquals(2, renderer.getPerfStats().getPaintTimes().getCount());
+        assertEquals(1, renderer.getPerfStats().getFrameTimes().getCount());
+        stats.reset();
+        assertEquals(0, stats.getFrameTimes().getCount());
+    }
+
+    @Test
+    public void testInputLatency() {
+        OrchardObject[][] setup = {{new FruitTree("Apple", Color.RED), new Pond()}};
+        OrchardRenderer renderer = new OrchardRenderer(new FruitCollectGame(setup, 0, 0),
+                        10, 10);
+        PerfStats stats = renderer.getPerfStats();
+        long now = System.nanoTime();
+        long pressed = PerfStats.pressedAt(System.currentTimeMillis() - 20, now);
+        assertEquals(20_000_000, now - pressed, 5_000_000);
+        stats.inputHandled(pressed, now, 1000);
+        
+        // a paint that leaves out the player does not show the move
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setClip(10, 0, 10, 10);
+        renderer.paint(g, 20, 10, Color.WHITE, null);
+        assertEquals(0, stats.getInputLatencies().getCount());
+        g.setClip(null);
+        renderer.paint(g, 20, 10, Color.WHITE, null);
+        g.dispose();
+        assertEquals(1, stats.getInputLatencies().getCount());
+        assertTrue(stats.getInputLatencies().getMax() >= now - pressed);
+        
+        // each key press is recorded once
+        stats.inputsPainted(System.nanoTime(), 0);
+        assertEquals(1, stats.getInputLatencies().getCount());
+    }
+
+}
@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods in {@code Minimap}.
+ *
+ * @author yuyingf
+ *
+ */
+public class MinimapTest {
+
+    @Test
+    public void testOnePixelPerCellOnSmallBoards() {
+        OrchardObject[][] setup = new OrchardObject[1][3];
+        setup[0][0] = new Pond();
+        setup[0][1] = new FruitTree("Apple", Color.RED);
+        setup[0][2] = new FruitTree("Apple", Color.RED);
+        ((FruitTree) setup[0][2]).mature();
+        FruitCollectGame game = new FruitCollectGame(setup, 1, 0);
+        Minimap minimap = new Minimap(game);
+        
+        assertEquals(1, minimap.getBlockSize());
+        assertEquals(3, minimap.getImage().getWidth());
+        assertEquals(Pond.COLOR.getRGB(), minimap.getImage().getRGB(0, 0));
+        assertEquals(Minimap.GROUND.getRGB(), minimap.getImage().getRGB(1, 0));
+        assertEquals(Color.RED.getRGB(), minimap.getImage().getRGB(2, 0));
+        
+        // picking the fruit leaves an immature tree
+        game.move(2, 0);
+        assertEquals(Minimap.GROUND.getRGB(), minimap.getImage().getRGB(2, 0));
+    }
+
+    @Test
+    public void testBlocksOnLargeBoards() {
+        FruitCollectGame game = new FruitCollectGame(Minimap.MAX_SIZE * 4 + 1, 10,
+                        Map.of("Apple", Color.RED), 30, 0, 0, 42);
+        Minimap minimap = new Minimap(game);
+        
+        assertEquals(8, minimap.getBlockSize());
+        assertEquals(Minimap.MAX_SIZE / 2 + 1, minimap.getImage().getWidth());
+        assertEquals(2, minimap.getImage().getHeight());
+    }
+
+    @Test
+    public void testUpdatedIncrementally() {
+        FruitCollectGame game = new FruitCollectGame(300, 300,
+                        Map.of("Apple", Color.RED, "Pear", Color.YELLOW), 20, 0, 0, 7);
+        Minimap minimap = new Minimap(game);
+        for (int gen = 0; gen < 200; gen++) {
+            game.nextGen();
+        }
+        
+        // the pixels kept up to date match a minimap built from the board as it is now
+        Minimap rebuilt = new Minimap(game);
+        for (int y = 0; y < minimap.getImage().getHeight(); y++) {
+            for (int x = 0; x < minimap.getImage().getWidth(); x++) {
+                assertEquals(rebuilt.getImage().getRGB(x, y), minimap.getImage().getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testOverviewPastSmallestCells() {
+        FruitCollectGame game = new FruitCollectGame(100, 100, Map.of("Apple", Color.RED), 10,
+                        0, 0, 3);
+        OrchardRenderer renderer = new OrchardRenderer(game, Camera.MIN_CELL_SIZE + 1,
+                        Camera.MIN_CELL_SIZE + 1);
+        renderer.zoomOut();
+        assertFalse(renderer.isOverview());
+        assertNull(renderer.getMinimap());
+        renderer.zoomOut();
+        assertTrue(renderer.isOverview());
+        assertNotNull(renderer.getMinimap());
+        renderer.zoomIn();
+        assertFalse(renderer.isOverview());
+        assertEquals(Camera.MIN_CELL_SIZE, renderer.getCamera().getCellWidth());
+    }
+
+}
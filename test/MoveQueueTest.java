@@ -0,0 +1,111 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods in {@code MoveQueue}.
+ *
+ * @author yuyingf
+ *
+ */
+public class MoveQueueTest {
+
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new MoveQueue(0));
+        assertThrows(IllegalArgumentException.class, () -> new MoveQueue(6));
+        assertThrows(IllegalArgumentException.class, () -> new MoveQueue().offer(null));
+    }
+
+    @Test
+    public void testDrainInOrder() {
+        MoveQueue queue = new MoveQueue(4);
+        Direction[] into = new Direction[4];
+        long[] when = new long[4];
+        assertTrue(queue.isEmpty());
+        assertEquals(0, queue.drain(into, when));
+
+        // the ring wraps around several times
+        for (int round = 0; round < 5; round++) {
+            assertTrue(queue.offer(Direction.UP, 10));
+            assertTrue(queue.offer(Direction.LEFT, 20));
+            assertTrue(queue.offer(Direction.DOWN, 30));
+            assertFalse(queue.isEmpty());
+            assertEquals(3, queue.drain(into, when));
+            assertArrayEquals(new Direction[] {Direction.UP, Direction.LEFT, Direction.DOWN},
+                            new Direction[] {into[0], into[1], into[2]});
+            assertEquals(10, when[0]);
+            assertEquals(30, when[2]);
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testFullQueueDrops() {
+        MoveQueue queue = new MoveQueue(2);
+        assertTrue(queue.offer(Direction.UP));
+        assertTrue(queue.offer(Direction.DOWN));
+        assertFalse(queue.offer(Direction.LEFT));
+        assertEquals(1, queue.getDropped());
+
+        // a drain into a short buffer leaves the rest for the next
+        Direction[] into = new Direction[1];
+        assertEquals(1, queue.drain(into, null));
+        assertEquals(Direction.UP, into[0]);
+        assertTrue(queue.offer(Direction.RIGHT));
+        assertEquals(1, queue.drain(into, null));
+        assertEquals(Direction.DOWN, into[0]);
+        assertEquals(1, queue.drain(into, null));
+        assertEquals(Direction.RIGHT, into[0]);
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        MoveQueue queue = new MoveQueue(16);
+        int producers = 4;
+        int moves = 20000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            Direction direction = Direction.values()[p];
+            int producer = p;
+            threads.add(new Thread(() -> {
+                // each producer numbers its moves by the time they are offered with
+                for (int i = 0; i < moves; i++) {
+                    while (!queue.offer(direction, producer * (long) moves + i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        // every move arrives once, and the moves of each producer arrive in order
+        long[] next = new long[producers];
+        Direction[] into = new Direction[8];
+        long[] when = new long[8];
+        int received = 0;
+        while (received < producers * moves) {
+            int count = queue.drain(into, when);
+            for (int i = 0; i < count; i++) {
+                int producer = into[i].ordinal();
+                assertEquals(producer * (long) moves + next[producer], when[i]);
+                next[producer]++;
+            }
+            received += count;
+            if (count == 0) {
+                Thread.yield();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(queue.isEmpty());
+        assertEquals(producers * moves, received);
+    }
+
+}
@@ -0,0 +1,181 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods in {@code OffHeapOrchardBoard} and the views of {@code PackedOrchardBoard}.
+ *
+ * @author yuyingf
+ *
+ */
+public class OffHeapOrchardBoardTest {
+
+    @Test
+    public void testConstructorFromSetup() {
+        OrchardObject[][] setup = new OrchardObject[2][3];
+        setup[0][0] = new Pond();
+        FruitTree tree = new FruitTree("Apple", Color.RED);
+        tree.mature();
+        setup[1][2] = tree;
+        OffHeapOrchardBoard board = new OffHeapOrchardBoard(setup);
+        assertEquals(3, board.getWidth());
+        assertEquals(2, board.getHeight());
+        assertEquals(new Pond(), board.getObject(0, 0));
+        assertEquals(tree, board.getObject(2, 1));
+        assertNull(board.getObject(0, 1));
+        assertNull(board.getObject(5, 4));
+        assertFalse(board.hasObject(1, 1));
+    }
+
+    @Test
+    public void testConstructorEmpty() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new OffHeapOrchardBoard(new OrchardObject[][] {});
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new OffHeapOrchardBoard(0, 5);
+        });
+    }
+
+    @Test
+    public void testConstructorNull() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new OffHeapOrchardBoard(null);
+        });
+    }
+
+    @Test
+    public void testPlaceObjects() {
+        OffHeapOrchardBoard board = new OffHeapOrchardBoard(4, 4);
+        board.placePond(1, 1);
+        board.placeTree(2, 3, "Peach", Color.PINK);
+        assertEquals(new Pond(), board.getObject(1, 1));
+        assertEquals(new FruitTree("Peach", Color.PINK), board.getObject(2, 3));
+        assertEquals(Color.PINK, ((FruitTree) board.getObject(2, 3)).getColor());
+        Set<String> types = board.getFruitTypes();
+        assertEquals(1, types.size());
+        assertTrue(types.contains("Peach"));
+        assertThrows(IllegalArgumentException.class, () -> {
+            board.placePond(4, 0);
+        });
+    }
+
+    @Test
+    public void testViewWritesThrough() {
+        OffHeapOrchardBoard board = new OffHeapOrchardBoard(3, 3);
+        board.placeTree(0, 0, "Apple", Color.RED);
+        FruitTree tree = (FruitTree) board.getObject(0, 0);
+        assertFalse(tree.isMature());
+        tree.mature();
+        assertTrue(((FruitTree) board.getObject(0, 0)).isMature());
+
+        Map<String, Integer> collected = new HashMap<String, Integer>();
+        assertFalse(board.getObject(0, 0).meetPlayer(collected));
+        assertEquals(1, collected.get("Apple"));
+        assertFalse(tree.isMature());
+
+        tree.mature();
+        tree.turnBad();
+        assertTrue(((FruitTree) board.getObject(0, 0)).isBadFruit());
+        assertTrue(board.getObject(0, 0).meetPlayer(collected));
+    }
+
+    @Test
+    public void testViewMeetPlayerNull() {
+        OffHeapOrchardBoard board = new OffHeapOrchardBoard(3, 3);
+        board.placeTree(0, 0, "Apple", Color.RED);
+        FruitTree tree = (FruitTree) board.getObject(0, 0);
+        assertFalse(tree.meetPlayer(null));
+        assertFalse(tree.meetPlayerById(null));
+        tree.mature();
+        assertThrows(IllegalArgumentException.class, () -> tree.meetPlayer(null));
+        assertThrows(IllegalArgumentException.class, () -> tree.meetPlayerById(null));
+        // the fruit is left on the tree
+        assertTrue(tree.isMature());
+        tree.turnBad();
+        assertTrue(tree.meetPlayer(null));
+        assertTrue(tree.meetPlayerById(null));
+    }
+
+    @Test
+    public void testGoodFruitPositions() {
+        OffHeapOrchardBoard board = new OffHeapOrchardBoard(3, 2);
+        board.placeTree(0, 0, "Apple", Color.RED);
+        board.placeTree(2, 1, "Banana", Color.YELLOW);
+        board.placePond(1, 1);
+        ((FruitTree) board.getObject(2, 1)).mature();
+        assertEquals(List.of(new Point(2, 1)), board.goodFruitPositions());
+        ((FruitTree) board.getObject(2, 1)).turnBad();
+        assertTrue(board.goodFruitPositions().isEmpty());
+        assertEquals(new Pond(), board.getObject(1, 1));
+    }
+
+    @Test
+    public void testPlayGame() {
+        OffHeapOrchardBoard board = new OffHeapOrchardBoard(3, 1);
+        board.placeTree(0, 0, "Apple", Color.RED);
+        board.placeTree(1, 0, "Apple", Color.RED);
+        board.placePond(2, 0);
+        ((FruitTree) board.getObject(1, 0)).mature();
+        FruitCollectGame game = new FruitCollectGame(board, 0, 0);
+        game.move(1, 0);
+        assertEquals(1, game.numCollected("Apple"));
+        assertFalse(game.hasEnded());
+        game.move(2, 0);
+        assertTrue(game.hasEnded());
+    }
+
+    @Test
+    public void testConcurrentClaims() throws InterruptedException {
+        // an odd width puts cells in both halves of the words and pads the last one
+        OffHeapOrchardBoard board = new OffHeapOrchardBoard(7, 5);
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++) {
+                board.placeTree(x, y, x % 2 == 0 ? "Peach" : "Plum", Color.PINK);
+                ((FruitTree) board.getObject(x, y)).mature();
+            }
+        }
+        AtomicInteger claims = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int y = 0; y < 5; y++) {
+                    for (int x = 0; x < 7; x++) {
+                        if (((FruitTree) board.getObject(x, y)).claimFruit()) {
+                            claims.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(35, claims.get());
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++) {
+                FruitTree tree = (FruitTree) board.getObject(x, y);
+                assertFalse(tree.isMature());
+                assertEquals(x % 2 == 0 ? "Peach" : "Plum", tree.getType());
+            }
+        }
+        FruitTree tree = (FruitTree) board.getObject(6, 4);
+        assertTrue(tree.ripen());
+        assertTrue(tree.spoilFruit());
+        assertTrue(PackedCell.isBadFruit(board.getCell(6, 4)));
+        assertFalse(PackedCell.isMature(board.getCell(5, 4)));
+    }
+
+}
@@ -161,5 +161,19 @@ public class OrchardBoardTest {
         assertTrue(tree.isMature());
         assertEquals(tree.isMature(), ((FruitTree) board.getObject(0, 0)).isMature());
     }
+    
+    @Test
+    public void testSnapshot() {
+        OrchardObject[][] setup = new OrchardObject[2][3];
+        setup[0][0] = new FruitTree("Apple", Color.RED);
+        setup[1][1] = new Pond();
+        OrchardBoard board = new OrchardBoard(setup);
+        OrchardBoard snapshot = board.snapshot();
+        
+        ((FruitTree) board.getObject(0, 0)).mature();
+        assertFalse(((FruitTree) snapshot.getObject(0, 0)).isMature());
+        assertEquals(new Pond(), snapshot.getObject(1, 1));
+        assertNull(snapshot.getObject(2, 1));
+    }
 
 }
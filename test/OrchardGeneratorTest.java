@@ -0,0 +1,109 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods in {@code OrchardGenerator}.
+ *
+ * @author yuyingf
+ *
+ */
+public class OrchardGeneratorTest {
+
+    private Map<String, Color> fruits;
+
+    @BeforeEach
+    public void setUp() {
+        fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Banana", Color.YELLOW);
+        fruits.put("Peach", Color.PINK);
+    }
+
+    @Test
+    public void testSameSeedAnyThreadCount() {
+        OrchardGenerator generator = new OrchardGenerator(12345, fruits, 20);
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool many = new ForkJoinPool(4);
+        try {
+            OrchardBoard board1 = generator.generate(150, 300, single);
+            OrchardBoard board2 = generator.generate(150, 300, many);
+            assertEquals(board1.toString(), board2.toString());
+        } finally {
+            single.shutdown();
+            many.shutdown();
+        }
+    }
+
+    @Test
+    public void testSmallBoardsSameAsParallel() {
+        OrchardGenerator generator = new OrchardGenerator(4321, fruits, 20);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            OrchardBoard small = generator.generate(100, 150);
+            assertTrue(small instanceof CopyOnWriteOrchardBoard);
+            assertEquals(generator.generate(100, 150, pool).toString(), small.toString());
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(generator.generate(1024, 257) instanceof OffHeapOrchardBoard);
+    }
+
+    @Test
+    public void testDifferentSeeds() {
+        OrchardBoard board1 = new OrchardGenerator(1, fruits, 20).generate(30, 30);
+        OrchardBoard board2 = new OrchardGenerator(2, fruits, 20).generate(30, 30);
+        assertNotEquals(board1.toString(), board2.toString());
+    }
+
+    @Test
+    public void testFruitOrderDoesNotMatter() {
+        Map<String, Color> reordered = new HashMap<String, Color>();
+        reordered.put("Peach", Color.PINK);
+        reordered.put("Banana", Color.YELLOW);
+        reordered.put("Apple", Color.RED);
+        OrchardBoard board1 = new OrchardGenerator(9, fruits, 20).generate(20, 20);
+        OrchardBoard board2 = new OrchardGenerator(9, reordered, 20).generate(20, 20);
+        assertEquals(board1.toString(), board2.toString());
+    }
+
+    @Test
+    public void testNoPonds() {
+        OrchardBoard board = new OrchardGenerator(3, fruits, 0).generate(40, 70);
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
+                assertTrue(board.getObject(x, y) instanceof FruitTree);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            new OrchardGenerator(1, null, 20);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new OrchardGenerator(1, fruits, -1);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            new OrchardGenerator(1, fruits, 20).generate(0, 10);
+        });
+    }
+
+    @Test
+    public void testSeededGame() {
+        FruitCollectGame game1 = new FruitCollectGame(40, 40, fruits, 30, 3, 4, 77);
+        FruitCollectGame game2 = new FruitCollectGame(40, 40, fruits, 30, 3, 4, 77);
+        assertEquals(game1.snapshotOrchard().toString(), game2.snapshotOrchard().toString());
+        assertEquals(3, game1.getFruitSet().size());
+        game1.move(3, 4);
+        assertFalse(game1.hasEnded());
+    }
+
+}
@@ -0,0 +1,94 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code PixelRasterizer} against the sprites of a {@code SpriteAtlas}.
+ *
+ * @author yuyingf
+ *
+ */
+public class PixelRasterizerTest {
+
+    // Draws the view of a camera one sprite per cell, as the panel does for small views
+    private static BufferedImage drawSprites(Camera camera, FruitCollectGame game,
+                    Color background) {
+        BufferedImage image = new BufferedImage(camera.getViewWidth(), camera.getViewHeight(),
+                        BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(background);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        SpriteAtlas sprites = new SpriteAtlas(game::getFruitType);
+        sprites.prepare(null, background, camera.getCellWidth(), camera.getCellHeight());
+        Rectangle cells = camera.visibleCells(null);
+        for (int y = cells.y; y < cells.y + cells.height; y++) {
+            for (int x = cells.x; x < cells.x + cells.width; x++) {
+                sprites.draw(g, game.getCell(x, y), camera.screenX(x), camera.screenY(y));
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    public void testSameAsSprites() {
+        FruitCollectGame game = new FruitCollectGame(200, 150,
+                        Map.of("Apple", Color.RED, "Pear", Color.YELLOW), 20, 100, 75, 11);
+        for (int gen = 0; gen < 100; gen++) {
+            game.nextGen();
+        }
+        Camera camera = new Camera(game.getWidth(), game.getHeight(), 7, 5);
+        camera.setViewport(333, 210);
+        camera.follow(100, 75);
+        PixelRasterizer rasterizer = new PixelRasterizer(new ForkJoinPool(3));
+        
+        // the view is scrolled to the middle of the board, so cells are cut at the edges
+        assertSameImage(drawSprites(camera, game, Color.WHITE),
+                        rasterizer.render(camera, game, Color.WHITE));
+        camera.setCellSize(16, 16);
+        camera.follow(199, 149);
+        assertSameImage(drawSprites(camera, game, Color.LIGHT_GRAY),
+                        rasterizer.render(camera, game, Color.LIGHT_GRAY));
+        assertEquals(2, rasterizer.getRenderCount());
+    }
+
+    @Test
+    public void testSmallBoardIsCentered() {
+        FruitCollectGame game = new FruitCollectGame(10, 10, Map.of("Apple", Color.RED), 30,
+                        5, 5, 5);
+        Camera camera = new Camera(game.getWidth(), game.getHeight(), 10, 10);
+        camera.setViewport(250, 130);
+        camera.follow(5, 5);
+        assertSameImage(drawSprites(camera, game, Color.WHITE),
+                        new PixelRasterizer().render(camera, game, Color.WHITE));
+    }
+
+    @Test
+    public void testEmptyViewport() {
+        FruitCollectGame game = new FruitCollectGame(10, 10, Map.of("Apple", Color.RED), 0,
+                        5, 5, 5);
+        Camera camera = new Camera(game.getWidth(), game.getHeight(), 10, 10);
+        assertNull(new PixelRasterizer().render(camera, game, Color.WHITE));
+        assertThrows(IllegalArgumentException.class, () -> {
+            new PixelRasterizer(null);
+        });
+    }
+
+}
@@ -0,0 +1,125 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code ReplayLog}.
+ *
+ * @author yuyingf
+ *
+ */
+public class ReplayLogTest {
+
+    private BoardSpec spec;
+
+    @BeforeEach
+    public void setUp() {
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Banana", Color.YELLOW);
+        fruits.put("Quince", null);
+        spec = new BoardSpec(20, 12, fruits, 0, 5, 6);
+    }
+
+    private static byte[] save(ReplayLog log) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        log.write(Channels.newChannel(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static ReplayLog load(byte[] bytes) throws IOException {
+        return ReplayLog.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new ReplayLog(null, 1));
+        assertThrows(IllegalArgumentException.class,
+                        () -> new ReplayLog(new BoardSpec(null), 1));
+        ReplayLog log = new ReplayLog(spec, 1);
+        assertThrows(IllegalArgumentException.class, () -> log.getKind(0));
+        assertThrows(IllegalArgumentException.class, () -> log.write(null));
+        assertThrows(IllegalArgumentException.class, () -> ReplayLog.read(null));
+        assertThrows(IOException.class, () -> load(new byte[] {1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    public void testRecordsGame() {
+        ReplayLog log = new ReplayLog(spec, 7);
+        FruitCollectGame game = log.newGame();
+        game.setReplayLog(log);
+        game.move(Direction.RIGHT);
+        game.nextGen();
+        long afterGen = game.checksum();
+        game.movePath(Direction.UP, Direction.UP);
+        // moves to a cell and the steps of other players are not recorded
+        game.move(0, 0);
+        game.move(game.addPlayer(1, 1), Direction.LEFT);
+        game.endGame();
+        long atEnd = game.checksum();
+        game.endGame();
+        game.move(Direction.DOWN);
+
+        assertEquals(5, log.size());
+        assertEquals(ReplayLog.MOVE, log.getKind(0));
+        assertEquals(Direction.RIGHT, log.getDirection(0));
+        assertEquals(0, log.getChecksum(0));
+        assertEquals(ReplayLog.GEN, log.getKind(1));
+        assertNull(log.getDirection(1));
+        assertEquals(afterGen, log.getChecksum(1));
+        assertEquals(Direction.UP, log.getDirection(2));
+        assertEquals(Direction.UP, log.getDirection(3));
+        assertEquals(ReplayLog.END, log.getKind(4));
+        assertEquals(atEnd, log.getChecksum(4));
+        for (int i = 1; i < log.size(); i++) {
+            assertTrue(log.getMillis(i) >= log.getMillis(i - 1));
+        }
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        ReplayLog log = new ReplayLog(spec, -42);
+        for (int i = 0; i < 300; i++) {
+            log.recordMove(Direction.values()[i % 4]);
+            if (i % 50 == 0) {
+                log.recordGen(i * 0x123456789L);
+            }
+        }
+        log.recordEnd(Long.MIN_VALUE);
+        byte[] saved = save(log);
+        ReplayLog read = load(saved);
+
+        assertEquals(-42, read.getSeed());
+        assertEquals(20, read.getSpec().getWidth());
+        assertEquals(12, read.getSpec().getHeight());
+        assertEquals(0, read.getSpec().getPondPercent());
+        assertEquals(5, read.getSpec().getPlayerX());
+        assertEquals(6, read.getSpec().getPlayerY());
+        assertEquals(spec.getFruits(), read.getSpec().getFruits());
+        assertEquals(log.size(), read.size());
+        for (int i = 0; i < log.size(); i++) {
+            assertEquals(log.getKind(i), read.getKind(i));
+            assertEquals(log.getDirection(i), read.getDirection(i));
+            assertEquals(log.getMillis(i), read.getMillis(i));
+            assertEquals(log.getChecksum(i), read.getChecksum(i));
+        }
+        assertArrayEquals(saved, save(read));
+
+        // a step takes 2 bytes while the player is quicker than 128 ms
+        assertTrue(saved.length < 100 + 2 * 300 + 10 * 8, saved.length + " bytes");
+
+        assertThrows(EOFException.class, () -> load(Arrays.copyOf(saved, saved.length - 1)));
+    }
+
+}
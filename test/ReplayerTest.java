@@ -0,0 +1,105 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code Replayer}.
+ *
+ * @author yuyingf
+ *
+ */
+public class ReplayerTest {
+
+    private BoardSpec spec;
+
+    @BeforeEach
+    public void setUp() {
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Banana", Color.YELLOW);
+        fruits.put("Peach", Color.PINK);
+        spec = new BoardSpec(fruits);
+    }
+
+    // Records a game walked randomly, with a generation every few steps
+    private ReplayLog record(long seed) {
+        ReplayLog log = new ReplayLog(spec, seed);
+        FruitCollectGame game = log.newGame();
+        game.setReplayLog(log);
+        game.setGoal(new PerTypeGoal(2));
+        SplittableRandom random = new SplittableRandom(seed);
+        Direction[] directions = Direction.values();
+        for (int i = 0; i < 400 && !game.hasEnded(); i++) {
+            if (i % 8 == 0) {
+                game.nextGen();
+            }
+            game.move(directions[random.nextInt(directions.length)]);
+        }
+        game.endGame();
+        return log;
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new Replayer(null));
+    }
+
+    @Test
+    public void testReplayMatches() throws IOException {
+        for (long seed = 0; seed < 20; seed++) {
+            ReplayLog log = record(seed);
+            Replayer replayer = new Replayer(log);
+            FruitCollectGame game = replayer.replay();
+            assertEquals(-1, replayer.getFirstMismatch(), "seed " + seed);
+            assertEquals(0, replayer.getMismatches());
+            assertEquals(log.getChecksum(log.size() - 1), game.checksum());
+            assertTrue(game.hasEnded());
+            assertTrue(replayer.getReplayNanos() > 0);
+
+            // and again from a saved copy
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            log.write(Channels.newChannel(bytes));
+            ReplayLog read = ReplayLog.read(Channels.newChannel(
+                            new ByteArrayInputStream(bytes.toByteArray())));
+            assertEquals(game.checksum(), new Replayer(read).replay().checksum());
+        }
+    }
+
+    @Test
+    public void testReplayFindsDivergence() {
+        ReplayLog recorded = record(3);
+
+        // the same events on a game of another seed
+        ReplayLog other = new ReplayLog(spec, 4);
+        for (int i = 0; i < recorded.size(); i++) {
+            if (recorded.getKind(i) == ReplayLog.MOVE) {
+                other.recordMove(recorded.getDirection(i));
+            } else if (recorded.getKind(i) == ReplayLog.GEN) {
+                other.recordGen(recorded.getChecksum(i));
+            } else {
+                other.recordEnd(recorded.getChecksum(i));
+            }
+        }
+        Replayer replayer = new Replayer(other);
+        replayer.replay();
+        assertTrue(replayer.getMismatches() > 0);
+        assertEquals(ReplayLog.GEN, other.getKind(replayer.getFirstMismatch()));
+
+        // a replay starts afresh
+        replayer = new Replayer(recorded);
+        replayer.replay();
+        replayer.replay();
+        assertEquals(0, replayer.getMismatches());
+    }
+
+}
@@ -0,0 +1,98 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code SimulationRunner} and {@code SimulationStats}.
+ *
+ * @author yuyingf
+ *
+ */
+public class SimulationRunnerTest {
+
+    private static BoardSpec spec() {
+        Map<String, Color> fruits = new HashMap<String, Color>();
+        fruits.put("Apple", Color.RED);
+        fruits.put("Banana", Color.YELLOW);
+        return new BoardSpec(fruits);
+    }
+
+    @Test
+    public void testRunRecordsEveryGame() {
+        SimulationRunner runner = new SimulationRunner(spec(), new RandomWalkPolicy(), 5, 10);
+        AtomicLong streamed = new AtomicLong();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        SimulationStats stats = runner.run(0, 600, pool,
+                        batch -> streamed.addAndGet(batch.getGames()));
+        pool.shutdown();
+        assertEquals(600, stats.getGames());
+        assertEquals(600, streamed.get());
+        long ended = 0;
+        for (GameOutcome outcome : GameOutcome.values()) {
+            ended += stats.getCount(outcome);
+        }
+        assertEquals(600, ended);
+        assertEquals(0, stats.getCount(GameOutcome.IN_PROGRESS));
+        assertTrue(stats.getAverageGenerations() <= 11);
+        assertTrue(stats.getAverageMoves() <= 5 * 11);
+    }
+
+    @Test
+    public void testSameResultsForAnyThreads() {
+        SimulationRunner runner = new SimulationRunner(spec(), new RandomWalkPolicy(), 5, 10);
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        SimulationStats sequential = runner.run(0, 600, one, null);
+        SimulationStats parallel = runner.run(0, 600, four, null);
+        one.shutdown();
+        four.shutdown();
+        assertEquals(sequential.toString(), parallel.toString());
+    }
+
+    @Test
+    public void testMerge() {
+        SimulationRunner runner = new SimulationRunner(spec(), new RandomWalkPolicy(), 5, 10);
+        SimulationStats first = runner.run(0, 10);
+        SimulationStats second = runner.run(10, 30);
+        long apples = first.getFruitCollected("Apple") + second.getFruitCollected("Apple");
+        first.merge(second);
+        assertEquals(30, first.getGames());
+        assertEquals(apples, first.getFruitCollected("Apple"));
+        assertEquals(0, first.getFruitCollected("Kiwi"));
+        assertEquals(0, new SimulationStats().getWinRate());
+    }
+
+    @Test
+    public void testMoveInDirection() {
+        OrchardObject[][] setup = new OrchardObject[1][3];
+        setup[0][0] = new FruitTree("Apple", Color.RED);
+        setup[0][1] = new FruitTree("Apple", Color.RED);
+        setup[0][2] = new Pond();
+        FruitCollectGame game = new FruitCollectGame(setup, 0, 0);
+        assertEquals(GameOutcome.IN_PROGRESS, game.getOutcome());
+        game.move(Direction.RIGHT);
+        assertEquals(1, game.getPlayerX());
+        game.move(Direction.RIGHT);
+        assertTrue(game.hasEnded());
+        assertEquals(GameOutcome.DROWNED, game.getOutcome());
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new SimulationRunner(null, new RandomWalkPolicy(), 5, 10));
+        assertThrows(IllegalArgumentException.class,
+            () -> new SimulationRunner(spec(), null, 5, 10));
+        assertThrows(IllegalArgumentException.class,
+            () -> new SimulationRunner(spec(), new RandomWalkPolicy(), 0, 10));
+        assertThrows(IllegalArgumentException.class,
+            () -> new SimulationRunner(spec(), new RandomWalkPolicy(), 5, 10).run(5, 4));
+    }
+
+}
@@ -0,0 +1,60 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code SpriteAtlas}.
+ *
+ * @author yuyingf
+ *
+ */
+public class SpriteAtlasTest {
+
+    @Test
+    public void testLooksAreRasterizedOnce() {
+        int apple = PackedCell.tree(0);
+        BufferedImage image = new BufferedImage(100, 20, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        SpriteAtlas sprites = new SpriteAtlas(id -> FruitType.of("Apple", Color.RED));
+        sprites.prepare(null, Color.WHITE, 20, 20);
+        for (int i = 0; i < 5; i++) {
+            sprites.draw(g, PackedCell.POND, 0, 0);
+            sprites.draw(g, PackedCell.mature(apple), 20, 0);
+            sprites.draw(g, PackedCell.EMPTY, 40, 0);
+        }
+        g.dispose();
+        assertEquals(2, sprites.getSpriteCount());
+        assertEquals(new Color(51, 204, 255).getRGB(), image.getRGB(10, 10));
+        assertEquals(Color.RED.getRGB(), image.getRGB(30, 10));
+        assertEquals(Color.BLACK.getRGB(), image.getRGB(50, 10));
+
+        sprites.prepare(null, Color.WHITE, 20, 20);
+        assertEquals(2, sprites.getSpriteCount());
+        sprites.prepare(null, Color.WHITE, 10, 10);
+        assertEquals(0, sprites.getSpriteCount());
+    }
+
+    @Test
+    public void testAtlasGrows() {
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        SpriteAtlas sprites = new SpriteAtlas(id -> FruitType.of("Sprite" + id, Color.GREEN));
+        sprites.prepare(null, Color.WHITE, 10, 10);
+        int looks = 0;
+        for (int i = 0; looks <= 3 * SpriteAtlas.COLUMNS; i++) {
+            int cell = PackedCell.tree(i);
+            sprites.draw(g, cell, 0, 0);
+            sprites.draw(g, PackedCell.mature(cell), 0, 0);
+            sprites.draw(g, PackedCell.turnBad(PackedCell.mature(cell)), 0, 0);
+            looks += 3;
+        }
+        g.dispose();
+        assertEquals(looks, sprites.getSpriteCount());
+        assertEquals(Color.BLACK.getRGB(), image.getRGB(5, 5));
+    }
+
+}
@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@code TerrainLayer} through an {@code OrchardPanel}.
+ *
+ * @author yuyingf
+ *
+ */
+public class TerrainLayerTest {
+
+    private static void paint(OrchardPanel panel, BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        panel.paintComponent(g);
+        g.dispose();
+    }
+
+    @Test
+    public void testTerrainIsRenderedOncePerView() {
+        OrchardObject[][] setup = new OrchardObject[1][3];
+        setup[0][0] = new Pond();
+        setup[0][1] = new FruitTree("Apple", Color.RED);
+        setup[0][2] = new FruitTree("Apple", Color.RED);
+        FruitCollectGame game = new FruitCollectGame(setup, 1, 0);
+        OrchardPanel panel = new OrchardPanel(game, 10, 10);
+        panel.setSize(30, 10);
+        BufferedImage image = new BufferedImage(30, 10, BufferedImage.TYPE_INT_RGB);
+        TerrainLayer terrain = panel.getTerrainLayer();
+        
+        paint(panel, image);
+        assertEquals(1, terrain.getRenderCount());
+        assertEquals(new Color(51, 204, 255).getRGB(), image.getRGB(5, 5));
+        assertEquals(panel.getBackground().getRGB(), image.getRGB(21, 5));
+        
+        game.move(2, 0);
+        game.nextGen();
+        paint(panel, image);
+        assertEquals(1, terrain.getRenderCount());
+        assertEquals(Color.GREEN.getRGB(), image.getRGB(25, 5));
+        
+        panel.setGridWidth(5);
+        paint(panel, image);
+        assertEquals(2, terrain.getRenderCount());
+        terrain.invalidate();
+        paint(panel, image);
+        assertEquals(3, terrain.getRenderCount());
+    }
+    
+    @Test
+    public void testFewPondsAreNotCached() {
+        OrchardObject[][] setup = new OrchardObject[1][6];
+        setup[0][0] = new Pond();
+        setup[0][1] = new FruitTree("Apple", Color.RED);
+        FruitCollectGame game = new FruitCollectGame(setup, 1, 0);
+        OrchardPanel panel = new OrchardPanel(game, 10, 10);
+        panel.setSize(60, 10);
+        BufferedImage image = new BufferedImage(60, 10, BufferedImage.TYPE_INT_RGB);
+        TerrainLayer terrain = panel.getTerrainLayer();
+        
+        // one cell in six is a pond, so it is drawn with the trees on every paint
+        paint(panel, image);
+        assertEquals(0, terrain.getRenderCount());
+        assertEquals(new Color(51, 204, 255).getRGB(), image.getRGB(5, 5));
+        assertEquals(panel.getBackground().getRGB(), image.getRGB(55, 5));
+        
+        // only the clip is filled with the background
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, 60, 10);
+        g.setClip(40, 0, 20, 10);
+        panel.paintComponent(g);
+        g.dispose();
+        assertEquals(Color.BLACK.getRGB(), image.getRGB(5, 5));
+        assertEquals(panel.getBackground().getRGB(), image.getRGB(45, 5));
+        assertEquals(0, terrain.getRenderCount());
+    }
+
+}
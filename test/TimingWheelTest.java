@@ -0,0 +1,97 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests methods in {@code TimingWheel}.
+ *
+ * @author yuyingf
+ *
+ */
+public class TimingWheelTest {
+
+    // Advances a wheel until it is empty, returning the tick each timeout expired at
+    private static List<Long> drain(TimingWheel wheel, List<Runnable> order) {
+        List<Long> ticks = new ArrayList<Long>();
+        while (wheel.size() > 0) {
+            wheel.advance(timeout -> {
+                assertEquals(wheel.getTick(), timeout.getDeadline());
+                assertFalse(timeout.isPending());
+                ticks.add(wheel.getTick());
+                order.add(timeout.getTask());
+            });
+        }
+        return ticks;
+    }
+
+    @Test
+    public void testScheduleInvalid() {
+        TimingWheel wheel = new TimingWheel();
+        assertThrows(IllegalArgumentException.class, () -> wheel.schedule(0, () -> { }));
+        assertThrows(IllegalArgumentException.class, () -> wheel.schedule(1, null));
+    }
+
+    @Test
+    public void testExpiresOnTimeOnEveryLevel() {
+        TimingWheel wheel = new TimingWheel();
+        long[] delays = { 1, 63, 64, 65, 100, 4095, 4096, 4097, 70000, 300000 };
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (long delay : delays) {
+            Runnable task = () -> { };
+            tasks.add(task);
+            wheel.schedule(delay, task);
+        }
+        assertEquals(delays.length, wheel.size());
+        List<Runnable> order = new ArrayList<Runnable>();
+        List<Long> ticks = drain(wheel, order);
+        for (int i = 0; i < delays.length; i++) {
+            assertEquals(delays[i], ticks.get(i));
+            assertSame(tasks.get(i), order.get(i));
+        }
+    }
+
+    @Test
+    public void testScheduleWhileTurning() {
+        TimingWheel wheel = new TimingWheel();
+        for (int i = 0; i < 5000; i++) {
+            wheel.advance(timeout -> fail());
+        }
+        // placed from a tick that is not a multiple of the slot spans
+        wheel.schedule(4095, () -> { });
+        wheel.schedule(130, () -> { });
+        List<Long> ticks = drain(wheel, new ArrayList<Runnable>());
+        assertEquals(List.of(5130L, 9095L), ticks);
+    }
+
+    @Test
+    public void testBeyondSpan() {
+        TimingWheel wheel = new TimingWheel();
+        long span = 1L << 24;
+        wheel.schedule(span + 5, () -> { });
+        List<Long> ticks = drain(wheel, new ArrayList<Runnable>());
+        assertEquals(List.of(span + 5), ticks);
+    }
+
+    @Test
+    public void testCancel() {
+        TimingWheel wheel = new TimingWheel();
+        TimingWheel.Timeout a = wheel.schedule(10, () -> { });
+        TimingWheel.Timeout b = wheel.schedule(10, () -> { });
+        TimingWheel.Timeout c = wheel.schedule(10, () -> { });
+        TimingWheel.Timeout far = wheel.schedule(5000, () -> { });
+        assertTrue(b.cancel());
+        assertFalse(b.cancel());
+        assertTrue(far.cancel());
+        assertEquals(2, wheel.size());
+        List<Runnable> order = new ArrayList<Runnable>();
+        drain(wheel, order);
+        assertEquals(2, order.size());
+        assertTrue(order.contains(a.getTask()) && order.contains(c.getTask()));
+        assertFalse(a.cancel());
+        assertEquals(10, wheel.getTick());
+    }
+
+}